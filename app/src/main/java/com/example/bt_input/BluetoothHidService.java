@@ -8,53 +8,43 @@ import android.bluetooth.BluetoothHidDeviceAppSdpSettings;
 import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Process;
 import android.util.Log;
 
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class BluetoothHidService {
     private static final String TAG = "BluetoothHidService";
     
-    // HID 设备描述符 - 包含鼠标和滚轮功能
-    private static final byte[] HID_MOUSE_DESCRIPTOR = {
-        (byte) 0x05, (byte) 0x01,  // Usage Page (Generic Desktop)
-        (byte) 0x09, (byte) 0x02,  // Usage (Mouse)
-        (byte) 0xA1, (byte) 0x01,  // Collection (Application)
-        (byte) 0x09, (byte) 0x01,  //   Usage (Pointer)
-        (byte) 0xA1, (byte) 0x00,  //   Collection (Physical)
-        (byte) 0x05, (byte) 0x09,  //     Usage Page (Buttons)
-        (byte) 0x19, (byte) 0x01,  //     Usage Minimum (1)
-        (byte) 0x29, (byte) 0x03,  //     Usage Maximum (3)
-        (byte) 0x15, (byte) 0x00,  //     Logical Minimum (0)
-        (byte) 0x25, (byte) 0x01,  //     Logical Maximum (1)
-        (byte) 0x95, (byte) 0x03,  //     Report Count (3)
-        (byte) 0x75, (byte) 0x01,  //     Report Size (1)
-        (byte) 0x81, (byte) 0x02,  //     Input (Data, Variable, Absolute)
-        (byte) 0x95, (byte) 0x01,  //     Report Count (1)
-        (byte) 0x75, (byte) 0x05,  //     Report Size (5)
-        (byte) 0x81, (byte) 0x03,  //     Input (Constant, Variable, Absolute)
-        (byte) 0x05, (byte) 0x01,  //     Usage Page (Generic Desktop)
-        (byte) 0x09, (byte) 0x30,  //     Usage (X)
-        (byte) 0x09, (byte) 0x31,  //     Usage (Y)
-        (byte) 0x15, (byte) 0x81,  //     Logical Minimum (-127)
-        (byte) 0x25, (byte) 0x7F,  //     Logical Maximum (127)
-        (byte) 0x75, (byte) 0x08,  //     Report Size (8)
-        (byte) 0x95, (byte) 0x02,  //     Report Count (2)
-        (byte) 0x81, (byte) 0x06,  //     Input (Data, Variable, Relative)
-        (byte) 0x09, (byte) 0x38,  //     Usage (Wheel)
-        (byte) 0x15, (byte) 0x81,  //     Logical Minimum (-127)
-        (byte) 0x25, (byte) 0x7F,  //     Logical Maximum (127)
-        (byte) 0x75, (byte) 0x08,  //     Report Size (8)
-        (byte) 0x95, (byte) 0x01,  //     Report Count (1)
-        (byte) 0x81, (byte) 0x06,  //     Input (Data, Variable, Relative)
-        (byte) 0xC0,               //   End Collection
-        (byte) 0xC0                // End Collection
-    };
+    // 常用媒体键用法码 (Consumer Page)
+    public static final int CONSUMER_PLAY_PAUSE = 0x00CD;
+    public static final int CONSUMER_VOLUME_UP = 0x00E9;
+    public static final int CONSUMER_VOLUME_DOWN = 0x00EA;
+    public static final int CONSUMER_MUTE = 0x00E2;
+
+    // 发送队列容量，约为 200Hz 触摸采样下 300ms 的报告量
+    private static final int SENDER_QUEUE_CAPACITY = 64;
+
+    private static final String DEVICE_NAME = "bt_input";
+    private static final String PREFS_NAME = "hid_hosts";
+    private static final String PREF_LAST_HOST = "last_host";
+    // 从启动到 HID 应用注册完成的超时
+    private static final long START_TIMEOUT_MS = 15000;
+    // GET_REPORT/SET_REPORT 回调队列容量，回连时的回调风暴之外通常只有几个
+    private static final int CALLBACK_QUEUE_CAPACITY = 64;
+    // 释放服务时等待已排队的 HID 回调执行完的最长时间
+    private static final long CALLBACK_DRAIN_TIMEOUT_MS = 500;
 
     private Context context;
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothHidDevice bluetoothHidDevice;
-    private boolean isRegistered = false;
-    private boolean isConnected = false;
-    private android.bluetooth.BluetoothDevice connectedDevice = null;
+    private volatile BluetoothHidDevice bluetoothHidDevice;
 
     public interface HidServiceCallback {
         void onServiceConnected();
@@ -64,14 +54,106 @@ public class BluetoothHidService {
         void onDeviceConnected();
         void onDeviceDisconnected();
         void onError(String error);
+        // 主机修改了滚轮分辨率倍增，参数为每格滚轮对应的计数
+        void onScrollResolutionChanged(int countsPerDetent);
     }
 
     private HidServiceCallback callback;
 
+    // 专用发送线程，避免 UI 线程阻塞在 binder 调用上
+    private final HidReportSender reportSender;
+    // 串行化多个生产者（触摸回调、随机移动线程）对发送队列的写入
+    private final Object producerLock = new Object();
+    // 链路繁忙时合并鼠标位移，每个发送时隙只发一个报告
+    private final MotionCoalescer motionCoalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+    private volatile boolean motionCoalescingEnabled = true;
+    // 下次注册时是否使用 16 位 X/Y 描述符
+    private boolean highResolutionRequested = false;
+    // 下次注册时是否使用高精度滚轮 + 水平滚动描述符
+    private boolean smoothScrollRequested = false;
+    // 主机通过特性报告协商的分辨率倍增设置 (bit0-1 滚轮，bit2-3 水平滚动)
+    private volatile byte resolutionMultiplierFeature = 0;
+    // 下次注册时是否使用鼠标 + 键盘 + 媒体键组合描述符
+    private boolean compositeRequested = false;
+    // 当前已注册的描述符（报告协议）
+    private volatile HidDescriptor registeredDescriptor = new HidDescriptor(MouseReportFormat.STANDARD, false);
+    // 当前协议模式下的报告布局，报告 ID 和长度都由它决定；主机切换到启动协议时改为启动协议视图
+    private volatile HidDescriptor descriptor = registeredDescriptor;
+    // 发送失败的计数与退避，按连接清零
+    private final ReportSendBackoff sendBackoff = new ReportSendBackoff();
+    // 按 sendReport 耗时和失败率调整位移报告速率（AIMD），拥塞时位移在合并器中累加，按连接重置
+    private final ReportRateController rateController = new ReportRateController();
+    // 发送链路延迟与计数指标，每次连接重新开始统计
+    private final HidMetrics metrics = new HidMetrics();
+
+    // 键盘与媒体键状态，只在 producerLock 内访问
+    private final KeyboardReportState keyboardState = new KeyboardReportState();
+    private int consumerUsage = 0;
+    // 最近一次提交的鼠标按钮状态，GET_REPORT 回复的鼠标输入报告由它决定；只在 producerLock 内写入
+    private volatile byte mouseButtons = 0;
+
+    // 启动超时、主机回连等定时任务共用的调度线程
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "HidScheduler"));
+    // 主机报告请求（GET_REPORT/SET_REPORT）的专用执行线程，回复不占用 binder 线程；
+    // 队列满时丢弃并计数，主机等待超时后会重新请求，binder 线程不会被阻塞
+    private final AtomicLong callbackOverflowCount = new AtomicLong();
+    private final ThreadPoolExecutor callbackExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CALLBACK_QUEUE_CAPACITY),
+            runnable -> new Thread(runnable, "HidCallback"),
+            (runnable, executor) -> callbackOverflowCount.incrementAndGet());
+    // 注册、连接、协议等状态回调在调度线程上按发生顺序处理；同一种回调在处理前只保留最新一次，
+    // 回连时的回调风暴中过时的状态直接丢弃，不会排队也不会阻塞 binder 线程
+    private final EventBatcher stateEvents = new EventBatcher(scheduler, 0, batch -> {
+        for (Runnable event : batch) {
+            event.run();
+        }
+    });
+    // GET_REPORT 直接从这里回复
+    private final InputReportCache inputReportCache = new InputReportCache();
+    // 注册/连接状态，各线程都通过它判断，不再分散在多个布尔字段中
+    private final HidConnectionState<android.bluetooth.BluetoothDevice> connectionState =
+            new HidConnectionState<>(scheduler);
+    // 注册完成后主动回连上次的主机
+    private final HostReconnectManager reconnectManager;
+
     public BluetoothHidService(Context context, HidServiceCallback callback) {
         this.context = context;
         this.callback = callback;
         this.bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        this.reportSender = new HidReportSender(this::transmitReport, SENDER_QUEUE_CAPACITY, HidDescriptor.MAX_INPUT_REPORT_LENGTH,
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_DISPLAY);
+                    runnable.run();
+                }, "HidReportSender"));
+        this.reportSender.setReportSource(descriptor.getMouseReportId(), motionCoalescer::poll);
+        this.reportSender.setBackoff(sendBackoff);
+        this.reportSender.setRateController(rateController);
+        this.reportSender.setMetrics(metrics);
+        this.metrics.attach(reportSender, motionCoalescer);
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.reconnectManager = new HostReconnectManager(this::connectToHost, new HostReconnectManager.HostStore() {
+            @Override
+            public String loadLastHost() {
+                return prefs.getString(PREF_LAST_HOST, null);
+            }
+
+            @Override
+            public void saveLastHost(String address) {
+                if (address == null) {
+                    prefs.edit().remove(PREF_LAST_HOST).apply();
+                } else {
+                    prefs.edit().putString(PREF_LAST_HOST, address).apply();
+                }
+            }
+        }, scheduler);
+        // 回连失败（主机不在附近或已删除配对）时退回到等待主机搜索
+        this.reconnectManager.setGiveUpListener(() -> {
+            Log.w(TAG, "回连主机失败，开启可发现性等待主机连接");
+            makeDiscoverable();
+        });
+        this.connectionState.setListener((from, to, host) -> Log.d(TAG, "连接状态: " + from + " -> " + to));
     }
 
     @SuppressLint("MissingPermission")
@@ -86,24 +168,22 @@ public class BluetoothHidService {
             return;
         }
 
-        // 设置设备名称为 bt_input
-        try {
-            bluetoothAdapter.setName("bt_input");
-            Log.d(TAG, "设备名称已设置为: bt_input");
-        } catch (SecurityException e) {
-            Log.w(TAG, "设置设备名称权限不足: " + e.getMessage());
+        if (!connectionState.start()) {
+            Log.w(TAG, "HID服务已在运行: " + connectionState.getPhase());
+            return;
         }
-        
-        // 开启蓝牙可发现性 (在后台处理，避免阻塞)
-        try {
-            Intent discoverableIntent = new Intent(BluetoothAdapter.ACTION_REQUEST_DISCOVERABLE);
-            discoverableIntent.putExtra(BluetoothAdapter.EXTRA_DISCOVERABLE_DURATION, 300); // 5分钟可发现
-            discoverableIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            context.startActivity(discoverableIntent);
-            Log.d(TAG, "可发现性请求已发送");
-        } catch (Exception e) {
-            Log.w(TAG, "启动可发现性失败: " + e.getMessage());
-            // 可发现性失败不应该阻止HID服务启动
+        metrics.markSessionStart(System.nanoTime());
+        // 到期时仍停留在启动阶段则放弃，由界面提示重试
+        connectionState.scheduleTimeout(START_TIMEOUT_MS, () -> {
+            Log.w(TAG, "HID服务启动超时");
+            failStart("HID服务启动超时，请重试");
+        });
+
+        // 已有配对过的主机时由本机主动回连，不需要改名和可发现性
+        if (reconnectManager.hasKnownHost()) {
+            Log.d(TAG, "跳过可发现性，注册后回连主机: " + reconnectManager.getLastHost());
+        } else {
+            makeDiscoverable();
         }
 
         // 获取 HID 设备 Profile
@@ -121,26 +201,83 @@ public class BluetoothHidService {
             @Override
             public void onServiceDisconnected(int profile) {
                 Log.d(TAG, "HID 设备服务已断开");
+                reportSender.stop();
+                reconnectManager.cancel();
                 bluetoothHidDevice = null;
+                connectionState.reset();
                 callback.onServiceDisconnected();
             }
         }, BluetoothProfile.HID_DEVICE);
     }
 
+    // 设置设备名并请求 5 分钟可发现，供首次配对的主机搜索
+    private void makeDiscoverable() {
+        try {
+            bluetoothAdapter.setName(DEVICE_NAME);
+            Log.d(TAG, "设备名称已设置为: " + DEVICE_NAME);
+        } catch (SecurityException e) {
+            Log.w(TAG, "设置设备名称权限不足: " + e.getMessage());
+        }
+
+        // 开启蓝牙可发现性 (在后台处理，避免阻塞)
+        try {
+            Intent discoverableIntent = new Intent(BluetoothAdapter.ACTION_REQUEST_DISCOVERABLE);
+            discoverableIntent.putExtra(BluetoothAdapter.EXTRA_DISCOVERABLE_DURATION, 300); // 5分钟可发现
+            discoverableIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(discoverableIntent);
+            Log.d(TAG, "可发现性请求已发送");
+        } catch (Exception e) {
+            Log.w(TAG, "启动可发现性失败: " + e.getMessage());
+            // 可发现性失败不应该阻止HID服务启动
+        }
+    }
+
+    // 由回连管理器在后台线程调用
+    @SuppressLint("MissingPermission")
+    private boolean connectToHost(String address) {
+        BluetoothHidDevice hidDevice = bluetoothHidDevice;
+        if (hidDevice == null || connectionState.isConnected()) {
+            return false;
+        }
+        try {
+            boolean requested = hidDevice.connect(bluetoothAdapter.getRemoteDevice(address));
+            Log.d(TAG, "回连主机 " + address + " 第 " + reconnectManager.getAttempts() + " 次: " + requested);
+            return requested;
+        } catch (IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "回连主机失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 启动失败：释放 profile 代理并回到空闲，界面收到错误后允许重试
+    private void failStart(String error) {
+        stopHidService();
+        callback.onError(error);
+    }
+
     @SuppressLint("MissingPermission")
     private void registerHidApp() {
         if (bluetoothHidDevice == null) {
-            callback.onError("HID 设备服务未连接");
+            failStart("HID 设备服务未连接");
             return;
         }
 
+        // 根据设置选择描述符，报告布局随之确定
+        HidDescriptor registered = new HidDescriptor(
+                MouseReportFormat.of(highResolutionRequested, smoothScrollRequested), compositeRequested);
+        registeredDescriptor = registered;
+        resetKeyboardState();
+        applyProtocol(false);
+        Log.d(TAG, "使用描述符: " + registered);
+
         // SDP 设置
         BluetoothHidDeviceAppSdpSettings sdpSettings = new BluetoothHidDeviceAppSdpSettings(
                 "bt_input",                    // 设备名称
                 "蓝牙鼠标设备",                // 设备描述
                 "BT_Input Corp",               // 供应商
-                BluetoothHidDevice.SUBCLASS1_MOUSE,  // 子类：鼠标设备
-                HID_MOUSE_DESCRIPTOR          // HID 描述符
+                registered.isComposite() ? BluetoothHidDevice.SUBCLASS1_COMBO  // 子类：键盘鼠标组合设备
+                        : BluetoothHidDevice.SUBCLASS1_MOUSE,                  // 子类：鼠标设备
+                registered.getBytes()   // HID 描述符
         );
 
         // QoS 设置 - 优化为低延迟配置
@@ -152,68 +289,163 @@ public class BluetoothHidService {
 
         // 注册应用
         try {
-            boolean result = bluetoothHidDevice.registerApp(sdpSettings, null, qosSettings, Runnable::run, hidDeviceCallback);
+            // 回调在 binder 线程上只做分派：状态回调交给 stateEvents 合并，报告请求交给 callbackExecutor
+            boolean result = bluetoothHidDevice.registerApp(sdpSettings, null, qosSettings, Runnable::run,
+                    hidDeviceCallback);
             
             if (result) {
                 Log.d(TAG, "HID 应用注册请求已发送");
             } else {
                 Log.e(TAG, "HID 应用注册返回false");
-                callback.onError("HID 应用注册失败");
+                failStart("HID 应用注册失败");
             }
         } catch (SecurityException e) {
             Log.e(TAG, "HID 应用注册权限不足: " + e.getMessage());
-            callback.onError("HID 应用注册权限不足: " + e.getMessage());
+            failStart("HID 应用注册权限不足: " + e.getMessage());
         } catch (Exception e) {
             Log.e(TAG, "HID 应用注册异常: " + e.getMessage());
-            callback.onError("HID 应用注册异常: " + e.getMessage());
+            failStart("HID 应用注册异常: " + e.getMessage());
         }
     }
 
     private final BluetoothHidDevice.Callback hidDeviceCallback = new BluetoothHidDevice.Callback() {
         @Override
         public void onAppStatusChanged(android.bluetooth.BluetoothDevice pluggedDevice, boolean registered) {
+            stateEvents.post("onAppStatusChanged", () -> handleAppStatusChanged(registered));
+        }
+
+        @Override
+        public void onConnectionStateChanged(android.bluetooth.BluetoothDevice device, int state) {
+            stateEvents.post("onConnectionStateChanged", () -> handleConnectionStateChanged(device, state));
+        }
+
+        @Override
+        public void onGetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, int bufferSize) {
+            callbackExecutor.execute(() -> handleGetReport(device, type, id, bufferSize));
+        }
+
+        @Override
+        public void onSetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, byte[] data) {
+            callbackExecutor.execute(() -> handleSetReport(device, type, id, data));
+        }
+
+        @Override
+        public void onSetProtocol(android.bluetooth.BluetoothDevice device, byte protocol) {
+            stateEvents.post("onSetProtocol", () -> handleSetProtocol(protocol));
+        }
+
+        @Override
+        public void onVirtualCableUnplug(android.bluetooth.BluetoothDevice device) {
+            stateEvents.post("onVirtualCableUnplug", () -> handleVirtualCableUnplug(device));
+        }
+
+        private void handleAppStatusChanged(boolean registered) {
             Log.d(TAG, "应用状态已更改: registered=" + registered);
-            isRegistered = registered;
             if (registered) {
-                callback.onAppRegistered();
+                // 已超时或已停止时迟到的注册结果不再生效
+                if (connectionState.onRegistered()) {
+                    callback.onAppRegistered();
+                    reconnectManager.onRegistered();
+                }
             } else {
+                reconnectManager.cancel();
+                reportSender.stop();
+                connectionState.reset();
                 callback.onAppUnregistered();
             }
         }
 
-        @Override
-        public void onConnectionStateChanged(android.bluetooth.BluetoothDevice device, int state) {
+        private void handleConnectionStateChanged(android.bluetooth.BluetoothDevice device, int state) {
             Log.d(TAG, "连接状态已更改: " + state + " 设备: " + device.getName());
-            boolean wasConnected = isConnected;
-            isConnected = (state == android.bluetooth.BluetoothProfile.STATE_CONNECTED);
-            
-            if (isConnected && !wasConnected) {
-                connectedDevice = device;
+            if (state == BluetoothProfile.STATE_CONNECTED) {
+                if (!connectionState.onConnected(device)) {
+                    return;
+                }
+                motionCoalescer.clear();
+                resetKeyboardState();
+                // 新连接总是从报告协议开始，主机需要启动协议时会重新发送 SET_PROTOCOL；分辨率倍增随之清零，由主机重新协商
+                applyProtocol(false);
+                metrics.reset();
+                reportSender.start();
+                reconnectManager.onConnected(device.getAddress());
                 Log.d(TAG, "设备已连接: " + device.getName());
                 callback.onDeviceConnected();
-            } else if (!isConnected && wasConnected) {
-                connectedDevice = null;
+            } else if (state == BluetoothProfile.STATE_DISCONNECTED) {
+                if (!connectionState.onDisconnected()) {
+                    return;
+                }
+                reportSender.stop();
+                reconnectManager.onDisconnected();
                 Log.d(TAG, "设备已断开: " + device.getName());
+                Log.i(TAG, dumpMetrics());
                 callback.onDeviceDisconnected();
             }
         }
 
-        @Override
-        public void onGetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, int bufferSize) {
-            Log.d(TAG, "收到获取报告请求");
-            // 处理获取报告请求
+        private void handleGetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, int bufferSize) {
+            Log.d(TAG, "收到获取报告请求: type=" + type + " id=" + id);
+            BluetoothHidDevice hidDevice = bluetoothHidDevice;
+            if (hidDevice == null) {
+                return;
+            }
+            HidDescriptor registered = descriptor;
+            byte[] input;
+            if (type == BluetoothHidDevice.REPORT_TYPE_FEATURE && registered.getFeatureReportLength(id) > 0) {
+                // 回复当前的分辨率倍增设置
+                hidDevice.replyReport(device, type, id, new byte[]{resolutionMultiplierFeature});
+            } else if (type == BluetoothHidDevice.REPORT_TYPE_INPUT && (input = inputReportCache.get(id & 0xFF)) != null) {
+                // 缓存中的快照不会被修改，无需加锁或复制；主机缓冲区较小时截断
+                hidDevice.replyReport(device, type, id,
+                        bufferSize > 0 && bufferSize < input.length ? Arrays.copyOf(input, bufferSize) : input);
+            } else if (type == BluetoothHidDevice.REPORT_TYPE_INPUT) {
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_INVALID_RPT_ID);
+            } else {
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_UNSUPPORTED_REQ);
+            }
         }
 
-        @Override
-        public void onSetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, byte[] data) {
-            Log.d(TAG, "收到设置报告请求");
-            // 处理设置报告请求
+        private void handleSetReport(android.bluetooth.BluetoothDevice device, byte type, byte id, byte[] data) {
+            Log.d(TAG, "收到设置报告请求: type=" + type + " id=" + id);
+            BluetoothHidDevice hidDevice = bluetoothHidDevice;
+            if (hidDevice == null) {
+                return;
+            }
+            HidDescriptor registered = descriptor;
+            if (type == BluetoothHidDevice.REPORT_TYPE_FEATURE && registered.getFeatureReportLength(id) > 0
+                    && data != null && data.length >= HidDescriptor.RESOLUTION_MULTIPLIER_FEATURE_LENGTH) {
+                // 主机协商滚轮分辨率倍增
+                setResolutionMultiplierFeature(data[0]);
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_SUCCESS);
+            } else if (type == BluetoothHidDevice.REPORT_TYPE_OUTPUT && registered.getOutputReportLength(id) > 0) {
+                // 键盘 LED 状态（启动协议下使用启动键盘的报告 ID），目前只接受不处理
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_SUCCESS);
+            } else if (registered.getInputReportLength(id) < 0 && registered.getOutputReportLength(id) < 0
+                    && registered.getFeatureReportLength(id) < 0) {
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_INVALID_RPT_ID);
+            } else {
+                hidDevice.reportError(device, BluetoothHidDevice.ERROR_RSP_UNSUPPORTED_REQ);
+            }
         }
 
-        @Override
-        public void onVirtualCableUnplug(android.bluetooth.BluetoothDevice device) {
-            Log.d(TAG, "虚拟电缆已拔出");
-            // 处理虚拟电缆拔出
+        private void handleSetProtocol(byte protocol) {
+            boolean boot = protocol == BluetoothHidDevice.PROTOCOL_BOOT_MODE;
+            Log.d(TAG, "主机切换协议模式: " + (boot ? "启动协议" : "报告协议"));
+            applyProtocol(boot);
+        }
+
+        private void handleVirtualCableUnplug(android.bluetooth.BluetoothDevice device) {
+            Log.d(TAG, "虚拟电缆已拔出: " + device.getAddress());
+            // 主机删除了配对：丢弃未发送的数据并释放所有按键，不再回连这台主机
+            // 同时离开已连接状态，之后的 send* 直接返回 false，随后到达的断开回调不再重复处理
+            boolean wasConnected = connectionState.onDisconnected();
+            reportSender.stop();
+            motionCoalescer.clear();
+            resetKeyboardState();
+            reconnectManager.onDisconnected();
+            reconnectManager.forget(device.getAddress());
+            if (wasConnected) {
+                callback.onDeviceDisconnected();
+            }
         }
     };
 
@@ -222,44 +454,337 @@ public class BluetoothHidService {
         return sendMouseReport(buttons, deltaX, deltaY, (byte)0);
     }
 
-    @SuppressLint("MissingPermission")
+    // 将鼠标报告放入发送队列，返回值表示是否成功入队（实际发送在发送线程中完成）
     public boolean sendMouseReport(byte buttons, byte deltaX, byte deltaY, byte scroll) {
-        // 快速状态检查，减少日志输出
-        if (bluetoothHidDevice == null || !isRegistered || !isConnected || connectedDevice == null) {
+        return sendMouseMovement(buttons, deltaX, deltaY, scroll);
+    }
+
+    // 发送滚轮与水平滚动，单位为当前分辨率倍增下的计数（见 getWheelCountsPerDetent）
+    public boolean sendMouseScroll(int wheel, int pan) {
+        if (!connectionState.isConnected()) {
+            return false;
+        }
+        // 滚动不改变按钮状态，拖动过程中滚动不会松开按钮
+        metrics.onMotionSubmitted();
+        boolean accepted = motionCoalescer.addScroll(wheel, pan);
+        reportSender.signal();
+        return accepted;
+    }
+
+    // 16 位位移，注册了 16 位描述符时无需拆分
+    public boolean sendMouseReport(byte buttons, short deltaX, short deltaY) {
+        return sendMouseReport(buttons, deltaX, deltaY, (byte)0);
+    }
+
+    public boolean sendMouseReport(byte buttons, short deltaX, short deltaY, byte scroll) {
+        return sendMouseMovement(buttons, deltaX, deltaY, scroll);
+    }
+
+    // 发送未截断的相对位移，合并模式下超出报告范围的部分会被拆分到后续报告
+    public boolean sendMouseMovement(byte buttons, int deltaX, int deltaY, int scroll) {
+        // 热路径上的状态检查只读一次 volatile
+        if (!connectionState.isConnected()) {
+            return false;
+        }
+
+        metrics.onMotionSubmitted();
+        // 按钮状态和输入报告缓存只在报告被接受后更新，丢弃的按下/抬起不会让主机查询到未发送的状态
+        if (motionCoalescingEnabled) {
+            boolean accepted = motionCoalescer.add(buttons, deltaX, deltaY, scroll);
+            if (accepted && buttons != mouseButtons) {
+                updateMouseButtons(buttons);
+            }
+            reportSender.signal();
+            return accepted;
+        }
+
+        // 按当前布局把鼠标报告直接编码进发送器的槽位，不分配新数组
+        HidDescriptor registered = descriptor;
+        MouseReportFormat format = registered.getMouseFormat();
+        synchronized (producerLock) {
+            byte[] slot = reportSender.claim();
+            if (slot == null) {
+                return false;
+            }
+            int length = format.encode(slot, buttons, format.clampDelta(deltaX), format.clampDelta(deltaY),
+                    MouseReportFormat.clampWheel(scroll));
+            if (!reportSender.commit(registered.getMouseReportId(), length)) {
+                return false;
+            }
+            if (buttons != mouseButtons) {
+                updateMouseButtons(buttons);
+            }
+            return true;
+        }
+    }
+
+    // 更新一个键盘键（HID 键码，修饰键为 0xE0..0xE7）的按下状态，只有状态变化时才发送报告
+    // 与鼠标位移共用同一个发送线程
+    public boolean sendKeyReport(int usage, boolean pressed) {
+        if (!descriptor.hasKeyboard() || !connectionState.isConnected()) {
+            return false;
+        }
+        synchronized (producerLock) {
+            // 报告内容不变时只记录状态（例如第 7 个以后的键），不占用发送槽位
+            if (!keyboardState.wouldChange(usage, pressed)) {
+                keyboardState.setKey(usage, pressed);
+                return true;
+            }
+            // 先取得槽位再修改按键状态：队列满时状态不变，调用方重试松开时仍会发出报告，按键不会卡在按下
+            byte[] slot = reportSender.claim();
+            if (slot == null) {
+                return false;
+            }
+            keyboardState.setKey(usage, pressed);
+            int length = keyboardState.encode(slot);
+            int reportId = descriptor.getKeyboardReportId();
+            inputReportCache.update(reportId, slot, length);
+            return reportSender.commit(reportId, length);
+        }
+    }
+
+    // 更新媒体键状态，usage 为 Consumer Page 用法码，松开时发送 0
+    public boolean sendConsumerReport(int usage, boolean pressed) {
+        if (!descriptor.hasConsumerControl() || !connectionState.isConnected()) {
             return false;
         }
+        synchronized (producerLock) {
+            int updated = pressed ? usage : (consumerUsage == usage ? 0 : consumerUsage);
+            if (updated == consumerUsage) {
+                return true;
+            }
+            // 与键盘相同，入队成功后才更新状态
+            byte[] slot = reportSender.claim();
+            if (slot == null) {
+                return false;
+            }
+            consumerUsage = updated;
+            slot[0] = (byte) updated;
+            slot[1] = (byte) (updated >> 8);
+            inputReportCache.update(HidDescriptor.CONSUMER_REPORT_ID, slot, HidDescriptor.CONSUMER_REPORT_LENGTH);
+            return reportSender.commit(HidDescriptor.CONSUMER_REPORT_ID, HidDescriptor.CONSUMER_REPORT_LENGTH);
+        }
+    }
+
+    // 在发送线程上延迟执行 task（例如手势的按钮释放），与报告发送串行，不需要额外的 Handler 或线程
+    // 未连接时返回 false；新的任务取代尚未执行的上一个
+    public boolean scheduleOnSenderThread(Runnable task, long delayMs) {
+        return reportSender.schedule(task, TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+
+    // 在发送线程上按固定间隔执行帧回调，直到回调返回 false；替换之前的帧回调
+    public boolean startFramesOnSenderThread(HidReportSender.FrameCallback callback, long intervalMs) {
+        return reportSender.startFrames(callback, TimeUnit.MILLISECONDS.toNanos(intervalMs));
+    }
+
+    // 按下后立即松开一个媒体键
+    public boolean sendConsumerKey(int usage) {
+        return sendConsumerReport(usage, true) && sendConsumerReport(usage, false);
+    }
+
+    private void resetKeyboardState() {
+        synchronized (producerLock) {
+            keyboardState.releaseAll();
+            consumerUsage = 0;
+            mouseButtons = 0;
+            HidDescriptor layout = descriptor;
+            inputReportCache.setMouseButtons(layout, (byte) 0);
+            if (layout.hasKeyboard()) {
+                inputReportCache.clear(layout.getKeyboardReportId());
+            }
+            inputReportCache.clear(HidDescriptor.CONSUMER_REPORT_ID);
+        }
+    }
 
-        // 构造鼠标报告 (4字节：按钮、X位移、Y位移、滚轮)
-        byte[] report = {buttons, deltaX, deltaY, scroll};
-        
-        // 直接发送，移除调试日志以提高性能
-        boolean result = bluetoothHidDevice.sendReport(connectedDevice, 0, report);
-        if (!result) {
-            // 只在失败时尝试备用reportId，减少不必要的尝试
-            result = bluetoothHidDevice.sendReport(connectedDevice, 1, report);
+    private void updateMouseButtons(byte buttons) {
+        synchronized (producerLock) {
+            mouseButtons = buttons;
+            inputReportCache.setMouseButtons(descriptor, buttons);
         }
-        
-        return result;
+    }
+
+    // 按协议模式切换报告布局：启动协议使用固定的报告 ID 和 3 字节鼠标报告，描述符不需要重新注册
+    // 未发送的位移按旧布局累加，切换时丢弃；按键状态保留并按新布局写入缓存
+    private void applyProtocol(boolean boot) {
+        synchronized (producerLock) {
+            HidDescriptor layout = registeredDescriptor.withBootProtocol(boot);
+            descriptor = layout;
+            motionCoalescer.setFormat(layout.getMouseFormat());
+            reportSender.setReportSource(layout.getMouseReportId(), motionCoalescer::poll);
+            inputReportCache.reset(layout);
+            inputReportCache.setMouseButtons(layout, mouseButtons);
+            if (layout.hasKeyboard()) {
+                byte[] keys = new byte[KeyboardReportState.REPORT_LENGTH];
+                int length = keyboardState.encode(keys);
+                inputReportCache.update(layout.getKeyboardReportId(), keys, length);
+            }
+            // 启动协议没有媒体键报告，切换后按已松开处理
+            consumerUsage = 0;
+        }
+        // 启动协议报告没有滚轮，分辨率倍增随之失效，回到报告协议后由主机重新协商
+        setResolutionMultiplierFeature((byte) 0);
+        Log.d(TAG, "报告布局: " + descriptor);
+    }
+
+    // 发送线程中执行的实际发送，可能阻塞在 binder 调用上
+    @SuppressLint("MissingPermission")
+    private boolean transmitReport(int reportId, byte[] report) {
+        BluetoothHidDevice hidDevice = bluetoothHidDevice;
+        android.bluetooth.BluetoothDevice device = connectionState.getConnectedHost();
+        if (hidDevice == null || device == null) {
+            return false;
+        }
+
+        // reportId 来自已注册的描述符，失败时交给发送器的退避策略处理，不换 ID 重试
+        return hidDevice.sendReport(device, reportId, report);
     }
 
     @SuppressLint("MissingPermission")
     public void stopHidService() {
-        if (bluetoothHidDevice != null && isRegistered) {
-            bluetoothHidDevice.unregisterApp();
+        reconnectManager.cancel();
+        reportSender.stop();
+        HidConnectionState.Phase previous = connectionState.reset();
+        BluetoothHidDevice hidDevice = bluetoothHidDevice;
+        if (hidDevice != null && (previous == HidConnectionState.Phase.REGISTERED
+                || previous == HidConnectionState.Phase.CONNECTED)) {
+            hidDevice.unregisterApp();
         }
-        if (bluetoothAdapter != null) {
-            bluetoothAdapter.closeProfileProxy(BluetoothProfile.HID_DEVICE, bluetoothHidDevice);
+        if (bluetoothAdapter != null && hidDevice != null) {
+            bluetoothAdapter.closeProfileProxy(BluetoothProfile.HID_DEVICE, hidDevice);
         }
-        isRegistered = false;
         bluetoothHidDevice = null;
     }
 
+    // 服务对象不再使用时调用，结束调度线程和回调线程
+    // 注销后仍会收到异步的 HID 回调：先停止回调线程并等待已排队的报告请求执行完，之后到达的由拒绝策略丢弃；
+    // 最后关闭调度线程，尚未处理的状态回调随之取消，之后到达的由 EventBatcher 丢弃
+    public void release() {
+        stopHidService();
+        callbackExecutor.shutdown();
+        try {
+            if (!callbackExecutor.awaitTermination(CALLBACK_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "HID 回调线程未能在 " + CALLBACK_DRAIN_TIMEOUT_MS + "ms 内结束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+    }
+
+    // 与回连、超时共用的调度线程，供前台服务合并界面通知
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    // 报告请求回调队列满被丢弃的次数
+    public long getCallbackOverflowCount() {
+        return callbackOverflowCount.get();
+    }
+
+    public HostReconnectManager getReconnectManager() {
+        return reconnectManager;
+    }
+
     public boolean isRegistered() {
-        return isRegistered;
+        return connectionState.isRegistered();
     }
 
     public boolean isConnected() {
-        return isConnected;
+        return connectionState.isConnected();
+    }
+
+    public HidConnectionState.Phase getConnectionPhase() {
+        return connectionState.getPhase();
+    }
+
+    public HidReportSender getReportSender() {
+        return reportSender;
+    }
+
+    public MotionCoalescer getMotionCoalescer() {
+        return motionCoalescer;
+    }
+
+    public void setMotionCoalescingEnabled(boolean enabled) {
+        motionCoalescingEnabled = enabled;
+    }
+
+    // 位移报告的固定发送节拍（毫秒），0 表示有数据就立即发送；立即生效，对之后的连接保持
+    public void setReportPeriodMs(int periodMs) {
+        reportSender.setReportPeriod(TimeUnit.MILLISECONDS.toNanos(periodMs));
+    }
+
+    public int getReportPeriodMs() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(reportSender.getReportPeriodNanos());
+    }
+
+    // 选择 16 位 X/Y 描述符，在下一次注册 HID 应用时生效
+    public void setHighResolutionMotion(boolean enabled) {
+        highResolutionRequested = enabled;
+    }
+
+    // 选择鼠标 + 键盘 + 媒体键组合描述符，在下一次注册 HID 应用时生效
+    public void setCompositeDevice(boolean enabled) {
+        compositeRequested = enabled;
+    }
+
+    public boolean isCompositeRegistered() {
+        return descriptor.isComposite();
+    }
+
+    public HidDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    public ReportSendBackoff getSendBackoff() {
+        return sendBackoff;
+    }
+
+    public ReportRateController getRateController() {
+        return rateController;
+    }
+
+    public HidMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 当前连接（或上一次连接）的指标报告
+    public String dumpMetrics() {
+        return metrics.dump() + "连续失败=" + sendBackoff.getConsecutiveFailures()
+                + " 退避次数=" + sendBackoff.getBackoffCount()
+                + String.format(" 报告速率=%.0f/s 发送耗时=%.2fms 失败率=%.1f%% 减速次数=%d",
+                        rateController.getRate(), rateController.getSmoothedLatencyNanos() / 1_000_000.0,
+                        rateController.getFailureRate() * 100, rateController.getDecreaseCount())
+                + " 回调队列溢出=" + callbackOverflowCount.get() + "\n";
+    }
+
+    // 选择高精度滚轮 + 水平滚动描述符，在下一次注册 HID 应用时生效
+    public void setSmoothScrolling(boolean enabled) {
+        smoothScrollRequested = enabled;
+    }
+
+    // 每格滚轮对应的计数：主机启用分辨率倍增前为 1
+    public int getWheelCountsPerDetent() {
+        return (resolutionMultiplierFeature & 0x03) != 0 ? HidDescriptor.WHEEL_RESOLUTION_MULTIPLIER : 1;
+    }
+
+    // 每格水平滚动对应的计数
+    public int getPanCountsPerDetent() {
+        return (resolutionMultiplierFeature & 0x0C) != 0 ? HidDescriptor.WHEEL_RESOLUTION_MULTIPLIER : 1;
+    }
+
+    private void setResolutionMultiplierFeature(byte value) {
+        int previous = getWheelCountsPerDetent();
+        resolutionMultiplierFeature = (byte) (value & 0x0F);
+        int current = getWheelCountsPerDetent();
+        Log.d(TAG, "分辨率倍增设置: " + resolutionMultiplierFeature);
+        if (current != previous) {
+            callback.onScrollResolutionChanged(current);
+        }
+    }
+
+    public MouseReportFormat getReportFormat() {
+        return descriptor.getMouseFormat();
     }
 
 }
@@ -0,0 +1,237 @@
+package com.example.bt_input;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.function.Consumer;
+
+// 前台服务：持有 BluetoothHidService，使 profile 代理、HID 应用注册和主机连接在界面进入后台后保持不变
+//
+// 生命周期：
+//   start()  以前台服务启动并注册 HID 应用，之后即使界面解绑服务也继续运行
+//   stop()   注销 HID 应用，退出前台并停止服务；通知栏上的"停止"按钮效果相同
+// 界面通过 bindService 获取 LocalBinder，作为客户端接收 HidServiceCallback 回调，解绑后回调被丢弃
+public class HidForegroundService extends Service implements BluetoothHidService.HidServiceCallback {
+    private static final String TAG = "HidForegroundService";
+
+    private static final String ACTION_START = "com.example.bt_input.action.START_HID";
+    private static final String ACTION_STOP = "com.example.bt_input.action.STOP_HID";
+    private static final String NOTIFICATION_CHANNEL_ID = "hid_link";
+    private static final int NOTIFICATION_ID = 1;
+    // 界面通知的最小间隔
+    private static final long CLIENT_EVENT_INTERVAL_MS = 100;
+
+    public class LocalBinder extends Binder {
+        public HidForegroundService getService() {
+            return HidForegroundService.this;
+        }
+    }
+
+    private final LocalBinder binder = new LocalBinder();
+    private BluetoothHidService hidService;
+    // 当前绑定的界面，只在主线程上被回调
+    private volatile BluetoothHidService.HidServiceCallback client;
+    private boolean foreground = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private EventBatcher clientEvents;
+
+    // 以前台服务启动并注册 HID 应用
+    public static void start(Context context) {
+        Intent intent = new Intent(context, HidForegroundService.class).setAction(ACTION_START);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    // 注销 HID 应用并停止服务
+    public static void stop(Context context) {
+        Intent intent = new Intent(context, HidForegroundService.class).setAction(ACTION_STOP);
+        context.startService(intent);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        hidService = new BluetoothHidService(getApplicationContext(), this);
+        clientEvents = new EventBatcher(hidService.getScheduler(), CLIENT_EVENT_INTERVAL_MS,
+                batch -> mainHandler.post(() -> {
+                    for (Runnable event : batch) {
+                        event.run();
+                    }
+                }));
+        createNotificationChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_STOP.equals(action)) {
+            hidService.stopHidService();
+            leaveForeground();
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        // startForegroundService 之后必须尽快进入前台
+        enterForeground("正在启动HID服务...");
+        if (hidService.getConnectionPhase() == HidConnectionState.Phase.IDLE) {
+            hidService.startHidService();
+        }
+        // 被系统杀掉后不自动重启，重新注册需要用户在界面上操作
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        client = null;
+        return false;
+    }
+
+    @Override
+    public void onDestroy() {
+        Log.d(TAG, "前台服务销毁");
+        hidService.release();
+        mainHandler.removeCallbacksAndMessages(null);
+        client = null;
+        super.onDestroy();
+    }
+
+    public BluetoothHidService getHidService() {
+        return hidService;
+    }
+
+    public void setClient(BluetoothHidService.HidServiceCallback client) {
+        this.client = client;
+    }
+
+    private void enterForeground(String text) {
+        Notification notification = buildNotification(text);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        foreground = true;
+    }
+
+    private void leaveForeground() {
+        if (foreground) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            foreground = false;
+        }
+    }
+
+    private void leaveForegroundAndStop() {
+        leaveForeground();
+        stopSelf();
+    }
+
+    private void updateNotification(String text) {
+        if (!foreground) {
+            return;
+        }
+        NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        manager.notify(NOTIFICATION_ID, buildNotification(text));
+    }
+
+    private void createNotificationChannel() {
+        NotificationChannel channel = new NotificationChannel(
+                NOTIFICATION_CHANNEL_ID, "蓝牙鼠标连接", NotificationManager.IMPORTANCE_LOW);
+        NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        manager.createNotificationChannel(channel);
+    }
+
+    private Notification buildNotification(String text) {
+        PendingIntent openIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent stopIntent = PendingIntent.getService(this, 1,
+                new Intent(this, HidForegroundService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        return new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+                .setContentTitle("bt_input 蓝牙鼠标")
+                .setContentText(text)
+                .setContentIntent(openIntent)
+                .addAction(0, "停止", stopIntent)
+                .setOngoing(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+    }
+
+    // HID 服务回调在回调线程上到达，经合并限速后在主线程上更新通知并转发给当前绑定的界面
+    // 同一种回调在一批中只保留最后一次，回连时的回调风暴不会逐个打到界面上
+    private void dispatch(String key, Consumer<BluetoothHidService.HidServiceCallback> event, Runnable onMainThread) {
+        clientEvents.post(key, () -> {
+            if (onMainThread != null) {
+                onMainThread.run();
+            }
+            BluetoothHidService.HidServiceCallback target = client;
+            if (target != null) {
+                event.accept(target);
+            }
+        });
+    }
+
+    @Override
+    public void onServiceConnected() {
+        dispatch("onServiceConnected", BluetoothHidService.HidServiceCallback::onServiceConnected, null);
+    }
+
+    @Override
+    public void onServiceDisconnected() {
+        // 蓝牙关闭等情况下注册已失效，不再占用前台；界面仍绑定时服务继续存在
+        dispatch("onServiceDisconnected", BluetoothHidService.HidServiceCallback::onServiceDisconnected,
+                this::leaveForegroundAndStop);
+    }
+
+    @Override
+    public void onAppRegistered() {
+        dispatch("onAppRegistered", BluetoothHidService.HidServiceCallback::onAppRegistered,
+                () -> updateNotification("等待电脑连接 bt_input"));
+    }
+
+    @Override
+    public void onAppUnregistered() {
+        dispatch("onAppUnregistered", BluetoothHidService.HidServiceCallback::onAppUnregistered, null);
+    }
+
+    @Override
+    public void onDeviceConnected() {
+        dispatch("onDeviceConnected", BluetoothHidService.HidServiceCallback::onDeviceConnected,
+                () -> updateNotification("已连接到电脑"));
+    }
+
+    @Override
+    public void onDeviceDisconnected() {
+        dispatch("onDeviceDisconnected", BluetoothHidService.HidServiceCallback::onDeviceDisconnected,
+                () -> updateNotification("等待电脑连接 bt_input"));
+    }
+
+    @Override
+    public void onError(String error) {
+        dispatch("onError", target -> target.onError(error), this::leaveForegroundAndStop);
+    }
+
+    @Override
+    public void onScrollResolutionChanged(int countsPerDetent) {
+        dispatch("onScrollResolutionChanged", target -> target.onScrollResolutionChanged(countsPerDetent), null);
+    }
+}
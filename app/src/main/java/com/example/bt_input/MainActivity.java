@@ -2,15 +2,23 @@ package com.example.bt_input; // 确保这是你的包名
 
 import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothAdapter;
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.IBinder;
 import android.os.PowerManager;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.SeekBar;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
@@ -22,14 +30,28 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity implements BluetoothHidService.HidServiceCallback {
 
     private static final String TAG = "MainActivity_BluetoothMouse";
     private static final int DEFAULT_MOUSE_SENSITIVITY = 5; // 默认鼠标灵敏度
     private static final int DEFAULT_CLICK_SENSITIVITY = 5; // 默认点击灵敏度
+    // 报告发送节拍选项（与 R.array.report_periods 对应），0 表示有数据就立即发送
+    private static final int[] REPORT_PERIODS_MS = {0, 4, 8};
+    // 随机滑动的推进间隔
+    private static final long RANDOM_MOVE_TICK_MS = 8;
 
     private View touchpadView;
     private View scrollWheelView;
@@ -41,32 +63,96 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
     private SeekBar seekBarClickSensitivity;
     private TextView textViewMouseSensitivity;
     private TextView textViewClickSensitivity;
+    private Spinner spinnerAccelerationCurve;
+    private EditText editTextLookupTable;
+    private Button buttonApplyLookupTable;
+    private Spinner spinnerReportPeriod;
+    private SeekBar seekBarPrediction;
+    private TextView textViewPrediction;
+    private SeekBar seekBarJitterCutoff;
+    private TextView textViewJitterCutoff;
+    private SeekBar seekBarJitterBeta;
+    private TextView textViewJitterBeta;
+    private CheckBox checkBoxHighResolution;
+    private CheckBox checkBoxSmoothScroll;
+    private CheckBox checkBoxCompositeDevice;
+    private CheckBox checkBoxRecordTrace;
+    private CheckBox checkBoxDragLock;
+    private CheckBox checkBoxUnbufferedDispatch;
+    // 当前手势是否为无缓冲分发，在 ACTION_DOWN 时确定
+    private boolean touchpadUnbuffered = false;
+    private boolean scrollWheelUnbuffered = false;
+    private Button buttonVolumeDown;
+    private Button buttonPlayPause;
+    private Button buttonVolumeUp;
 
     // 灵敏度设置
     private int mouseSensitivity = DEFAULT_MOUSE_SENSITIVITY;
     private int clickSensitivity = DEFAULT_CLICK_SENSITIVITY;
 
-    private float lastTouchX;
-    private float lastTouchY;
-    private float initialTouchX;
-    private float initialTouchY;
-    private long touchStartTime;
+    // 触摸板位移处理（逐个处理历史采样）
+    private TouchMotionProcessor touchMotionProcessor;
+    // 触摸板手势识别（点击、拖动、多指点击），识别后把采样转发给位移处理器
+    private TouchGestureRecognizer gestureRecognizer;
     
     // 滚轮相关变量
-    private float lastScrollY;
-    private int scrollAccumulator = 0;
+    private ScrollMotionProcessor scrollMotionProcessor;
+    // 触摸板双指滚动（纵向 + 横向）
+    private ScrollMotionProcessor touchpadScrollProcessor;
+    // 惯性滚动：帧在发送线程上执行，滚轮条和双指滚动共用
+    private KineticScroller kineticScroller;
+
+    // 触摸轨迹录制：录制时触摸事件先经过记录器再交给处理器
+    private TouchTrace touchTrace;
+    private TouchSampleListener touchpadListener;
+    private TouchSampleListener scrollWheelListener;
     
     // 随机滑动相关变量
     private boolean isRandomMoving = false;
-    private Thread randomMoveThread;
+    private ScheduledFuture<?> randomMoveTask;
     
     // 防止息屏相关变量
     private PowerManager.WakeLock wakeLock;
 
     // 蓝牙HID相关变量
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothHidService hidService;
-    private boolean isHidRegistered = false;
+    // HID 服务由前台服务持有，界面绑定后才可用，解绑前可能为 null；随机移动线程也会读取
+    // 注册/连接状态统一由服务的状态机提供，界面不再另存一份
+    private volatile BluetoothHidService hidService;
+    private HidForegroundService hidForegroundService;
+    private boolean hidServiceBound = false;
+
+    private final ServiceConnection hidServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            hidForegroundService = ((HidForegroundService.LocalBinder) service).getService();
+            hidService = hidForegroundService.getHidService();
+            hidForegroundService.setClient(MainActivity.this);
+            Log.d(TAG, "已绑定前台HID服务");
+            applyHidSettings();
+            syncHidState();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // 只有服务进程意外结束时才会走到这里
+            Log.w(TAG, "前台HID服务意外断开");
+            hidForegroundService = null;
+            hidService = null;
+            MainActivity.this.onServiceDisconnected();
+        }
+    };
+
+    // 指标叠加层
+    private static final long METRICS_OVERLAY_INTERVAL_MS = 500;
+    private HidMetrics.Snapshot lastMetricsSnapshot;
+    private final Runnable metricsOverlayUpdater = new Runnable() {
+        @Override
+        public void run() {
+            updateMetricsOverlay();
+            textViewCoordinates.postDelayed(this, METRICS_OVERLAY_INTERVAL_MS);
+        }
+    };
 
     // 权限请求启动器
     private ActivityResultLauncher<String[]> permissionLauncher;
@@ -82,8 +168,17 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
         // 初始化蓝牙适配器
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
 
-        // 初始化HID服务
-        hidService = new BluetoothHidService(this, this);
+        touchMotionProcessor = new TouchMotionProcessor(this::sendHidMouseMovement);
+        gestureRecognizer = new TouchGestureRecognizer(gestureOutput, touchMotionProcessor);
+        kineticScroller = new KineticScroller(this::sendHidMouseScroll, this::requestKineticFrames);
+        scrollMotionProcessor = new ScrollMotionProcessor(this::sendHidMouseScroll);
+        scrollMotionProcessor.setKineticScroller(kineticScroller);
+        touchpadScrollProcessor = new ScrollMotionProcessor(this::sendHidMouseScroll);
+        touchpadScrollProcessor.setHorizontalScroll(true);
+        touchpadScrollProcessor.setKineticScroller(kineticScroller);
+        gestureRecognizer.setScrollListener(touchpadScrollProcessor);
+        touchpadListener = gestureRecognizer;
+        scrollWheelListener = scrollMotionProcessor;
 
         // 初始化WakeLock
         PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
@@ -103,6 +198,25 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
         seekBarClickSensitivity = findViewById(R.id.seekBarClickSensitivity);
         textViewMouseSensitivity = findViewById(R.id.textViewMouseSensitivity);
         textViewClickSensitivity = findViewById(R.id.textViewClickSensitivity);
+        spinnerAccelerationCurve = findViewById(R.id.spinnerAccelerationCurve);
+        editTextLookupTable = findViewById(R.id.editTextLookupTable);
+        buttonApplyLookupTable = findViewById(R.id.buttonApplyLookupTable);
+        spinnerReportPeriod = findViewById(R.id.spinnerReportPeriod);
+        seekBarPrediction = findViewById(R.id.seekBarPrediction);
+        textViewPrediction = findViewById(R.id.textViewPrediction);
+        seekBarJitterCutoff = findViewById(R.id.seekBarJitterCutoff);
+        textViewJitterCutoff = findViewById(R.id.textViewJitterCutoff);
+        seekBarJitterBeta = findViewById(R.id.seekBarJitterBeta);
+        textViewJitterBeta = findViewById(R.id.textViewJitterBeta);
+        checkBoxHighResolution = findViewById(R.id.checkBoxHighResolution);
+        checkBoxSmoothScroll = findViewById(R.id.checkBoxSmoothScroll);
+        checkBoxCompositeDevice = findViewById(R.id.checkBoxCompositeDevice);
+        checkBoxRecordTrace = findViewById(R.id.checkBoxRecordTrace);
+        checkBoxDragLock = findViewById(R.id.checkBoxDragLock);
+        checkBoxUnbufferedDispatch = findViewById(R.id.checkBoxUnbufferedDispatch);
+        buttonVolumeDown = findViewById(R.id.buttonVolumeDown);
+        buttonPlayPause = findViewById(R.id.buttonPlayPause);
+        buttonVolumeUp = findViewById(R.id.buttonVolumeUp);
 
         // 设置 WindowInsets
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -111,105 +225,40 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             return insets;
         });
 
-        // 设置触摸板的触摸监听器
+        // 设置触摸板的触摸监听器：逐个处理批量的历史采样，点击与拖动由手势识别按事件时间判断
         touchpadView.setOnTouchListener(new View.OnTouchListener() {
             @Override
             public boolean onTouch(View v, MotionEvent event) {
-                int action = event.getActionMasked();
-
-                switch (action) {
-                    case MotionEvent.ACTION_DOWN:
-                        // 记录初始触摸点和时间
-                        lastTouchX = event.getX();
-                        lastTouchY = event.getY();
-                        initialTouchX = lastTouchX;
-                        initialTouchY = lastTouchY;
-                        touchStartTime = System.currentTimeMillis();
-                        // 移除调试日志以提高性能
-                        return true;
-
-                    case MotionEvent.ACTION_MOVE:
-                        float currentX = event.getX();
-                        float currentY = event.getY();
-
-                        // 计算相对位移 (deltaX, deltaY)
-                        float deltaX = currentX - lastTouchX;
-                        float deltaY = currentY - lastTouchY;
-
-                        // 更新上一次的触摸点
-                        lastTouchX = currentX;
-                        lastTouchY = currentY;
-
-                        // 直接发送HID鼠标移动数据，跳过UI更新以减少延迟
-                        if (isHidRegistered) {
-                            sendHidMouseMovement(deltaX, deltaY);
-                        }
-
-                        return true;
-
-                    case MotionEvent.ACTION_UP:
-                        // 检测是否为点击（基于点击灵敏度）
-                        if (isHidRegistered && isClickDetected()) {
-                            sendHidMouseClick();
-                        }
-                        return true;
-
-                    case MotionEvent.ACTION_CANCEL:
-                        return true;
-
-                    default:
-                        return false;
+                // 任何新的触摸都停止惯性滚动
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                    kineticScroller.cancel();
+                    touchpadUnbuffered = checkBoxUnbufferedDispatch.isChecked()
+                            && MotionEventIngest.requestUnbufferedDispatch(v, event);
                 }
+                recordInputLatency(event, touchpadUnbuffered);
+                return MotionEventIngest.dispatch(event, touchpadListener);
             }
         });
 
-        // 设置滚轮的触摸监听器
+        // 设置滚轮的触摸监听器，余量累加与触摸板共用同一机制
         scrollWheelView.setOnTouchListener(new View.OnTouchListener() {
             @Override
             public boolean onTouch(View v, MotionEvent event) {
-                int action = event.getActionMasked();
-
-                switch (action) {
-                    case MotionEvent.ACTION_DOWN:
-                        lastScrollY = event.getY();
-                        scrollAccumulator = 0;
-                        return true;
-
-                    case MotionEvent.ACTION_MOVE:
-                        float currentY = event.getY();
-                        float deltaY = lastScrollY - currentY; // 向上为正，向下为负
-                        
-                        // 简化累积滚动值计算
-                        scrollAccumulator += (int)(deltaY * mouseSensitivity);
-                        
-                        // 降低阈值，提高响应性
-                        if (Math.abs(scrollAccumulator) >= 10) {
-                            int scrollSteps = scrollAccumulator / 10;
-                            scrollAccumulator = scrollAccumulator % 10;
-                            
-                            if (isHidRegistered && scrollSteps != 0) {
-                                // 直接发送，移除不必要的方法调用
-                                hidService.sendMouseReport((byte)0, (byte)0, (byte)0, (byte)scrollSteps);
-                            }
-                        }
-                        
-                        lastScrollY = currentY;
-                        return true;
-
-                    case MotionEvent.ACTION_UP:
-                        scrollAccumulator = 0;
-                        return true;
-
-                    case MotionEvent.ACTION_CANCEL:
-                        scrollAccumulator = 0;
-                        return true;
-
-                    default:
-                        return false;
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                    scrollWheelUnbuffered = checkBoxUnbufferedDispatch.isChecked()
+                            && MotionEventIngest.requestUnbufferedDispatch(v, event);
                 }
+                recordInputLatency(event, scrollWheelUnbuffered);
+                return MotionEventIngest.dispatch(event, scrollWheelListener);
             }
         });
 
+        // 长按指标叠加层导出本次会话的指标
+        textViewCoordinates.setOnLongClickListener(v -> {
+            dumpMetricsToFile();
+            return true;
+        });
+
         // 设置灵敏度控制
         setupSensitivityControls();
 
@@ -217,7 +266,7 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
         buttonConnect.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (!isHidRegistered) {
+                if (!isHidRegistered()) {
                     startHidService();
                 } else {
                     stopHidService();
@@ -244,6 +293,9 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             return;
         }
 
+        // 绑定前台HID服务；若服务已在运行（从后台返回或重建界面），注册和主机连接保持不变
+        hidServiceBound = bindService(new Intent(this, HidForegroundService.class), hidServiceConnection, BIND_AUTO_CREATE);
+
         // 检查蓝牙权限
         checkBluetoothPermissions();
     }
@@ -254,6 +306,9 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 mouseSensitivity = progress;
+                touchMotionProcessor.setSensitivity(progress);
+                scrollMotionProcessor.setSensitivity(progress);
+                touchpadScrollProcessor.setSensitivity(progress);
                 textViewMouseSensitivity.setText(String.valueOf(progress));
                 Log.d(TAG, "鼠标灵敏度设置为: " + progress);
             }
@@ -265,11 +320,135 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             public void onStopTrackingTouch(SeekBar seekBar) {}
         });
 
+        // 指针加速曲线选择
+        spinnerAccelerationCurve.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                applyAccelerationCurve(position);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+        editTextLookupTable.setText(AccelerationCurves.DEFAULT_LOOKUP_TABLE);
+        // 修改查找表后点击应用；当前不是自定义查找表时一并切换过去
+        buttonApplyLookupTable.setOnClickListener(v -> {
+            spinnerAccelerationCurve.setSelection(AccelerationCurves.TYPE_LOOKUP_TABLE);
+            applyAccelerationCurve(AccelerationCurves.TYPE_LOOKUP_TABLE);
+        });
+
+        // 报告发送节拍：固定节拍时两次发送之间的位移、滚轮和按钮变化合并到下一个节拍，立即生效
+        spinnerReportPeriod.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (hidService != null) {
+                    hidService.setReportPeriodMs(REPORT_PERIODS_MS[position]);
+                }
+                Log.d(TAG, "报告发送节拍设置为: " + REPORT_PERIODS_MS[position] + "ms");
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
+        // 运动预测：把光标外推若干毫秒补偿链路延迟，抬起时撤回
+        seekBarPrediction.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                touchMotionProcessor.getPredictor().setLookaheadMs(progress);
+                textViewPrediction.setText(String.valueOf(progress));
+                Log.d(TAG, "运动预测设置为: " + progress + "ms");
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
+
+        // 防抖：One Euro 滤波的最低截止频率（0 为关闭）和速度响应系数（滑块每格 0.001）
+        seekBarJitterCutoff.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                touchMotionProcessor.getJitterFilter().setMinCutoffHz(progress);
+                textViewJitterCutoff.setText(String.valueOf(progress));
+                Log.d(TAG, "防抖最低截止频率设置为: " + progress + "Hz");
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
+
+        seekBarJitterBeta.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                float beta = progress / 1000f;
+                touchMotionProcessor.getJitterFilter().setBeta(beta);
+                textViewJitterBeta.setText(String.format(Locale.ROOT, "%.3f", beta));
+                Log.d(TAG, "防抖速度响应设置为: " + beta);
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
+
+        // 16位X/Y描述符，在注册HID应用时选择
+        checkBoxHighResolution.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (hidService != null) {
+                hidService.setHighResolutionMotion(isChecked);
+            }
+            Log.d(TAG, "16位高精度位移: " + isChecked);
+        });
+
+        // 高精度滚轮（分辨率倍增）与水平滚动描述符，在注册HID应用时选择
+        checkBoxSmoothScroll.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (hidService != null) {
+                hidService.setSmoothScrolling(isChecked);
+            }
+            Log.d(TAG, "高精度滚动: " + isChecked);
+        });
+
+        // 鼠标+键盘+媒体键组合描述符，在注册HID应用时选择
+        checkBoxCompositeDevice.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (hidService != null) {
+                hidService.setCompositeDevice(isChecked);
+            }
+            Log.d(TAG, "组合设备: " + isChecked);
+        });
+
+        // 触摸轨迹录制，用于在 JVM 上回放复现
+        checkBoxRecordTrace.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked) {
+                startTraceRecording();
+            } else {
+                stopTraceRecording();
+            }
+        });
+
+        // 拖动锁定：点击后拖动时抬起手指不松开左键，再点击一下或超时后松开
+        checkBoxDragLock.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            gestureRecognizer.setDragLockEnabled(isChecked);
+            Log.d(TAG, "拖动锁定: " + isChecked);
+        });
+
+        // 媒体键，按下后立即松开
+        buttonVolumeDown.setOnClickListener(v -> sendConsumerKey(BluetoothHidService.CONSUMER_VOLUME_DOWN));
+        buttonPlayPause.setOnClickListener(v -> sendConsumerKey(BluetoothHidService.CONSUMER_PLAY_PAUSE));
+        buttonVolumeUp.setOnClickListener(v -> sendConsumerKey(BluetoothHidService.CONSUMER_VOLUME_UP));
+
         // 点击灵敏度SeekBar
         seekBarClickSensitivity.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 clickSensitivity = progress;
+                applyClickSensitivity();
                 textViewClickSensitivity.setText(String.valueOf(progress));
                 Log.d(TAG, "点击灵敏度设置为: " + progress);
             }
@@ -282,52 +461,133 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
         });
 
         // 设置初始值
+        touchMotionProcessor.setSensitivity(mouseSensitivity);
+        scrollMotionProcessor.setSensitivity(mouseSensitivity);
+        touchpadScrollProcessor.setSensitivity(mouseSensitivity);
+        applyClickSensitivity();
         seekBarMouseSensitivity.setProgress(mouseSensitivity);
         seekBarClickSensitivity.setProgress(clickSensitivity);
         textViewMouseSensitivity.setText(String.valueOf(mouseSensitivity));
         textViewClickSensitivity.setText(String.valueOf(clickSensitivity));
     }
 
-    // 检测是否为点击操作
-    private boolean isClickDetected() {
-        long touchDuration = System.currentTimeMillis() - touchStartTime;
-        float totalMovement = Math.abs(lastTouchX - initialTouchX) + Math.abs(lastTouchY - initialTouchY);
-        
-        // 点击检测参数（基于点击灵敏度）
-        int maxClickDuration = 200 + (10 - clickSensitivity) * 50; // 200ms-700ms
-        float maxClickMovement = 20 + (10 - clickSensitivity) * 10; // 20-120像素
-        
-        boolean isClick = touchDuration <= maxClickDuration && totalMovement <= maxClickMovement;
-        
-        Log.d(TAG, "点击检测: 持续时间=" + touchDuration + "ms, 移动距离=" + totalMovement + 
-              "px, 灵敏度=" + clickSensitivity + ", 判定为点击=" + isClick);
-        
-        return isClick;
+    // 点击判定参数（基于点击灵敏度）
+    private void applyClickSensitivity() {
+        gestureRecognizer.setTapTimeoutMs(200 + (10 - clickSensitivity) * 50); // 200ms-700ms
+        gestureRecognizer.setTapSlop(20 + (10 - clickSensitivity) * 10); // 20-120像素
     }
 
-    // 更新坐标和滚轮显示
-    private void updateCoordinatesDisplay(float deltaX, float deltaY, int scroll) {
-        String coordinatesText = "触摸板: X: " + String.format("%.1f", deltaX) + 
-                               ", Y: " + String.format("%.1f", deltaY) + 
-                               " | 滚轮: " + scroll;
-        
-        if (isHidRegistered) {
-            if (hidService != null && hidService.isConnected()) {
-                coordinatesText += " [已连接]";
+    // 按类型创建加速曲线，自定义查找表取自输入框（留空时使用默认表）；格式错误时提示并保留当前曲线
+    private void applyAccelerationCurve(int type) {
+        String table = editTextLookupTable.getText().toString().trim();
+        try {
+            touchMotionProcessor.setAccelerationCurve(AccelerationCurves.create(type, table.isEmpty() ? null : table));
+            Log.d(TAG, "指针加速曲线设置为: " + type);
+        } catch (IllegalArgumentException e) {
+            editTextLookupTable.setError("查找表格式错误: " + e.getMessage());
+            Log.w(TAG, "无效的加速查找表: " + table);
+        }
+    }
+
+    // 指标叠加层：每 500ms 刷新一次发送速率、端到端延迟和丢弃计数
+    private void updateMetricsOverlay() {
+        if (hidService == null) {
+            return;
+        }
+        HidMetrics.Snapshot snapshot = hidService.getMetrics().snapshot();
+        long reportsPerSecond = lastMetricsSnapshot != null ? snapshot.reportsPerSecondSince(lastMetricsSnapshot) : 0;
+        lastMetricsSnapshot = snapshot;
+
+        String overlayText = "发送: " + reportsPerSecond + "/s"
+                + " | 端到端 p50/p99: " + formatMillis(snapshot.endToEndP50Nanos)
+                + "/" + formatMillis(snapshot.endToEndP99Nanos) + "ms"
+                + "\n触摸输入 p50: " + formatMillis(snapshot.touchIngestP50Nanos) + "ms"
+                + " | binder p99: " + formatMillis(snapshot.binderP99Nanos) + "ms"
+                + " | 失败: " + snapshot.failed
+                + " | 合并: " + snapshot.coalesced
+                + " | 丢弃: " + (snapshot.overflow + snapshot.dropped);
+        if (hidService.getReportPeriodMs() > 0) {
+            overlayText += " | 节拍抖动 p99: " + formatMillis(snapshot.tickJitterP99Nanos) + "ms";
+        }
+        long unbufferedGain = hidService.getMetrics().getUnbufferedGainNanos();
+        if (unbufferedGain != 0) {
+            overlayText += " | 无缓冲节省: " + formatMillis(unbufferedGain) + "ms";
+        }
+        ReportRateController rateController = hidService.getRateController();
+        if (rateController.isThrottled()) {
+            overlayText += " | 限速: " + Math.round(rateController.getRate()) + "/s";
+        }
+
+        if (hidService.isRegistered()) {
+            if (hidService.isConnected()) {
+                overlayText += " [已连接]";
             } else {
-                coordinatesText += " [等待连接]";
+                overlayText += " [等待连接]";
             }
         } else {
-            coordinatesText += " [HID未注册]";
+            overlayText += " [HID未注册]";
         }
-        
-        textViewCoordinates.setText(coordinatesText);
+
+        textViewCoordinates.setText(overlayText);
     }
 
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    private void startTraceRecording() {
+        touchTrace = new TouchTrace();
+        touchpadListener = touchTrace.recorder(TouchTrace.SOURCE_TOUCHPAD, gestureRecognizer);
+        scrollWheelListener = touchTrace.recorder(TouchTrace.SOURCE_SCROLL, scrollMotionProcessor);
+        Log.d(TAG, "开始录制触摸轨迹");
+    }
+
+    // 停止录制并把轨迹保存到应用外部文件目录
+    private void stopTraceRecording() {
+        TouchTrace trace = touchTrace;
+        touchTrace = null;
+        touchpadListener = gestureRecognizer;
+        scrollWheelListener = scrollMotionProcessor;
+        File directory = getExternalFilesDir(null);
+        if (trace == null || trace.size() == 0 || directory == null) {
+            return;
+        }
+        File file = new File(directory, "touch-" + System.currentTimeMillis() + ".bttrace");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            trace.writeTo(out);
+            Log.i(TAG, "触摸轨迹已保存: " + file.getAbsolutePath() + " 记录数: " + trace.size());
+            Toast.makeText(this, "触摸轨迹已保存: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "保存触摸轨迹失败: " + e.getMessage());
+            Toast.makeText(this, "保存触摸轨迹失败", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // 把当前指标写入应用外部文件目录，便于会话结束后用 adb pull 取出
+    private void dumpMetricsToFile() {
+        if (hidService == null) {
+            return;
+        }
+        String dump = hidService.dumpMetrics();
+        Log.i(TAG, dump);
+        File directory = getExternalFilesDir(null);
+        if (directory == null) {
+            Toast.makeText(this, "指标已输出到日志", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File file = new File(directory, "hid-metrics-" + System.currentTimeMillis() + ".txt");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(dump);
+            Toast.makeText(this, "指标已保存: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "保存指标失败: " + e.getMessage());
+            Toast.makeText(this, "保存指标失败", Toast.LENGTH_SHORT).show();
+        }
+    }
 
     // 开始随机移动
     private void startRandomMovement() {
-        if (isRandomMoving || !isHidRegistered || hidService == null || !hidService.isConnected()) {
+        if (isRandomMoving || hidService == null || !hidService.isConnected()) {
             Toast.makeText(this, "请先连接蓝牙鼠标", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -341,53 +601,53 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             Log.d(TAG, "获取WakeLock，防止息屏");
         }
         
-        randomMoveThread = new Thread(new Runnable() {
+        // 在服务的调度线程上按固定节拍推进：每段随机位移在 100-500ms 内均匀分摊到各个节拍，
+        // 报告由发送线程按发送节拍取出，不再由睡眠时长决定发送时刻
+        BluetoothHidService service = hidService;
+        randomMoveTask = service.getScheduler().scheduleAtFixedRate(new Runnable() {
+            private final java.util.Random random = new java.util.Random();
+            private final RemainderAccumulator remainderX = new RemainderAccumulator();
+            private final RemainderAccumulator remainderY = new RemainderAccumulator();
+            private float stepX;
+            private float stepY;
+            private int ticksLeft = 0;
+
             @Override
             public void run() {
-                java.util.Random random = new java.util.Random();
-                
-                while (isRandomMoving) {
-                    try {
-                        // 生成随机的X和Y移动值 (-20到20像素)
-                        int randomX = random.nextInt(41) - 20; // -20 到 20
-                        int randomY = random.nextInt(41) - 20; // -20 到 20
-                        
-                        // 应用灵敏度调节
-                        float deltaX = randomX * mouseSensitivity * 0.8f;
-                        float deltaY = randomY * mouseSensitivity * 0.8f;
-                        
-                        // 确保最小移动阈值
-                        float minMovement = 3.0f;
-                        if (Math.abs(deltaX) < minMovement && Math.abs(deltaY) < minMovement) {
-                            deltaX = deltaX >= 0 ? minMovement : -minMovement;
-                            deltaY = deltaY >= 0 ? minMovement : -minMovement;
-                        }
-                        
-                        // 限制移动范围
-                        deltaX = Math.max(-127, Math.min(127, deltaX));
-                        deltaY = Math.max(-127, Math.min(127, deltaY));
-                        
-                        // 发送鼠标移动数据（不点击）
-                        if (isHidRegistered && hidService != null) {
-                            hidService.sendMouseReport((byte)0, (byte)deltaX, (byte)deltaY);
-                            // 移除UI更新和日志以提高性能
-                        }
-                        
-                        // 随机间隔 (100-500ms)
-                        Thread.sleep(random.nextInt(401) + 100);
-                        
-                    } catch (InterruptedException e) {
-                        Log.d(TAG, "随机移动线程被中断");
-                        break;
-                    } catch (Exception e) {
-                        Log.e(TAG, "随机移动异常: " + e.getMessage());
-                        break;
+                if (!isRandomMoving) {
+                    return;
+                }
+                if (ticksLeft == 0) {
+                    // 生成随机的X和Y移动值 (-20到20像素)
+                    int randomX = random.nextInt(41) - 20; // -20 到 20
+                    int randomY = random.nextInt(41) - 20; // -20 到 20
+
+                    // 应用灵敏度调节
+                    float deltaX = randomX * mouseSensitivity * 0.8f;
+                    float deltaY = randomY * mouseSensitivity * 0.8f;
+
+                    // 确保最小移动阈值
+                    float minMovement = 3.0f;
+                    if (Math.abs(deltaX) < minMovement && Math.abs(deltaY) < minMovement) {
+                        deltaX = deltaX >= 0 ? minMovement : -minMovement;
+                        deltaY = deltaY >= 0 ? minMovement : -minMovement;
                     }
+
+                    // 随机时长 (100-500ms)
+                    ticksLeft = (int) ((random.nextInt(401) + 100) / RANDOM_MOVE_TICK_MS);
+                    stepX = deltaX / ticksLeft;
+                    stepY = deltaY / ticksLeft;
+                }
+                ticksLeft--;
+
+                int moveX = remainderX.add(stepX);
+                int moveY = remainderY.add(stepY);
+                BluetoothHidService current = hidService;
+                if (current != null && (moveX != 0 || moveY != 0)) {
+                    current.sendMouseMovement((byte) 0, moveX, moveY, 0);
                 }
             }
-        });
-        
-        randomMoveThread.start();
+        }, 0, RANDOM_MOVE_TICK_MS, TimeUnit.MILLISECONDS);
         Log.d(TAG, "开始随机移动");
     }
 
@@ -406,13 +666,9 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             Log.d(TAG, "释放WakeLock，恢复正常息屏");
         }
         
-        if (randomMoveThread != null && randomMoveThread.isAlive()) {
-            randomMoveThread.interrupt();
-            try {
-                randomMoveThread.join(1000); // 等待最多1秒
-            } catch (InterruptedException e) {
-                Log.d(TAG, "等待随机移动线程结束时被中断");
-            }
+        if (randomMoveTask != null) {
+            randomMoveTask.cancel(false);
+            randomMoveTask = null;
         }
         
         Log.d(TAG, "停止随机移动");
@@ -425,8 +681,12 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
                 new ActivityResultContracts.RequestMultiplePermissions(),
                 result -> {
                     boolean allGranted = true;
-                    for (Boolean granted : result.values()) {
-                        if (!granted) {
+                    for (Map.Entry<String, Boolean> entry : result.entrySet()) {
+                        // 通知权限只影响前台服务通知是否可见，不影响HID功能
+                        if (android.Manifest.permission.POST_NOTIFICATIONS.equals(entry.getKey())) {
+                            continue;
+                        }
+                        if (!entry.getValue()) {
                             allGranted = false;
                             break;
                         }
@@ -465,6 +725,13 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             permissionsNeeded.add(android.Manifest.permission.ACCESS_FINE_LOCATION);
         }
 
+        // Android 13 起前台服务的通知需要运行时权限
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, android.Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            permissionsNeeded.add(android.Manifest.permission.POST_NOTIFICATIONS);
+        }
+
         if (!permissionsNeeded.isEmpty()) {
             permissionLauncher.launch(permissionsNeeded.toArray(new String[0]));
         } else {
@@ -488,87 +755,136 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
 
         updateConnectionStatus("正在启动HID服务...");
         buttonConnect.setEnabled(false);
-        
-        // 设置15秒超时
-        new Thread(() -> {
-            try {
-                Thread.sleep(15000); // 15秒超时
-                runOnUiThread(() -> {
-                    if (!isHidRegistered && !buttonConnect.isEnabled()) {
-                        Log.w(TAG, "HID服务启动超时，重置状态");
-                        Toast.makeText(MainActivity.this, "HID服务启动超时，请重试", Toast.LENGTH_SHORT).show();
-                        updateConnectionStatus("启动超时，请重试");
-                        buttonConnect.setText("启动蓝牙鼠标服务");
-                        buttonConnect.setEnabled(true);
-                    }
-                });
-            } catch (InterruptedException e) {
-                Log.d(TAG, "超时检查线程被中断");
-            }
-        }).start();
-        
-        hidService.startHidService();
+
+        // 启动超时由服务的状态机在调度线程上检查，超时后通过 onError 恢复按钮
+        // 由前台服务注册HID应用，界面进入后台或被销毁后连接仍然保持
+        HidForegroundService.start(this);
     }
 
     private void stopHidService() {
         updateConnectionStatus("正在停止HID服务...");
         buttonConnect.setEnabled(false);
-        hidService.stopHidService();
+        HidForegroundService.stop(this);
+    }
+
+    // 把界面上的描述符选项同步给服务，在下次注册HID应用时生效
+    private void applyHidSettings() {
+        hidService.setHighResolutionMotion(checkBoxHighResolution.isChecked());
+        hidService.setSmoothScrolling(checkBoxSmoothScroll.isChecked());
+        hidService.setCompositeDevice(checkBoxCompositeDevice.isChecked());
+        hidService.setReportPeriodMs(REPORT_PERIODS_MS[spinnerReportPeriod.getSelectedItemPosition()]);
+    }
+
+    // 重新绑定到已在运行的服务时，按服务的当前状态恢复界面
+    private void syncHidState() {
+        applyScrollResolution();
+        if (!hidService.isRegistered()) {
+            return;
+        }
+        buttonConnect.setText("停止蓝牙鼠标服务");
+        buttonConnect.setEnabled(true);
+        if (hidService.isConnected()) {
+            updateConnectionStatus("已连接到电脑 - 可以使用触摸板了！");
+            buttonRandomMove.setEnabled(true);
+            setMediaButtonsEnabled(hidService.isCompositeRegistered());
+        } else {
+            updateConnectionStatus("蓝牙鼠标已就绪 - 等待电脑连接 bt_input");
+        }
+    }
+
+    // 事件时间与 System.nanoTime() 同为单调时钟，差值即输入到达界面线程的延迟
+    private void recordInputLatency(MotionEvent event, boolean unbuffered) {
+        if (hidService == null) {
+            return;
+        }
+        hidService.getMetrics().onInputEvent(TimeUnit.MILLISECONDS.toNanos(event.getEventTime()),
+                TimeUnit.MILLISECONDS.toNanos(MotionEventIngest.oldestSampleTime(event)), System.nanoTime(), unbuffered);
+    }
+
+    private boolean isHidRegistered() {
+        BluetoothHidService service = hidService;
+        return service != null && service.isRegistered();
     }
 
     private void updateConnectionStatus(String status) {
         textViewStatus.setText(status);
     }
 
-    // 发送HID鼠标移动数据
-    private void sendHidMouseMovement(float deltaX, float deltaY) {
-        if (!isHidRegistered || hidService == null) {
+    private void setMediaButtonsEnabled(boolean enabled) {
+        buttonVolumeDown.setEnabled(enabled);
+        buttonPlayPause.setEnabled(enabled);
+        buttonVolumeUp.setEnabled(enabled);
+    }
+
+    private void sendConsumerKey(int usage) {
+        if (hidService != null) {
+            hidService.sendConsumerKey(usage);
+        }
+    }
+
+    // 发送HID鼠标移动数据（位移已由 TouchMotionProcessor 按灵敏度缩放）
+    private void sendHidMouseMovement(int scaledDeltaX, int scaledDeltaY) {
+        // 未连接时由服务的状态检查直接返回
+        BluetoothHidService service = hidService;
+        if (service == null) {
             return;
         }
 
-        // 简化的灵敏度计算，减少浮点运算
-        int sensitivity = mouseSensitivity;
-        
-        // 直接转换为字节值，减少计算
-        int scaledDeltaX = (int)(deltaX * sensitivity);
-        int scaledDeltaY = (int)(deltaY * sensitivity);
-        
-        // 限制范围
-        scaledDeltaX = Math.max(-127, Math.min(127, scaledDeltaX));
-        scaledDeltaY = Math.max(-127, Math.min(127, scaledDeltaY));
-        
-        // 简化的最小移动阈值
-        if (Math.abs(scaledDeltaX) < 1 && Math.abs(scaledDeltaY) < 1) {
+        // 不再截断到 ±127，超出部分由位移合并器拆分到后续报告；拖动时携带手势按住的按钮
+        service.sendMouseMovement(gestureRecognizer.getButtons(), scaledDeltaX, scaledDeltaY, 0);
+    }
+
+    // 按主机协商的分辨率倍增更新滚动换算
+    private void applyScrollResolution() {
+        BluetoothHidService service = hidService;
+        if (service == null) {
             return;
         }
-        
-        // 直接发送，移除日志以提高性能
-        hidService.sendMouseReport((byte)0, (byte)scaledDeltaX, (byte)scaledDeltaY);
+        int wheel = service.getWheelCountsPerDetent();
+        int pan = service.getPanCountsPerDetent();
+        scrollMotionProcessor.setCountsPerDetent(wheel);
+        touchpadScrollProcessor.setCountsPerDetent(wheel);
+        touchpadScrollProcessor.setPanCountsPerDetent(pan);
+        kineticScroller.setCountsPerDetent(wheel, pan);
     }
 
-    // 发送HID鼠标点击数据
-    private void sendHidMouseClick() {
-        if (!isHidRegistered || hidService == null) {
+    // 发送HID滚轮/水平滚动数据，单位为当前分辨率倍增下的计数
+    private void sendHidMouseScroll(int wheel, int pan) {
+        BluetoothHidService service = hidService;
+        if (service == null) {
             return;
         }
 
-        // 发送按下事件
-        byte leftButtonPressed = 0x01; // 左键按下
-        boolean success1 = hidService.sendMouseReport(leftButtonPressed, (byte)0, (byte)0);
-        
-        // 短暂延迟后发送释放事件
-        new android.os.Handler().postDelayed(() -> {
-            byte noButtons = 0x00; // 无按钮按下
-            boolean success2 = hidService.sendMouseReport(noButtons, (byte)0, (byte)0);
-            
-            if (success1 && success2) {
-                Log.d(TAG, "发送HID点击数据成功");
-            } else {
-                Log.w(TAG, "发送HID点击数据失败");
-            }
-        }, 50); // 50ms延迟
+        service.sendMouseScroll(wheel, pan);
     }
 
+    // 惯性滚动的帧在发送线程上按固定间隔执行，未连接服务时不启动
+    private boolean requestKineticFrames(long intervalMs) {
+        BluetoothHidService service = hidService;
+        return service != null && service.startFramesOnSenderThread(kineticScroller::onFrame, intervalMs);
+    }
+
+    // 手势识别的输出：按钮变化立即发送，延迟的按钮释放在发送线程上执行
+    private final TouchGestureRecognizer.GestureOutput gestureOutput = new TouchGestureRecognizer.GestureOutput() {
+        @Override
+        public void onButtonsChanged(byte buttons) {
+            BluetoothHidService service = hidService;
+            if (service != null) {
+                service.sendMouseMovement(buttons, 0, 0, 0);
+            }
+        }
+
+        @Override
+        public void scheduleDeadline(long deadlineMs, long delayMs) {
+            // 未连接时无法调度，到期的释放会在下一个触摸事件到达时补上
+            BluetoothHidService service = hidService;
+            TouchGestureRecognizer recognizer = gestureRecognizer;
+            if (service != null) {
+                service.scheduleOnSenderThread(() -> recognizer.onDeadline(deadlineMs), delayMs);
+            }
+        }
+    };
+
     // HID服务回调方法
     @Override
     public void onServiceConnected() {
@@ -580,11 +896,11 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
     public void onServiceDisconnected() {
         Log.d(TAG, "HID服务已断开");
         runOnUiThread(() -> {
-            isHidRegistered = false;
             updateConnectionStatus("HID服务已断开");
             buttonConnect.setText("启动蓝牙鼠标服务");
             buttonConnect.setEnabled(true);
             buttonRandomMove.setEnabled(false);
+            setMediaButtonsEnabled(false);
             
             // 停止随机移动
             stopRandomMovement();
@@ -595,7 +911,6 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
     public void onAppRegistered() {
         Log.d(TAG, "HID应用已注册");
         runOnUiThread(() -> {
-            isHidRegistered = true;
             updateConnectionStatus("蓝牙鼠标已就绪 - 等待电脑连接 bt_input");
             buttonConnect.setText("停止蓝牙鼠标服务");
             buttonConnect.setEnabled(true);
@@ -609,20 +924,23 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
         // 停止随机移动
         stopRandomMovement();
         runOnUiThread(() -> {
-            isHidRegistered = false;
             updateConnectionStatus("蓝牙鼠标已停止");
             buttonConnect.setText("启动蓝牙鼠标服务");
             buttonConnect.setEnabled(true);
             buttonRandomMove.setEnabled(false);
+            setMediaButtonsEnabled(false);
         });
     }
 
     @Override
     public void onDeviceConnected() {
         Log.d(TAG, "设备已连接到电脑");
+        // 主机侧的按钮状态随新连接清零
+        gestureRecognizer.reset();
         runOnUiThread(() -> {
             updateConnectionStatus("已连接到电脑 - 可以使用触摸板了！");
             buttonRandomMove.setEnabled(true);
+            setMediaButtonsEnabled(hidService != null && hidService.isCompositeRegistered());
             Toast.makeText(MainActivity.this, "电脑已连接！现在可以使用触摸板控制鼠标", Toast.LENGTH_SHORT).show();
         });
     }
@@ -630,11 +948,13 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
     @Override
     public void onDeviceDisconnected() {
         Log.d(TAG, "设备已从电脑断开");
-        // 停止随机移动
+        // 停止随机移动和惯性滚动
         stopRandomMovement();
+        kineticScroller.cancel();
         runOnUiThread(() -> {
             updateConnectionStatus("蓝牙鼠标已就绪 - 等待电脑连接 bt_input");
             buttonRandomMove.setEnabled(false);
+            setMediaButtonsEnabled(false);
             Toast.makeText(MainActivity.this, "电脑已断开连接", Toast.LENGTH_SHORT).show();
         });
     }
@@ -647,35 +967,37 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             updateConnectionStatus("错误: " + error);
             
             // 重置状态和按钮
-            isHidRegistered = false;
             buttonConnect.setText("启动蓝牙鼠标服务");
             buttonConnect.setEnabled(true);
             buttonRandomMove.setEnabled(false);
+            setMediaButtonsEnabled(false);
             
             // 停止随机移动
             stopRandomMovement();
         });
     }
 
+    @Override
+    public void onScrollResolutionChanged(int countsPerDetent) {
+        Log.d(TAG, "滚轮分辨率倍增: " + countsPerDetent);
+        runOnUiThread(this::applyScrollResolution);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         Log.d(TAG, "Activity从后台返回");
+        textViewCoordinates.post(metricsOverlayUpdater);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        Log.d(TAG, "Activity进入后台，自动断开蓝牙连接");
+        Log.d(TAG, "Activity进入后台，HID连接由前台服务保持");
+        textViewCoordinates.removeCallbacks(metricsOverlayUpdater);
         
         // 停止随机移动
         stopRandomMovement();
-        
-        // 自动断开HID服务
-        if (isHidRegistered && hidService != null) {
-            stopHidService();
-            Toast.makeText(this, "应用进入后台，已自动断开蓝牙连接", Toast.LENGTH_SHORT).show();
-        }
     }
 
     @Override
@@ -690,8 +1012,15 @@ public class MainActivity extends AppCompatActivity implements BluetoothHidServi
             Log.d(TAG, "在onDestroy中释放WakeLock");
         }
         
-        if (hidService != null) {
-            hidService.stopHidService();
+        // 只解绑，不停止HID服务；停止需要点击按钮或通知栏上的"停止"
+        if (hidForegroundService != null) {
+            hidForegroundService.setClient(null);
+        }
+        if (hidServiceBound) {
+            unbindService(hidServiceConnection);
+            hidServiceBound = false;
         }
+        hidForegroundService = null;
+        hidService = null;
     }
 }
\ No newline at end of file
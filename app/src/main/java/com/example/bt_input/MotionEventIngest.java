@@ -0,0 +1,72 @@
+package com.example.bt_input;
+
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.View;
+
+// 触摸事件接入：遍历 MotionEvent 中批量的历史采样及其时间戳，再处理最新采样
+// 高采样率屏幕上一个 ACTION_MOVE 往往携带多个历史采样，只读 getX()/getY() 会丢失中间轨迹
+// 默认情况下 ACTION_MOVE 按屏幕刷新（vsync）批量送达，最多晚一帧；请求无缓冲分发后每个采样到达即送达
+final class MotionEventIngest {
+
+    private MotionEventIngest() {
+    }
+
+    // 在 ACTION_DOWN 时为本次手势请求无缓冲分发（Android 11 起），返回本次手势是否为无缓冲分发
+    static boolean requestUnbufferedDispatch(View view, MotionEvent event) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return false;
+        }
+        view.requestUnbufferedDispatch(event);
+        return true;
+    }
+
+    // 事件中最早的采样时间（毫秒）
+    static long oldestSampleTime(MotionEvent event) {
+        return event.getHistorySize() > 0 ? event.getHistoricalEventTime(0) : event.getEventTime();
+    }
+
+    // 按时间顺序分发所有采样，过程中不分配任何对象
+    static boolean dispatch(MotionEvent event, TouchSampleListener listener) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                listener.onTouchDown(event.getEventTime(), event.getX(), event.getY());
+                listener.onTouchBatchEnd();
+                return true;
+
+            case MotionEvent.ACTION_MOVE:
+                int historySize = event.getHistorySize();
+                for (int h = 0; h < historySize; h++) {
+                    listener.onTouchMove(event.getHistoricalEventTime(h),
+                            event.getHistoricalX(h), event.getHistoricalY(h));
+                }
+                listener.onTouchMove(event.getEventTime(), event.getX(), event.getY());
+                listener.onTouchBatchEnd();
+                return true;
+
+            case MotionEvent.ACTION_UP:
+                listener.onTouchUp(event.getEventTime(), event.getX(), event.getY());
+                listener.onTouchBatchEnd();
+                return true;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+                listener.onPointerCountChanged(event.getEventTime(), event.getPointerCount());
+                listener.onTouchBatchEnd();
+                return true;
+
+            case MotionEvent.ACTION_POINTER_UP:
+                // 抬起的手指仍计入 getPointerCount()
+                listener.onPointerCountChanged(event.getEventTime(), event.getPointerCount() - 1);
+                listener.onTouchBatchEnd();
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+                listener.onTouchCancel(event.getEventTime());
+                listener.onTouchBatchEnd();
+                return true;
+
+            default:
+                return false;
+        }
+    }
+}
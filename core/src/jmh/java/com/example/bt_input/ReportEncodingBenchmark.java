@@ -0,0 +1,90 @@
+package com.example.bt_input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 位移合并与报告编码：生产者加入位移，发送线程按时隙取出报告
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportEncodingBenchmark {
+
+    private static final int STROKES = 30;
+    private static final int SAMPLES = STROKES * 120;
+
+    @Param({"STANDARD", "HIGH_RESOLUTION", "HIGH_RESOLUTION_SMOOTH_SCROLL"})
+    public MouseReportFormat format;
+
+    // 每个发送时隙之前加入的位移数，1 表示链路不繁忙
+    @Param({"1", "4"})
+    public int movesPerSlot;
+
+    private int[] deltaX;
+    private int[] deltaY;
+    private MotionCoalescer coalescer;
+    private final byte[] report = new byte[HidDescriptor.MAX_INPUT_REPORT_LENGTH];
+    private final KeyboardReportState keyboard = new KeyboardReportState();
+
+    @Setup
+    public void setUp() {
+        // 用触摸板链路的实际输出作为位移输入
+        TouchTraces trace = TouchTraces.mixedStrokes(STROKES, 3);
+        deltaX = new int[SAMPLES];
+        deltaY = new int[SAMPLES];
+        int[] count = new int[1];
+        TouchMotionProcessor processor = new TouchMotionProcessor((dx, dy) -> {
+            if (count[0] < SAMPLES) {
+                deltaX[count[0]] = dx;
+                deltaY[count[0]] = dy;
+                count[0]++;
+            }
+        });
+        processor.setAccelerationCurve(AccelerationCurves.create(AccelerationCurves.TYPE_WINDOWS, null));
+        trace.replay(processor);
+        coalescer = new MotionCoalescer(format);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void coalesceAndPoll(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            coalescer.add((byte) 0, deltaX[i], deltaY[i], 0);
+            if (i % movesPerSlot == movesPerSlot - 1) {
+                int length;
+                while ((length = coalescer.poll(report)) > 0) {
+                    blackhole.consume(length);
+                }
+            }
+        }
+        while (coalescer.poll(report) > 0) {
+            blackhole.consume(report[1]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void encodeOnly(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(format.encode(report, (byte) 0, format.clampDelta(deltaX[i]),
+                    format.clampDelta(deltaY[i]), 0));
+        }
+    }
+
+    @Benchmark
+    public int keyboardPressRelease() {
+        keyboard.setKey(0x04, true);
+        int length = keyboard.encode(report);
+        keyboard.setKey(0x04, false);
+        return length + keyboard.encode(report);
+    }
+}
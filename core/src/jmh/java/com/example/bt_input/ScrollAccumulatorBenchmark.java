@@ -0,0 +1,56 @@
+package com.example.bt_input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 滚动条链路：把触摸位移换算成滚轮计数，分别测量普通滚轮和 8 倍分辨率倍增
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScrollAccumulatorBenchmark {
+
+    private static final int STROKES = 30;
+    private static final int SAMPLES = STROKES * 120;
+
+    @Param({"1", "8"})
+    public int countsPerDetent;
+
+    private TouchTraces trace;
+    private ScrollMotionProcessor processor;
+    private RemainderAccumulator accumulator;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        trace = TouchTraces.mixedStrokes(STROKES, 2);
+        processor = new ScrollMotionProcessor((counts, pan) -> this.blackhole.consume(counts));
+        processor.setCountsPerDetent(countsPerDetent);
+        accumulator = new RemainderAccumulator(ScrollMotionProcessor.UNITS_PER_STEP / (float) countsPerDetent);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void replayTrace() {
+        trace.replay(processor);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void accumulatorOnly(Blackhole blackhole) {
+        float[] ys = trace.ys;
+        for (int i = 1; i < SAMPLES; i++) {
+            blackhole.consume(accumulator.add(ys[i - 1] - ys[i]));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bt_input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 触摸板链路：灵敏度缩放 + 指针加速 + 余量累加，每次操作为一个触摸采样
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TouchPipelineBenchmark {
+
+    private static final int STROKES = 30;
+    private static final int SAMPLES = STROKES * 120;
+
+    @Param({"0", "1", "2", "3"})
+    public int curveType;
+
+    private TouchTraces trace;
+    private TouchMotionProcessor processor;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        trace = TouchTraces.mixedStrokes(STROKES, 1);
+        processor = new TouchMotionProcessor(this::consume);
+        processor.setSensitivity(1.5f);
+        processor.setAccelerationCurve(AccelerationCurves.create(curveType, null));
+    }
+
+    private void consume(int dx, int dy) {
+        blackhole.consume(dx);
+        blackhole.consume(dy);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void replayTrace() {
+        trace.replay(processor);
+    }
+
+    // 单独测量曲线求值，便于区分加速曲线和速度估计的开销
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void accelerationOnly(Blackhole blackhole) {
+        PointerAccelerator accelerator = processor.getAccelerator();
+        float[] xs = trace.xs;
+        float[] ys = trace.ys;
+        long[] times = trace.timesMs;
+        accelerator.reset(times[0], xs[0], ys[0]);
+        for (int i = 1; i < SAMPLES; i++) {
+            blackhole.consume(accelerator.addSample(times[i], xs[i], ys[i]));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bt_input;
+
+import java.util.Random;
+
+// 基准测试使用的触摸轨迹：按真实触摸板的典型形态确定性生成，保证每次运行输入完全相同
+// 采样率 240Hz，每个 MotionEvent 批次携带 2 个采样（120Hz 刷新的屏幕上常见的历史采样数）
+final class TouchTraces {
+
+    static final int KIND_DOWN = 0;
+    static final int KIND_MOVE = 1;
+    static final int KIND_UP = 2;
+
+    static final int SAMPLE_INTERVAL_US = 4167;
+    static final int SAMPLES_PER_BATCH = 2;
+
+    final long[] timesMs;
+    final float[] xs;
+    final float[] ys;
+    final int[] kinds;
+    // 该采样之后是否结束一个 MotionEvent 批次
+    final boolean[] batchEnds;
+
+    private TouchTraces(int capacity) {
+        timesMs = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        kinds = new int[capacity];
+        batchEnds = new boolean[capacity];
+    }
+
+    int size() {
+        return timesMs.length;
+    }
+
+    // 交替的慢速精确移动、中速拖动和快速甩动，每段 120 个采样
+    static TouchTraces mixedStrokes(int strokes, long seed) {
+        int samplesPerStroke = 120;
+        TouchTraces trace = new TouchTraces(strokes * samplesPerStroke);
+        Random random = new Random(seed);
+        long timeUs = 0;
+        int index = 0;
+        for (int stroke = 0; stroke < strokes; stroke++) {
+            // 速度单位 px/ms：0.05 精确定位，0.8 普通拖动，4 快速甩动
+            float speed = stroke % 3 == 0 ? 0.05f : stroke % 3 == 1 ? 0.8f : 4f;
+            double angle = random.nextDouble() * Math.PI * 2;
+            float x = 200 + random.nextFloat() * 400;
+            float y = 200 + random.nextFloat() * 400;
+            for (int i = 0; i < samplesPerStroke; i++) {
+                // 带轻微弧度和手指抖动
+                angle += (random.nextDouble() - 0.5) * 0.05;
+                float step = speed * SAMPLE_INTERVAL_US / 1000f;
+                x += (float) Math.cos(angle) * step + (random.nextFloat() - 0.5f) * 0.3f;
+                y += (float) Math.sin(angle) * step + (random.nextFloat() - 0.5f) * 0.3f;
+                trace.timesMs[index] = timeUs / 1000;
+                trace.xs[index] = x;
+                trace.ys[index] = y;
+                trace.kinds[index] = i == 0 ? KIND_DOWN : i == samplesPerStroke - 1 ? KIND_UP : KIND_MOVE;
+                trace.batchEnds[index] = trace.kinds[index] != KIND_MOVE || i % SAMPLES_PER_BATCH == 0;
+                timeUs += SAMPLE_INTERVAL_US;
+                index++;
+            }
+            // 两次手势之间的停顿
+            timeUs += 150_000;
+        }
+        return trace;
+    }
+
+    // 按 MotionEventIngest 的调用顺序回放到监听器
+    void replay(TouchSampleListener listener) {
+        for (int i = 0; i < timesMs.length; i++) {
+            switch (kinds[i]) {
+                case KIND_DOWN:
+                    listener.onTouchDown(timesMs[i], xs[i], ys[i]);
+                    break;
+                case KIND_UP:
+                    listener.onTouchUp(timesMs[i], xs[i], ys[i]);
+                    break;
+                default:
+                    listener.onTouchMove(timesMs[i], xs[i], ys[i]);
+                    break;
+            }
+            if (batchEnds[i]) {
+                listener.onTouchBatchEnd();
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bt_input;
+
+// 指针加速曲线：把手指速度 (像素/毫秒) 映射为位移增益
+// 实现必须是无状态的纯函数，每个采样都会调用，不能分配对象
+public interface AccelerationCurve {
+    float gain(float speed);
+}
@@ -0,0 +1,170 @@
+package com.example.bt_input;
+
+import java.util.Arrays;
+
+// 内置加速曲线：线性、Windows 风格“提高指针精确度”、libinput 风格自适应、用户自定义查找表
+public final class AccelerationCurves {
+
+    public static final int TYPE_LINEAR = 0;
+    public static final int TYPE_WINDOWS = 1;
+    public static final int TYPE_ADAPTIVE = 2;
+    public static final int TYPE_LOOKUP_TABLE = 3;
+
+    // 自定义查找表的默认值，格式为 "速度:增益,速度:增益,..."
+    public static final String DEFAULT_LOOKUP_TABLE = "0:0.4,0.3:1,1:1.6,2.5:2.8,5:4";
+
+    private AccelerationCurves() {
+    }
+
+    public static AccelerationCurve create(int type, String lookupTable) {
+        switch (type) {
+            case TYPE_WINDOWS:
+                return new WindowsPrecision();
+            case TYPE_ADAPTIVE:
+                return new Adaptive();
+            case TYPE_LOOKUP_TABLE:
+                return LookupTable.parse(lookupTable != null ? lookupTable : DEFAULT_LOOKUP_TABLE);
+            case TYPE_LINEAR:
+            default:
+                return new Linear(1f);
+        }
+    }
+
+    // 线性：固定增益，等同于原来的灵敏度乘法
+    public static final class Linear implements AccelerationCurve {
+        private final float gain;
+
+        public Linear(float gain) {
+            this.gain = gain;
+        }
+
+        @Override
+        public float gain(float speed) {
+            return gain;
+        }
+    }
+
+    // Windows 风格：SmoothMouseXCurve/SmoothMouseYCurve 定义的分段线性传递函数，增益 = 输出速度 / 输入速度
+    public static final class WindowsPrecision implements AccelerationCurve {
+        // 注册表默认曲线的五个控制点
+        private static final float[] CURVE_X = {0f, 0.43f, 1.25f, 3.86f, 40.0f};
+        private static final float[] CURVE_Y = {0f, 1.37f, 5.30f, 24.30f, 568.0f};
+        // 第一段斜率，用于把低速增益归一化为 1
+        private static final float BASE_SLOPE = CURVE_Y[1] / CURVE_X[1];
+
+        // 触摸速度 (像素/毫秒) 到曲线横轴单位的换算系数
+        private final float speedScale;
+
+        public WindowsPrecision() {
+            this(1f);
+        }
+
+        public WindowsPrecision(float speedScale) {
+            this.speedScale = speedScale;
+        }
+
+        @Override
+        public float gain(float speed) {
+            float x = speed * speedScale;
+            if (x <= CURVE_X[1]) {
+                return 1f;
+            }
+            int last = CURVE_X.length - 1;
+            float y;
+            if (x >= CURVE_X[last]) {
+                float slope = (CURVE_Y[last] - CURVE_Y[last - 1]) / (CURVE_X[last] - CURVE_X[last - 1]);
+                y = CURVE_Y[last] + (x - CURVE_X[last]) * slope;
+            } else {
+                int i = 1;
+                while (x > CURVE_X[i + 1]) {
+                    i++;
+                }
+                float t = (x - CURVE_X[i]) / (CURVE_X[i + 1] - CURVE_X[i]);
+                y = CURVE_Y[i] + t * (CURVE_Y[i + 1] - CURVE_Y[i]);
+            }
+            return y / x / BASE_SLOPE;
+        }
+    }
+
+    // libinput 风格自适应：极低速减速以便精确定位，中速保持 1，高于阈值后线性增加直到上限
+    public static final class Adaptive implements AccelerationCurve {
+        private final float lowSpeed;
+        private final float threshold;
+        private final float incline;
+        private final float maxGain;
+
+        public Adaptive() {
+            this(0.07f, 0.4f, 1.1f, 3.5f);
+        }
+
+        public Adaptive(float lowSpeed, float threshold, float incline, float maxGain) {
+            this.lowSpeed = lowSpeed;
+            this.threshold = threshold;
+            this.incline = incline;
+            this.maxGain = maxGain;
+        }
+
+        @Override
+        public float gain(float speed) {
+            if (speed < lowSpeed) {
+                return 0.3f + 0.7f * speed / lowSpeed;
+            }
+            if (speed <= threshold) {
+                return 1f;
+            }
+            return Math.min(maxGain, 1f + (speed - threshold) * incline);
+        }
+    }
+
+    // 用户自定义查找表：控制点之间线性插值，超出范围时取端点值
+    public static final class LookupTable implements AccelerationCurve {
+        private final float[] speeds;
+        private final float[] gains;
+
+        public LookupTable(float[] speeds, float[] gains) {
+            if (speeds.length == 0 || speeds.length != gains.length) {
+                throw new IllegalArgumentException("查找表的速度和增益数量必须一致且不为空");
+            }
+            for (int i = 1; i < speeds.length; i++) {
+                if (speeds[i] <= speeds[i - 1]) {
+                    throw new IllegalArgumentException("查找表的速度必须严格递增");
+                }
+            }
+            this.speeds = Arrays.copyOf(speeds, speeds.length);
+            this.gains = Arrays.copyOf(gains, gains.length);
+        }
+
+        // 解析 "速度:增益,速度:增益,..." 格式
+        public static LookupTable parse(String table) {
+            String[] entries = table.trim().split(",");
+            float[] speeds = new float[entries.length];
+            float[] gains = new float[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String[] pair = entries[i].trim().split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("无效的查找表项: " + entries[i]);
+                }
+                speeds[i] = Float.parseFloat(pair[0].trim());
+                gains[i] = Float.parseFloat(pair[1].trim());
+            }
+            return new LookupTable(speeds, gains);
+        }
+
+        @Override
+        public float gain(float speed) {
+            int last = speeds.length - 1;
+            if (speed <= speeds[0]) {
+                return gains[0];
+            }
+            if (speed >= speeds[last]) {
+                return gains[last];
+            }
+            int i = 0;
+            while (speed > speeds[i + 1]) {
+                i++;
+            }
+            float t = (speed - speeds[i]) / (speeds[i + 1] - speeds[i]);
+            return gains[i] + t * (gains[i + 1] - gains[i]);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bt_input;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 合并并限速投递事件：同一个键在一批中只保留最后一次（位置移到最后），每个间隔最多投递一批
+// 空闲时第一个事件立即投递；回连时的回调风暴被压缩成少量批次，最后投递的总是最新发生的事件
+public class EventBatcher {
+
+    public interface Sink {
+        // 在调度线程上调用，batch 按事件最后一次发生的顺序排列
+        void deliver(List<Runnable> batch);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long minIntervalNanos;
+    private final Sink sink;
+
+    // 以下字段只在 synchronized 内访问
+    private final LinkedHashMap<Object, Runnable> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private long lastFlushNanos;
+    private long postedCount = 0;
+    private long deliveredCount = 0;
+    private long batchCount = 0;
+
+    public EventBatcher(ScheduledExecutorService scheduler, long minIntervalMs, Sink sink) {
+        this.scheduler = scheduler;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.sink = sink;
+        this.lastFlushNanos = System.nanoTime() - minIntervalNanos;
+    }
+
+    public synchronized void post(Object key, Runnable event) {
+        postedCount++;
+        pending.remove(key);
+        pending.put(key, event);
+        if (flushScheduled) {
+            return;
+        }
+        // 调度线程已关闭（服务释放后仍有回调到达）时丢弃事件，不能把异常抛回回调线程
+        if (scheduler.isShutdown()) {
+            pending.clear();
+            return;
+        }
+        long delay = Math.max(0, lastFlushNanos + minIntervalNanos - System.nanoTime());
+        try {
+            scheduler.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            pending.clear();
+        }
+    }
+
+    public synchronized long getPostedCount() {
+        return postedCount;
+    }
+
+    public synchronized long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    private void flush() {
+        List<Runnable> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            lastFlushNanos = System.nanoTime();
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.size());
+            for (Map.Entry<Object, Runnable> entry : pending.entrySet()) {
+                batch.add(entry.getValue());
+            }
+            pending.clear();
+            deliveredCount += batch.size();
+            batchCount++;
+        }
+        sink.deliver(batch);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.bt_input;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// HID 连接状态机：阶段与已连接的主机保存在同一个不可变对象中，用 CAS 原子切换
+// binder 回调线程、界面线程和发送线程都可以直接读取，热路径上判断是否已连接只需一次 volatile 读
+//
+// 阶段转换：
+//   IDLE --start--> STARTING --onRegistered--> REGISTERED --onConnected--> CONNECTED
+//   CONNECTED --onDisconnected--> REGISTERED
+//   任意阶段 --reset--> IDLE（停止服务、注销、profile 代理断开、启动超时）
+//
+// D 为主机设备类型（Android 上是 BluetoothDevice），只在 CONNECTED 阶段非空
+public class HidConnectionState<D> {
+
+    public enum Phase {
+        IDLE,
+        STARTING,
+        REGISTERED,
+        CONNECTED
+    }
+
+    public interface Listener<D> {
+        // 在完成转换的线程上调用
+        void onStateChanged(Phase from, Phase to, D host);
+    }
+
+    private static final class Link<D> {
+        final Phase phase;
+        final D host;
+
+        Link(Phase phase, D host) {
+            this.phase = phase;
+            this.host = host;
+        }
+    }
+
+    private final AtomicReference<Link<D>> current = new AtomicReference<>(new Link<>(Phase.IDLE, null));
+    private final ScheduledExecutorService scheduler;
+    private volatile Listener<D> listener;
+
+    public HidConnectionState(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void setListener(Listener<D> listener) {
+        this.listener = listener;
+    }
+
+    public Phase getPhase() {
+        return current.get().phase;
+    }
+
+    public boolean isConnected() {
+        return current.get().phase == Phase.CONNECTED;
+    }
+
+    // 已注册（包括已连接）
+    public boolean isRegistered() {
+        Phase phase = current.get().phase;
+        return phase == Phase.REGISTERED || phase == Phase.CONNECTED;
+    }
+
+    // 已连接时返回主机，否则返回 null
+    public D getConnectedHost() {
+        return current.get().host;
+    }
+
+    // 只有空闲时才能启动，重复启动返回 false
+    public boolean start() {
+        return transition(Phase.IDLE, Phase.STARTING, null);
+    }
+
+    public boolean onRegistered() {
+        return transition(Phase.STARTING, Phase.REGISTERED, null);
+    }
+
+    public boolean onConnected(D host) {
+        if (host == null) {
+            throw new IllegalArgumentException("主机不能为空");
+        }
+        return transition(Phase.REGISTERED, Phase.CONNECTED, host);
+    }
+
+    public boolean onDisconnected() {
+        return transition(Phase.CONNECTED, Phase.REGISTERED, null);
+    }
+
+    // 回到空闲，返回之前的阶段
+    public Phase reset() {
+        Link<D> idle = new Link<>(Phase.IDLE, null);
+        Link<D> previous = current.getAndSet(idle);
+        if (previous.phase != Phase.IDLE) {
+            notifyListener(previous, idle);
+        }
+        return previous.phase;
+    }
+
+    // 在共享调度器上安排超时：到期时状态仍与安排时完全相同（期间没有任何转换）才执行 onTimeout
+    public void scheduleTimeout(long delayMs, Runnable onTimeout) {
+        Link<D> expected = current.get();
+        scheduler.schedule(() -> {
+            if (current.get() == expected) {
+                onTimeout.run();
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean transition(Phase from, Phase to, D host) {
+        Link<D> previous = current.get();
+        if (previous.phase != from) {
+            return false;
+        }
+        Link<D> next = new Link<>(to, host);
+        if (!current.compareAndSet(previous, next)) {
+            return false;
+        }
+        notifyListener(previous, next);
+        return true;
+    }
+
+    private void notifyListener(Link<D> from, Link<D> to) {
+        Listener<D> target = listener;
+        if (target != null) {
+            target.onStateChanged(from.phase, to.phase, to.host);
+        }
+    }
+}
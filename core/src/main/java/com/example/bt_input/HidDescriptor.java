@@ -0,0 +1,317 @@
+package com.example.bt_input;
+
+// 已注册的 HID 描述符模型：由鼠标报告布局和是否为组合设备决定描述符字节、每个报告的 ID 和长度
+// 发送报告、回复 GET_REPORT/SET_REPORT 时都以这里为准，避免报告 ID 与描述符不一致
+public final class HidDescriptor {
+
+    // 单一鼠标描述符不使用报告 ID，sendReport 的 id 参数为 0
+    public static final int NO_REPORT_ID = 0;
+    // 组合设备中各报告的 ID，与下面的描述符一致
+    public static final int MOUSE_REPORT_ID = 1;
+    public static final int KEYBOARD_REPORT_ID = 2;
+    public static final int CONSUMER_REPORT_ID = 3;
+    // 启动协议下的报告 ID，由蓝牙 HID 规范固定，与组合设备的 ID 不同
+    public static final int BOOT_KEYBOARD_REPORT_ID = 1;
+    public static final int BOOT_MOUSE_REPORT_ID = 2;
+
+    public static final int CONSUMER_REPORT_LENGTH = 2;
+    // 分辨率倍增特性报告：1 字节 (bit0-1 滚轮，bit2-3 水平滚动)
+    public static final int RESOLUTION_MULTIPLIER_FEATURE_LENGTH = 1;
+    // 键盘 LED 输出报告
+    public static final int KEYBOARD_LED_REPORT_LENGTH = 1;
+    // 分辨率倍增启用后每格滚轮的计数，与描述符中的 Physical Maximum (8) 一致
+    public static final int WHEEL_RESOLUTION_MULTIPLIER = 8;
+
+    // 所有描述符变体中最长的输入报告
+    public static final int MAX_INPUT_REPORT_LENGTH = Math.max(
+            MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL.reportLength, KeyboardReportState.REPORT_LENGTH);
+
+    // 描述符片段 - 按报告布局拼接出鼠标描述符
+    // 开头：应用集合
+    private static final byte[] MOUSE_DESCRIPTOR_APPLICATION = {
+        (byte) 0x05, (byte) 0x01,  // Usage Page (Generic Desktop)
+        (byte) 0x09, (byte) 0x02,  // Usage (Mouse)
+        (byte) 0xA1, (byte) 0x01,  // Collection (Application)
+    };
+
+    // 组合设备中鼠标集合的报告 ID
+    private static final byte[] MOUSE_DESCRIPTOR_REPORT_ID = {
+        (byte) 0x85, (byte) 0x01,  //   Report ID (1)
+    };
+
+    // 物理集合与 3 个按钮
+    private static final byte[] MOUSE_DESCRIPTOR_BUTTONS = {
+        (byte) 0x09, (byte) 0x01,  //   Usage (Pointer)
+        (byte) 0xA1, (byte) 0x00,  //   Collection (Physical)
+        (byte) 0x05, (byte) 0x09,  //     Usage Page (Buttons)
+        (byte) 0x19, (byte) 0x01,  //     Usage Minimum (1)
+        (byte) 0x29, (byte) 0x03,  //     Usage Maximum (3)
+        (byte) 0x15, (byte) 0x00,  //     Logical Minimum (0)
+        (byte) 0x25, (byte) 0x01,  //     Logical Maximum (1)
+        (byte) 0x95, (byte) 0x03,  //     Report Count (3)
+        (byte) 0x75, (byte) 0x01,  //     Report Size (1)
+        (byte) 0x81, (byte) 0x02,  //     Input (Data, Variable, Absolute)
+        (byte) 0x95, (byte) 0x01,  //     Report Count (1)
+        (byte) 0x75, (byte) 0x05,  //     Report Size (5)
+        (byte) 0x81, (byte) 0x03,  //     Input (Constant, Variable, Absolute)
+        (byte) 0x05, (byte) 0x01,  //     Usage Page (Generic Desktop)
+    };
+
+    // 8 位 X/Y (-127..127)
+    private static final byte[] MOUSE_DESCRIPTOR_XY_8BIT = {
+        (byte) 0x09, (byte) 0x30,  //     Usage (X)
+        (byte) 0x09, (byte) 0x31,  //     Usage (Y)
+        (byte) 0x15, (byte) 0x81,  //     Logical Minimum (-127)
+        (byte) 0x25, (byte) 0x7F,  //     Logical Maximum (127)
+        (byte) 0x75, (byte) 0x08,  //     Report Size (8)
+        (byte) 0x95, (byte) 0x02,  //     Report Count (2)
+        (byte) 0x81, (byte) 0x06,  //     Input (Data, Variable, Relative)
+    };
+
+    // 16 位 X/Y (-32767..32767)，快速划动时无需截断或拆分成多个报告
+    private static final byte[] MOUSE_DESCRIPTOR_XY_16BIT = {
+        (byte) 0x09, (byte) 0x30,  //     Usage (X)
+        (byte) 0x09, (byte) 0x31,  //     Usage (Y)
+        (byte) 0x16, (byte) 0x01, (byte) 0x80,  //     Logical Minimum (-32767)
+        (byte) 0x26, (byte) 0xFF, (byte) 0x7F,  //     Logical Maximum (32767)
+        (byte) 0x75, (byte) 0x10,  //     Report Size (16)
+        (byte) 0x95, (byte) 0x02,  //     Report Count (2)
+        (byte) 0x81, (byte) 0x06,  //     Input (Data, Variable, Relative)
+    };
+
+    // 普通 8 位滚轮
+    private static final byte[] MOUSE_DESCRIPTOR_WHEEL = {
+        (byte) 0x09, (byte) 0x38,  //     Usage (Wheel)
+        (byte) 0x15, (byte) 0x81,  //     Logical Minimum (-127)
+        (byte) 0x25, (byte) 0x7F,  //     Logical Maximum (127)
+        (byte) 0x75, (byte) 0x08,  //     Report Size (8)
+        (byte) 0x95, (byte) 0x01,  //     Report Count (1)
+        (byte) 0x81, (byte) 0x06,  //     Input (Data, Variable, Relative)
+    };
+
+    // 高精度滚轮 + 水平滚动 (AC Pan)，各自带一个 2 位的分辨率倍增特性字段
+    // 特性报告共 1 字节：bit0-1 滚轮倍增，bit2-3 水平滚动倍增，其余为填充
+    private static final byte[] MOUSE_DESCRIPTOR_WHEEL_HIGH_RES_AND_PAN = {
+        (byte) 0xA1, (byte) 0x02,  //     Collection (Logical)
+        (byte) 0x09, (byte) 0x48,  //       Usage (Resolution Multiplier)
+        (byte) 0x15, (byte) 0x00,  //       Logical Minimum (0)
+        (byte) 0x25, (byte) 0x01,  //       Logical Maximum (1)
+        (byte) 0x35, (byte) 0x01,  //       Physical Minimum (1)
+        (byte) 0x45, (byte) 0x08,  //       Physical Maximum (8)
+        (byte) 0x75, (byte) 0x02,  //       Report Size (2)
+        (byte) 0x95, (byte) 0x01,  //       Report Count (1)
+        (byte) 0xA4,               //       Push
+        (byte) 0xB1, (byte) 0x02,  //       Feature (Data, Variable, Absolute)
+        (byte) 0x09, (byte) 0x38,  //       Usage (Wheel)
+        (byte) 0x15, (byte) 0x81,  //       Logical Minimum (-127)
+        (byte) 0x25, (byte) 0x7F,  //       Logical Maximum (127)
+        (byte) 0x35, (byte) 0x00,  //       Physical Minimum (0)
+        (byte) 0x45, (byte) 0x00,  //       Physical Maximum (0)
+        (byte) 0x75, (byte) 0x08,  //       Report Size (8)
+        (byte) 0x81, (byte) 0x06,  //       Input (Data, Variable, Relative)
+        (byte) 0xC0,               //     End Collection
+        (byte) 0xA1, (byte) 0x02,  //     Collection (Logical)
+        (byte) 0x09, (byte) 0x48,  //       Usage (Resolution Multiplier)
+        (byte) 0xB4,               //       Pop
+        (byte) 0xB1, (byte) 0x02,  //       Feature (Data, Variable, Absolute)
+        (byte) 0x35, (byte) 0x00,  //       Physical Minimum (0)
+        (byte) 0x45, (byte) 0x00,  //       Physical Maximum (0)
+        (byte) 0x75, (byte) 0x04,  //       Report Size (4)
+        (byte) 0xB1, (byte) 0x03,  //       Feature (Constant, Variable, Absolute)
+        (byte) 0x05, (byte) 0x0C,  //       Usage Page (Consumer)
+        (byte) 0x0A, (byte) 0x38, (byte) 0x02,  //       Usage (AC Pan)
+        (byte) 0x15, (byte) 0x81,  //       Logical Minimum (-127)
+        (byte) 0x25, (byte) 0x7F,  //       Logical Maximum (127)
+        (byte) 0x75, (byte) 0x08,  //       Report Size (8)
+        (byte) 0x95, (byte) 0x01,  //       Report Count (1)
+        (byte) 0x81, (byte) 0x06,  //       Input (Data, Variable, Relative)
+        (byte) 0xC0,               //     End Collection
+    };
+
+    private static final byte[] MOUSE_DESCRIPTOR_FOOTER = {
+        (byte) 0xC0,               //   End Collection
+        (byte) 0xC0                // End Collection
+    };
+
+    // 引导协议兼容键盘：修饰键(1) + 保留(1) + 6 个键码，LED 输出报告
+    private static final byte[] KEYBOARD_DESCRIPTOR = {
+        (byte) 0x05, (byte) 0x01,  // Usage Page (Generic Desktop)
+        (byte) 0x09, (byte) 0x06,  // Usage (Keyboard)
+        (byte) 0xA1, (byte) 0x01,  // Collection (Application)
+        (byte) 0x85, (byte) 0x02,  //   Report ID (2)
+        (byte) 0x05, (byte) 0x07,  //   Usage Page (Key Codes)
+        (byte) 0x19, (byte) 0xE0,  //   Usage Minimum (224)
+        (byte) 0x29, (byte) 0xE7,  //   Usage Maximum (231)
+        (byte) 0x15, (byte) 0x00,  //   Logical Minimum (0)
+        (byte) 0x25, (byte) 0x01,  //   Logical Maximum (1)
+        (byte) 0x75, (byte) 0x01,  //   Report Size (1)
+        (byte) 0x95, (byte) 0x08,  //   Report Count (8)
+        (byte) 0x81, (byte) 0x02,  //   Input (Data, Variable, Absolute)
+        (byte) 0x95, (byte) 0x01,  //   Report Count (1)
+        (byte) 0x75, (byte) 0x08,  //   Report Size (8)
+        (byte) 0x81, (byte) 0x03,  //   Input (Constant, Variable, Absolute)
+        (byte) 0x95, (byte) 0x05,  //   Report Count (5)
+        (byte) 0x75, (byte) 0x01,  //   Report Size (1)
+        (byte) 0x05, (byte) 0x08,  //   Usage Page (LEDs)
+        (byte) 0x19, (byte) 0x01,  //   Usage Minimum (1)
+        (byte) 0x29, (byte) 0x05,  //   Usage Maximum (5)
+        (byte) 0x91, (byte) 0x02,  //   Output (Data, Variable, Absolute)
+        (byte) 0x95, (byte) 0x01,  //   Report Count (1)
+        (byte) 0x75, (byte) 0x03,  //   Report Size (3)
+        (byte) 0x91, (byte) 0x03,  //   Output (Constant, Variable, Absolute)
+        (byte) 0x95, (byte) 0x06,  //   Report Count (6)
+        (byte) 0x75, (byte) 0x08,  //   Report Size (8)
+        (byte) 0x15, (byte) 0x00,  //   Logical Minimum (0)
+        (byte) 0x25, (byte) 0x65,  //   Logical Maximum (101)
+        (byte) 0x05, (byte) 0x07,  //   Usage Page (Key Codes)
+        (byte) 0x19, (byte) 0x00,  //   Usage Minimum (0)
+        (byte) 0x29, (byte) 0x65,  //   Usage Maximum (101)
+        (byte) 0x81, (byte) 0x00,  //   Input (Data, Array, Absolute)
+        (byte) 0xC0                // End Collection
+    };
+
+    // 用户控制（媒体键）：一个 16 位用法码
+    private static final byte[] CONSUMER_DESCRIPTOR = {
+        (byte) 0x05, (byte) 0x0C,  // Usage Page (Consumer)
+        (byte) 0x09, (byte) 0x01,  // Usage (Consumer Control)
+        (byte) 0xA1, (byte) 0x01,  // Collection (Application)
+        (byte) 0x85, (byte) 0x03,  //   Report ID (3)
+        (byte) 0x15, (byte) 0x00,  //   Logical Minimum (0)
+        (byte) 0x26, (byte) 0xFF, (byte) 0x03,  //   Logical Maximum (1023)
+        (byte) 0x19, (byte) 0x00,  //   Usage Minimum (0)
+        (byte) 0x2A, (byte) 0xFF, (byte) 0x03,  //   Usage Maximum (1023)
+        (byte) 0x75, (byte) 0x10,  //   Report Size (16)
+        (byte) 0x95, (byte) 0x01,  //   Report Count (1)
+        (byte) 0x81, (byte) 0x00,  //   Input (Data, Array, Absolute)
+        (byte) 0xC0                // End Collection
+    };
+
+    private final MouseReportFormat mouseFormat;
+    private final boolean composite;
+    private final byte[] bytes;
+    // 主机通过 SET_PROTOCOL 切换到启动协议后，报告 ID 和布局改用启动协议的固定格式
+    private final boolean bootProtocol;
+    private final MouseReportFormat reportModeFormat;
+
+    public HidDescriptor(MouseReportFormat mouseFormat, boolean composite) {
+        if (mouseFormat == MouseReportFormat.BOOT) {
+            throw new IllegalArgumentException("启动协议布局不能用于注册描述符");
+        }
+        this.mouseFormat = mouseFormat;
+        this.reportModeFormat = mouseFormat;
+        this.composite = composite;
+        this.bootProtocol = false;
+        byte[] mouse = concat(MOUSE_DESCRIPTOR_APPLICATION,
+                composite ? MOUSE_DESCRIPTOR_REPORT_ID : new byte[0],
+                MOUSE_DESCRIPTOR_BUTTONS,
+                mouseFormat.wideMotion ? MOUSE_DESCRIPTOR_XY_16BIT : MOUSE_DESCRIPTOR_XY_8BIT,
+                mouseFormat.smoothScroll ? MOUSE_DESCRIPTOR_WHEEL_HIGH_RES_AND_PAN : MOUSE_DESCRIPTOR_WHEEL,
+                MOUSE_DESCRIPTOR_FOOTER);
+        this.bytes = composite ? concat(mouse, KEYBOARD_DESCRIPTOR, CONSUMER_DESCRIPTOR) : mouse;
+    }
+
+    private HidDescriptor(HidDescriptor registered, boolean bootProtocol) {
+        this.reportModeFormat = registered.reportModeFormat;
+        this.mouseFormat = bootProtocol ? MouseReportFormat.BOOT : registered.reportModeFormat;
+        this.composite = registered.composite;
+        this.bytes = registered.bytes;
+        this.bootProtocol = bootProtocol;
+    }
+
+    // 同一个已注册描述符在指定协议模式下的视图，描述符字节不变
+    public HidDescriptor withBootProtocol(boolean boot) {
+        return boot == bootProtocol ? this : new HidDescriptor(this, boot);
+    }
+
+    public boolean isBootProtocol() {
+        return bootProtocol;
+    }
+
+    // 当前协议下的鼠标报告布局
+    public MouseReportFormat getMouseFormat() {
+        return mouseFormat;
+    }
+
+    public boolean isComposite() {
+        return composite;
+    }
+
+    // 注册时传给 BluetoothHidDeviceAppSdpSettings 的描述符
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    public int getMouseReportId() {
+        if (bootProtocol) {
+            return BOOT_MOUSE_REPORT_ID;
+        }
+        return composite ? MOUSE_REPORT_ID : NO_REPORT_ID;
+    }
+
+    public boolean hasKeyboard() {
+        return composite;
+    }
+
+    // 键盘报告 ID，没有键盘时返回 -1
+    public int getKeyboardReportId() {
+        if (!composite) {
+            return -1;
+        }
+        return bootProtocol ? BOOT_KEYBOARD_REPORT_ID : KEYBOARD_REPORT_ID;
+    }
+
+    // 启动协议没有媒体键报告
+    public boolean hasConsumerControl() {
+        return composite && !bootProtocol;
+    }
+
+    // 输入报告长度（不含报告 ID 字节），描述符中没有该报告时返回 -1
+    public int getInputReportLength(int reportId) {
+        if (reportId == getMouseReportId()) {
+            return mouseFormat.reportLength;
+        }
+        if (composite && reportId == getKeyboardReportId()) {
+            return KeyboardReportState.REPORT_LENGTH;
+        }
+        if (hasConsumerControl() && reportId == CONSUMER_REPORT_ID) {
+            return CONSUMER_REPORT_LENGTH;
+        }
+        return -1;
+    }
+
+    // 特性报告长度，只有高精度滚轮布局带有分辨率倍增特性（启动协议下没有）
+    public int getFeatureReportLength(int reportId) {
+        if (mouseFormat.smoothScroll && reportId == getMouseReportId()) {
+            return RESOLUTION_MULTIPLIER_FEATURE_LENGTH;
+        }
+        return -1;
+    }
+
+    // 输出报告长度，只有组合设备的键盘带有 LED 输出报告
+    public int getOutputReportLength(int reportId) {
+        if (composite && reportId == getKeyboardReportId()) {
+            return KEYBOARD_LED_REPORT_LENGTH;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "HidDescriptor{" + reportModeFormat + (composite ? ", composite" : "")
+                + (bootProtocol ? ", boot protocol" : "") + "}";
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+}
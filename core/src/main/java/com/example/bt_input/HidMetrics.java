@@ -0,0 +1,212 @@
+package com.example.bt_input;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// HID 发送链路的常开指标：各阶段延迟直方图 + 发送/失败/合并/丢弃计数
+// 时间统一使用 System.nanoTime()；Android 上它与 MotionEvent.getEventTime() 使用同一个单调时钟
+//
+// 阶段划分：
+//   触摸输入  MotionEvent 事件时间 -> 界面线程开始处理；按逐帧批量分发和无缓冲分发分开统计，两者之差即无缓冲分发节省的时间
+//   批次采样  事件中最早的历史采样时间 -> 界面线程开始处理，批量分发时最早的采样要等到下一帧才送达
+//   排队      报告入队（或位移交给合并器）-> 发送线程取出
+//   binder   sendReport 调用耗时
+//   端到端    最早一个尚未发出的位移的事件时间 -> 携带它的报告 sendReport 返回
+//   节拍抖动  固定节拍模式下，节拍计划时间 -> 实际取出报告的时间
+public class HidMetrics {
+
+    public final LatencyHistogram touchIngest = new LatencyHistogram();
+    public final LatencyHistogram touchIngestBuffered = new LatencyHistogram();
+    public final LatencyHistogram touchIngestUnbuffered = new LatencyHistogram();
+    public final LatencyHistogram touchBatchAge = new LatencyHistogram();
+    public final LatencyHistogram queueing = new LatencyHistogram();
+    public final LatencyHistogram binderSend = new LatencyHistogram();
+    public final LatencyHistogram endToEnd = new LatencyHistogram();
+    public final LatencyHistogram tickJitter = new LatencyHistogram();
+
+    // 最近一个输入事件的时间，以及已产生位移但尚未发出的最早输入时间（0 表示没有）
+    private volatile long latestInputNanos = 0;
+    private final AtomicLong pendingInputNanos = new AtomicLong();
+
+    private volatile HidReportSender sender;
+    private volatile MotionCoalescer coalescer;
+    private volatile long startNanos = System.nanoTime();
+    // 从启动 HID 服务到第一个报告发送成功的耗时，不随 reset 清零；-1 表示尚未发出
+    private volatile long sessionStartNanos = 0;
+    private volatile long timeToFirstReportNanos = -1;
+    // reset 时的计数，快照中的计数都相对于它
+    private volatile Snapshot baseline;
+
+    // 计数直接读取发送器和合并器已有的统计，不在热路径上重复计数
+    public void attach(HidReportSender sender, MotionCoalescer coalescer) {
+        this.sender = sender;
+        this.coalescer = coalescer;
+    }
+
+    // 界面线程收到输入事件时调用
+    public void onInputEvent(long eventTimeNanos, long nowNanos) {
+        touchIngest.record(nowNanos - eventTimeNanos);
+        latestInputNanos = eventTimeNanos;
+    }
+
+    // 界面线程收到输入事件时调用，oldestSampleNanos 为事件中最早的历史采样时间（没有历史采样时等于事件时间）
+    // unbuffered 表示该事件所在的手势已请求无缓冲分发
+    public void onInputEvent(long eventTimeNanos, long oldestSampleNanos, long nowNanos, boolean unbuffered) {
+        onInputEvent(eventTimeNanos, nowNanos);
+        (unbuffered ? touchIngestUnbuffered : touchIngestBuffered).record(nowNanos - eventTimeNanos);
+        touchBatchAge.record(nowNanos - oldestSampleNanos);
+    }
+
+    // 无缓冲分发相对逐帧批量分发节省的触摸输入延迟（p50），两种分发方式都有数据时才有意义，否则返回 0
+    public long getUnbufferedGainNanos() {
+        if (touchIngestBuffered.getCount() == 0 || touchIngestUnbuffered.getCount() == 0) {
+            return 0;
+        }
+        return touchIngestBuffered.getValueAtPercentile(50) - touchIngestUnbuffered.getValueAtPercentile(50);
+    }
+
+    // 最近的输入产生了需要发送的位移时调用
+    public void onMotionSubmitted() {
+        long input = latestInputNanos;
+        if (input != 0) {
+            pendingInputNanos.compareAndSet(0, input);
+        }
+    }
+
+    public void onDequeued(long queuedNanos, long nowNanos) {
+        queueing.record(nowNanos - queuedNanos);
+    }
+
+    // 固定节拍模式下，发送线程在节拍上取出报告时调用
+    public void onTick(long scheduledNanos, long nowNanos) {
+        tickJitter.record(nowNanos - scheduledNanos);
+    }
+
+    // 用户启动 HID 服务时调用，开始计算首个报告的耗时
+    public void markSessionStart(long nowNanos) {
+        sessionStartNanos = nowNanos;
+        timeToFirstReportNanos = -1;
+    }
+
+    public long getTimeToFirstReportNanos() {
+        return timeToFirstReportNanos;
+    }
+
+    // 发送线程中每次 sendReport 返回后调用
+    public void onSendComplete(long sendStartNanos, long sendEndNanos, boolean success) {
+        binderSend.record(sendEndNanos - sendStartNanos);
+        if (success) {
+            if (timeToFirstReportNanos < 0 && sessionStartNanos != 0) {
+                timeToFirstReportNanos = sendEndNanos - sessionStartNanos;
+            }
+            long input = pendingInputNanos.getAndSet(0);
+            if (input != 0) {
+                endToEnd.record(sendEndNanos - input);
+            }
+        }
+    }
+
+    public void reset() {
+        touchIngest.reset();
+        touchIngestBuffered.reset();
+        touchIngestUnbuffered.reset();
+        touchBatchAge.reset();
+        queueing.reset();
+        binderSend.reset();
+        endToEnd.reset();
+        tickJitter.reset();
+        pendingInputNanos.set(0);
+        baseline = null;
+        baseline = new Snapshot(this);
+        startNanos = System.nanoTime();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    // 会话结束后导出的文本报告
+    public String dump() {
+        Snapshot snapshot = snapshot();
+        StringBuilder builder = new StringBuilder();
+        builder.append("HID 指标 (").append(snapshot.elapsedNanos / 1_000_000).append(" ms)\n");
+        builder.append("触摸输入: ").append(touchIngest.summary()).append('\n');
+        if (touchIngestBuffered.getCount() > 0) {
+            builder.append("  逐帧批量分发: ").append(touchIngestBuffered.summary()).append('\n');
+        }
+        if (touchIngestUnbuffered.getCount() > 0) {
+            builder.append("  无缓冲分发: ").append(touchIngestUnbuffered.summary()).append('\n');
+        }
+        long gain = getUnbufferedGainNanos();
+        if (gain != 0) {
+            builder.append("  无缓冲分发节省 (p50): ").append(TimeUnit.NANOSECONDS.toMicros(gain)).append("us\n");
+        }
+        if (touchBatchAge.getCount() > 0) {
+            builder.append("批次最早采样: ").append(touchBatchAge.summary()).append('\n');
+        }
+        builder.append("排队: ").append(queueing.summary()).append('\n');
+        builder.append("binder 发送: ").append(binderSend.summary()).append('\n');
+        builder.append("端到端: ").append(endToEnd.summary()).append('\n');
+        if (tickJitter.getCount() > 0) {
+            builder.append("节拍抖动: ").append(tickJitter.summary())
+                    .append(" 空节拍=").append(snapshot.skippedTicks).append('\n');
+        }
+        long firstReport = timeToFirstReportNanos;
+        if (firstReport >= 0) {
+            builder.append("启动到首个报告: ").append(firstReport / 1_000_000).append(" ms\n");
+        }
+        builder.append("已发送=").append(snapshot.sent)
+                .append(" 失败=").append(snapshot.failed)
+                .append(" 队列溢出=").append(snapshot.overflow)
+                .append(" 合并=").append(snapshot.coalesced)
+                .append(" 合并器丢弃=").append(snapshot.dropped)
+                .append(" 平均发送速率=").append(snapshot.reportsPerSecond()).append("/s\n");
+        return builder.toString();
+    }
+
+    // 某一时刻的计数，界面叠加层用相邻两次快照计算速率
+    public static final class Snapshot {
+        public final long elapsedNanos;
+        public final long sent;
+        public final long failed;
+        public final long overflow;
+        public final long coalesced;
+        public final long dropped;
+        public final long endToEndP50Nanos;
+        public final long endToEndP99Nanos;
+        public final long binderP99Nanos;
+        public final long touchIngestP50Nanos;
+        public final long tickJitterP99Nanos;
+        public final long skippedTicks;
+
+        private Snapshot(HidMetrics metrics) {
+            HidReportSender sender = metrics.sender;
+            MotionCoalescer coalescer = metrics.coalescer;
+            Snapshot base = metrics.baseline;
+            this.elapsedNanos = System.nanoTime() - metrics.startNanos;
+            this.sent = (sender != null ? sender.getSentCount() : 0) - (base != null ? base.sent : 0);
+            this.failed = (sender != null ? sender.getFailedCount() : 0) - (base != null ? base.failed : 0);
+            this.overflow = (sender != null ? sender.getOverflowCount() : 0) - (base != null ? base.overflow : 0);
+            this.coalesced = (coalescer != null ? coalescer.getCoalescedCount() : 0)
+                    - (base != null ? base.coalesced : 0);
+            this.dropped = (coalescer != null ? coalescer.getDroppedCount() : 0) - (base != null ? base.dropped : 0);
+            this.endToEndP50Nanos = metrics.endToEnd.getValueAtPercentile(50);
+            this.endToEndP99Nanos = metrics.endToEnd.getValueAtPercentile(99);
+            this.binderP99Nanos = metrics.binderSend.getValueAtPercentile(99);
+            this.touchIngestP50Nanos = metrics.touchIngest.getValueAtPercentile(50);
+            this.tickJitterP99Nanos = metrics.tickJitter.getValueAtPercentile(99);
+            this.skippedTicks = (sender != null ? sender.getSkippedTickCount() : 0)
+                    - (base != null ? base.skippedTicks : 0);
+        }
+
+        public long reportsPerSecond() {
+            return elapsedNanos <= 0 ? 0 : sent * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        // 相对于较早快照的发送速率
+        public long reportsPerSecondSince(Snapshot earlier) {
+            long elapsed = elapsedNanos - earlier.elapsedNanos;
+            return elapsed <= 0 ? 0 : (sent - earlier.sent) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+    }
+}
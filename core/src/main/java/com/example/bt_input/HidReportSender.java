@@ -0,0 +1,615 @@
+package com.example.bt_input;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// HID 报告发送器：单生产者/单消费者环形队列 + 专用发送线程
+// 触摸线程只负责把报告写入预分配的槽位，阻塞的 sendReport 调用全部在发送线程中完成
+//
+// 缓冲区约定（稳定状态下每个报告零分配）：
+// 1. claim() 返回的槽位在 commit() 之前归生产者所有，commit() 之后不得再写入
+// 2. 槽位在发送线程的 sendReport 返回后才会被回收，生产者下一次 claim() 才可能再拿到它
+// 3. Transport.sendReport 收到的数组长度等于报告长度，由发送器复用；
+//    实现必须在返回前用完该数组（BluetoothHidDevice.sendReport 同步经 binder 拷贝），不得保存引用
+// 4. offer() 会拷贝调用方的数组，调用返回后即可复用
+public class HidReportSender {
+
+    // 发送通道，真机上由 BluetoothHidDevice.sendReport 实现，JVM 测试中可以替换为假实现
+    public interface Transport {
+        boolean sendReport(int reportId, byte[] report);
+    }
+
+    // 发送线程上的周期回调（例如惯性滚动），frameTimeNanos 为本帧的实际时间，返回 false 时停止
+    public interface FrameCallback {
+        boolean onFrame(long frameTimeNanos);
+    }
+
+    // 可合并的报告来源（例如位移合并器），发送线程在队列空闲时逐个拉取
+    // poll 把报告写入缓冲区并返回报告长度，没有数据时返回 0
+    public interface ReportSource {
+        int poll(byte[] report);
+    }
+
+    // 队列为空时先自旋若干次再挂起，减少连续触摸事件之间的唤醒开销
+    private static final int SPIN_BEFORE_PARK = 64;
+    private static final long STOP_TIMEOUT_MS = 500;
+
+    private final Transport transport;
+    private final ThreadFactory threadFactory;
+    private final int maxReportLength;
+    private final int mask;
+    private final byte[][] slots;
+    private final int[] slotReportIds;
+    private final int[] slotLengths;
+    // 入队时间，用于统计排队延迟
+    private final long[] slotQueuedNanos;
+    // 按长度预分配的发送缓冲区，sendReport 要求数组长度等于报告长度
+    private final byte[][] wireBuffers;
+
+    // 发送失败时由退避策略决定是否暂停，不在发送线程中重试同一个报告
+    private volatile ReportSendBackoff backoff;
+    // 按发送耗时限制从报告来源拉取的速率，限速期间位移留在来源中合并
+    private volatile ReportRateController rateController;
+    // 固定节拍：大于 0 时只在节拍时刻从报告来源拉取，两个节拍之间的位移、滚轮和按钮变化合并到下一个节拍
+    private volatile long reportPeriodNanos = 0;
+    // 下一个节拍的计划时间，按周期推进，不累计调度误差
+    private volatile long nextTickNanos;
+    // 上一次拉取报告来源时没有数据，此后在 signal() 之前不再按节拍或限速唤醒
+    private boolean sourceIdle = false;
+
+    private volatile ReportSource reportSource;
+    private volatile int sourceReportId;
+    private final byte[] sourceBuffer;
+    // 生产者向报告来源写入数据后置位，发送线程据此决定是否可以挂起
+    private volatile boolean sourceSignalled = false;
+    // 报告来源中最早一次未取走的通知时间，0 表示没有
+    private final AtomicLong sourceSignalNanos = new AtomicLong();
+
+    private volatile HidMetrics metrics;
+
+    // 发送线程上的延迟任务（例如点击后的按钮释放），同一时间只保留最近设置的一个
+    private final Object timerLock = new Object();
+    private Runnable timerTask;
+    private volatile long timerDueNanos;
+    private volatile boolean timerPending = false;
+    // 周期回调，同一时间只保留一个；按计划时间推进，不累计调度误差
+    private FrameCallback frameCallback;
+    private long frameIntervalNanos;
+    private volatile long nextFrameNanos;
+    private volatile boolean framesActive = false;
+
+    // head 只由发送线程推进，tail 只由生产者推进
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // 统计计数
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong skippedTickCount = new AtomicLong();
+
+    private volatile boolean running = false;
+    private volatile boolean consumerParked = false;
+    // 当前的发送线程；drainLoop 只在自己仍是当前发送线程时继续，重新启动后旧线程不会成为第二个消费者
+    private volatile Thread senderThread;
+    // 最早一个仍未退出的旧发送线程，可能仍阻塞在 sendReport 中，新线程等它退出后才接管队列
+    // 多次 stop/start 期间一直保留它，直到它退出；中间只在等待、从未接管队列的线程不需要记录
+    private Thread previousThread;
+
+    public HidReportSender(Transport transport, int capacity, int maxReportLength) {
+        this(transport, capacity, maxReportLength, runnable -> {
+            Thread thread = new Thread(runnable, "HidReportSender");
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+    }
+
+    public HidReportSender(Transport transport, int capacity, int maxReportLength, ThreadFactory threadFactory) {
+        if (capacity <= 0 || maxReportLength <= 0) {
+            throw new IllegalArgumentException("capacity 和 maxReportLength 必须大于 0");
+        }
+        this.transport = transport;
+        this.threadFactory = threadFactory;
+        this.maxReportLength = maxReportLength;
+
+        // 容量向上取整为 2 的幂，用位运算代替取模
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new byte[size][maxReportLength];
+        this.slotReportIds = new int[size];
+        this.slotLengths = new int[size];
+        this.slotQueuedNanos = new long[size];
+        this.sourceBuffer = new byte[maxReportLength];
+        this.wireBuffers = new byte[maxReportLength + 1][];
+        for (int length = 1; length <= maxReportLength; length++) {
+            wireBuffers[length] = new byte[length];
+        }
+    }
+
+    public void setReportSource(int reportId, ReportSource source) {
+        this.sourceReportId = reportId;
+        this.reportSource = source;
+    }
+
+    public void setMetrics(HidMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setBackoff(ReportSendBackoff backoff) {
+        this.backoff = backoff;
+    }
+
+    public void setRateController(ReportRateController rateController) {
+        this.rateController = rateController;
+    }
+
+    // 设置报告来源的发送节拍，0 表示有数据就立即发送；队列中的离散报告（按键等）不受节拍限制
+    public void setReportPeriod(long periodNanos) {
+        nextTickNanos = System.nanoTime();
+        reportPeriodNanos = Math.max(0, periodNanos);
+        if (consumerParked) {
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    public long getReportPeriodNanos() {
+        return reportPeriodNanos;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        // 此前提交的报告属于上一次连接，由新线程在接管队列时丢弃
+        long startTail = tail.get();
+        Thread previous = previousThread;
+        cancelScheduled();
+        stopFrames();
+        running = true;
+        Thread thread = threadFactory.newThread(() -> drainLoop(previous, startTail));
+        senderThread = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        cancelScheduled();
+        stopFrames();
+        Thread thread = senderThread;
+        senderThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread()) {
+                try {
+                    thread.join(STOP_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // 超时未退出（sendReport 阻塞）时由下一次 start 的新线程等待；更早的旧线程仍存活时继续等待它，
+            // 此时 thread 一直在等它、从未接管队列
+            if (previousThread == null || !previousThread.isAlive()) {
+                previousThread = thread.isAlive() ? thread : null;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean offer(int reportId, byte[] report) {
+        return offer(reportId, report, report.length);
+    }
+
+    // 生产者入队，只能由单一线程（或外部已串行化的多个线程）调用
+    // 报告内容会被拷贝进槽位，调用方返回后即可复用自己的数组
+    public boolean offer(int reportId, byte[] report, int length) {
+        checkLength(length);
+        byte[] slot = claim();
+        if (slot == null) {
+            return false;
+        }
+        System.arraycopy(report, 0, slot, 0, length);
+        return commit(reportId, length);
+    }
+
+    // 取得下一个空闲槽位，生产者直接把报告编码进去，避免中间数组
+    // 槽位长度为 maxReportLength；已停止或队列已满时返回 null（后者计入溢出）
+    // 与 offer 一样只能由单一生产者调用，且每次 claim 之后必须先 commit 再 claim
+    public byte[] claim() {
+        if (!running) {
+            return null;
+        }
+        long currentTail = tail.get();
+        if (currentTail - head.get() > mask) {
+            overflowCount.incrementAndGet();
+            return null;
+        }
+        return slots[(int) currentTail & mask];
+    }
+
+    // 发布 claim 得到的槽位中前 length 字节
+    public boolean commit(int reportId, int length) {
+        checkLength(length);
+        long currentTail = tail.get();
+        int index = (int) currentTail & mask;
+        slotReportIds[index] = reportId;
+        slotLengths[index] = length;
+        slotQueuedNanos[index] = System.nanoTime();
+        // volatile 写保证槽位内容先于 tail 对发送线程可见
+        tail.set(currentTail + 1);
+        enqueuedCount.incrementAndGet();
+
+        if (consumerParked) {
+            LockSupport.unpark(senderThread);
+        }
+        return true;
+    }
+
+    private void checkLength(int length) {
+        if (length <= 0 || length > maxReportLength) {
+            throw new IllegalArgumentException("报告长度超出范围: " + length);
+        }
+    }
+
+    // 通知发送线程报告来源中有新数据
+    public void signal() {
+        sourceSignalNanos.compareAndSet(0, System.nanoTime());
+        sourceSignalled = true;
+        if (consumerParked) {
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    // 在发送线程上延迟 delayNanos 后执行 task，取代尚未执行的上一个任务；未运行时返回 false
+    // 任务在两次发送之间执行，其中提交的报告按正常顺序发送
+    public boolean schedule(Runnable task, long delayNanos) {
+        if (!running) {
+            return false;
+        }
+        synchronized (timerLock) {
+            timerTask = task;
+            timerDueNanos = System.nanoTime() + Math.max(0, delayNanos);
+            timerPending = true;
+        }
+        // 唤醒挂起的发送线程，按新的截止时间重新计算等待时长
+        if (consumerParked) {
+            LockSupport.unpark(senderThread);
+        }
+        return true;
+    }
+
+    public void cancelScheduled() {
+        synchronized (timerLock) {
+            timerTask = null;
+            timerPending = false;
+        }
+    }
+
+    // 在发送线程上每隔 intervalNanos 调用一次 callback，第一帧立即执行；取代正在运行的上一个回调
+    public boolean startFrames(FrameCallback callback, long intervalNanos) {
+        if (!running || intervalNanos <= 0) {
+            return false;
+        }
+        synchronized (timerLock) {
+            frameCallback = callback;
+            frameIntervalNanos = intervalNanos;
+            nextFrameNanos = System.nanoTime();
+            framesActive = true;
+        }
+        if (consumerParked) {
+            LockSupport.unpark(senderThread);
+        }
+        return true;
+    }
+
+    public void stopFrames() {
+        synchronized (timerLock) {
+            frameCallback = null;
+            framesActive = false;
+        }
+    }
+
+    private void runDueFrame() {
+        FrameCallback callback;
+        long now = System.nanoTime();
+        synchronized (timerLock) {
+            if (!framesActive || now - nextFrameNanos < 0) {
+                return;
+            }
+            callback = frameCallback;
+            // 落后超过一帧时从当前时间重新开始，不连续补发
+            nextFrameNanos += frameIntervalNanos;
+            if (now - nextFrameNanos >= 0) {
+                nextFrameNanos = now + frameIntervalNanos;
+            }
+        }
+        boolean more;
+        try {
+            more = callback.onFrame(now);
+        } catch (RuntimeException e) {
+            more = false;
+        }
+        if (!more) {
+            synchronized (timerLock) {
+                if (frameCallback == callback) {
+                    frameCallback = null;
+                    framesActive = false;
+                }
+            }
+        }
+    }
+
+    private void runDueTask() {
+        Runnable task;
+        synchronized (timerLock) {
+            if (!timerPending || System.nanoTime() - timerDueNanos < 0) {
+                return;
+            }
+            task = timerTask;
+            timerTask = null;
+            timerPending = false;
+        }
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // 任务的异常不能结束发送线程
+        }
+    }
+
+    private boolean isCurrentSender() {
+        return running && senderThread == Thread.currentThread();
+    }
+
+    private void drainLoop(Thread previous, long startTail) {
+        // 等上一个发送线程完全退出后再接管队列，任何时候只有一个消费者推进 head 和拉取报告来源
+        while (previous != null && previous.isAlive() && isCurrentSender()) {
+            try {
+                previous.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        if (!isCurrentSender()) {
+            return;
+        }
+        // 丢弃上一次连接遗留的报告，失败计数和速率按连接重新开始
+        head.set(startTail);
+        ReportSendBackoff currentBackoff = backoff;
+        if (currentBackoff != null) {
+            currentBackoff.reset();
+        }
+        ReportRateController currentController = rateController;
+        if (currentController != null) {
+            currentController.reset();
+        }
+        nextTickNanos = System.nanoTime();
+        sourceIdle = false;
+
+        int idleSpins = 0;
+        while (isCurrentSender()) {
+            if (timerPending) {
+                runDueTask();
+            }
+            if (framesActive) {
+                runDueFrame();
+            }
+            long currentHead = head.get();
+            if (currentHead == tail.get()) {
+                // 队列中的离散报告优先，空闲时才从报告来源拉取合并后的报告；限速期间等到允许时再拉取
+                // 报告来源空闲且没有新通知时不按节拍空转，和未设置节拍时一样挂起等待 signal()
+                if (!sourceIdle || sourceSignalled) {
+                    long paceNanos = paceNanos();
+                    if (paceNanos > 0) {
+                        waitForPace(currentHead, paceNanos);
+                        continue;
+                    }
+                    if (pollSource()) {
+                        idleSpins = 0;
+                        continue;
+                    }
+                }
+                if (idleSpins < SPIN_BEFORE_PARK) {
+                    idleSpins++;
+                    Thread.yield();
+                } else {
+                    waitForReports(currentHead);
+                }
+                continue;
+            }
+            idleSpins = 0;
+
+            int index = (int) currentHead & mask;
+            HidMetrics currentMetrics = metrics;
+            if (currentMetrics != null) {
+                currentMetrics.onDequeued(slotQueuedNanos[index], System.nanoTime());
+            }
+            if (!transmit(slotReportIds[index], slots[index], slotLengths[index])) {
+                return;
+            }
+            // sendReport 返回后才释放槽位，生产者此后才能覆盖该缓冲区；已被取代的旧线程不再推进 head
+            if (!isCurrentSender()) {
+                return;
+            }
+            head.set(currentHead + 1);
+        }
+    }
+
+    private boolean pollSource() {
+        ReportSource source = reportSource;
+        if (source == null || !isCurrentSender()) {
+            return false;
+        }
+        sourceSignalled = false;
+        long period = reportPeriodNanos;
+        long tickNanos = nextTickNanos;
+        int length = source.poll(sourceBuffer);
+        sourceIdle = length <= 0;
+        if (period > 0) {
+            nextTickNanos = tickNanos + period;
+            if (sourceIdle) {
+                skippedTickCount.incrementAndGet();
+            }
+        }
+        if (length <= 0) {
+            return false;
+        }
+        // 合并后的报告按最早一次通知计算排队时间
+        long signalNanos = sourceSignalNanos.getAndSet(0);
+        HidMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            long now = System.nanoTime();
+            if (signalNanos != 0) {
+                currentMetrics.onDequeued(signalNanos, now);
+            }
+            if (period > 0) {
+                currentMetrics.onTick(tickNanos, now);
+            }
+        }
+        return transmit(sourceReportId, sourceBuffer, length);
+    }
+
+    // 发送一个报告，返回 false 表示本线程已被取代、没有发送
+    private boolean transmit(int reportId, byte[] report, int length) {
+        // 复用发送缓冲区之前确认仍是当前发送线程
+        if (!isCurrentSender()) {
+            return false;
+        }
+        byte[] wire = wireBuffers[length];
+        System.arraycopy(report, 0, wire, 0, length);
+        HidMetrics currentMetrics = metrics;
+        ReportRateController currentController = rateController;
+        long sendStartNanos = System.nanoTime();
+        boolean result;
+        try {
+            result = transport.sendReport(reportId, wire);
+        } catch (RuntimeException e) {
+            result = false;
+        }
+        long sendEndNanos = System.nanoTime();
+        if (currentMetrics != null) {
+            currentMetrics.onSendComplete(sendStartNanos, sendEndNanos, result);
+        }
+        if (currentController != null) {
+            currentController.onSendComplete(sendStartNanos, sendEndNanos, result);
+        }
+        ReportSendBackoff currentBackoff = backoff;
+        if (result) {
+            sentCount.incrementAndGet();
+            if (currentBackoff != null) {
+                currentBackoff.onSuccess();
+            }
+            return true;
+        }
+        failedCount.incrementAndGet();
+        if (currentBackoff != null) {
+            long delayNanos = currentBackoff.onFailure();
+            // stop() 的 unpark 会提前结束等待
+            if (delayNanos > 0 && isCurrentSender()) {
+                LockSupport.parkNanos(this, delayNanos);
+            }
+        }
+        return true;
+    }
+
+    // 距离下一次允许拉取报告来源的纳秒数：固定节拍和速率控制取较晚者
+    private long paceNanos() {
+        if (reportSource == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long delay = tickDelayNanos(now);
+        ReportRateController currentController = rateController;
+        if (currentController != null) {
+            delay = Math.max(delay, currentController.delayNanos(now));
+        }
+        return delay;
+    }
+
+    // 距离下一个节拍的纳秒数，未启用固定节拍时为 0
+    // 空闲挂起期间、或发送过慢落后至少一个周期时错过的节拍不连续补发，计入空节拍后对齐到之后的第一个节拍，
+    // 空闲后的第一个报告最多等待一个周期；落后不足一个周期时立即发送
+    private long tickDelayNanos(long now) {
+        long period = reportPeriodNanos;
+        if (period <= 0) {
+            return 0;
+        }
+        long late = now - nextTickNanos;
+        if (late >= period) {
+            long missed = late / period;
+            nextTickNanos += (missed + 1) * period;
+            skippedTickCount.addAndGet(missed + 1);
+        }
+        return nextTickNanos - now;
+    }
+
+    private void waitForReports(long currentHead) {
+        consumerParked = true;
+        // 挂起前再检查一次，避免错过生产者在设置标志之前发布的报告
+        long parkNanos = limitParkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        if (isCurrentSender() && currentHead == tail.get() && !sourceSignalled && parkNanos > 0) {
+            LockSupport.parkNanos(this, parkNanos);
+        }
+        consumerParked = false;
+    }
+
+    // 限速等待：期间报告来源中的新数据继续合并，等待结束后一次取出；队列中的离散报告仍然立即发送
+    private void waitForPace(long currentHead, long paceNanos) {
+        consumerParked = true;
+        long parkNanos = limitParkNanos(paceNanos);
+        if (isCurrentSender() && currentHead == tail.get() && parkNanos > 0) {
+            LockSupport.parkNanos(this, parkNanos);
+        }
+        consumerParked = false;
+    }
+
+    // 挂起时长不超过延迟任务和下一帧的时间
+    private long limitParkNanos(long parkNanos) {
+        if (timerPending) {
+            parkNanos = Math.min(parkNanos, timerDueNanos - System.nanoTime());
+        }
+        if (framesActive) {
+            parkNanos = Math.min(parkNanos, nextFrameNanos - System.nanoTime());
+        }
+        return parkNanos;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public int getPendingCount() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    // 固定节拍模式下没有发出报告的节拍数
+    public long getSkippedTickCount() {
+        return skippedTickCount.get();
+    }
+}
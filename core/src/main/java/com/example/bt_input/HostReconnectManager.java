@@ -0,0 +1,170 @@
+package com.example.bt_input;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// 回连管理：记住最后一次连接成功的主机，HID 应用注册完成后主动向它发起连接，
+// 不必等待主机在可发现期间重新搜索并连接
+//
+// connect 只表示连接请求已发出，结果通过 onConnected 返回；每次请求后等待一段时间，
+// 仍未连接则按指数增长的间隔重试，达到次数上限后放弃并通知 giveUpListener（例如改为开启可发现性等待主机连接）
+public class HostReconnectManager {
+
+    // 发起到指定地址的连接，返回请求是否已发出
+    public interface Connector {
+        boolean connect(String address);
+    }
+
+    // 主机地址的持久化存储，saveLastHost(null) 表示清除
+    public interface HostStore {
+        String loadLastHost();
+        void saveLastHost(String address);
+    }
+
+    private static final long DEFAULT_INITIAL_DELAY_MS = 1000;
+    private static final long DEFAULT_MAX_DELAY_MS = 8000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private final Connector connector;
+    private final HostStore store;
+    private final ScheduledExecutorService executor;
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final int maxAttempts;
+
+    // 以下状态只在 synchronized 方法内访问
+    private String lastHost;
+    private boolean connected = false;
+    // 本轮回连是否仍有效，取消后已在排队的尝试直接返回
+    private boolean active = false;
+    private int attempts = 0;
+    private ScheduledFuture<?> pendingAttempt;
+    private Runnable giveUpListener;
+
+    public HostReconnectManager(Connector connector, HostStore store, ScheduledExecutorService executor) {
+        this(connector, store, executor, DEFAULT_INITIAL_DELAY_MS, DEFAULT_MAX_DELAY_MS, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public HostReconnectManager(Connector connector, HostStore store, ScheduledExecutorService executor,
+                                long initialDelayMs, long maxDelayMs, int maxAttempts) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs || maxAttempts < 1) {
+            throw new IllegalArgumentException("无效的回连参数");
+        }
+        this.connector = connector;
+        this.store = store;
+        this.executor = executor;
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+        this.lastHost = store.loadLastHost();
+    }
+
+    // 在回连执行线程上调用
+    public synchronized void setGiveUpListener(Runnable listener) {
+        this.giveUpListener = listener;
+    }
+
+    public synchronized boolean hasKnownHost() {
+        return lastHost != null;
+    }
+
+    public synchronized String getLastHost() {
+        return lastHost;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    // HID 应用注册完成时调用：立即向上次的主机发起连接
+    public synchronized void onRegistered() {
+        cancelPending();
+        active = false;
+        attempts = 0;
+        if (lastHost == null || connected) {
+            return;
+        }
+        active = true;
+        scheduleAttempt(0);
+    }
+
+    public synchronized void onConnected(String address) {
+        connected = true;
+        active = false;
+        cancelPending();
+        if (address != null && !address.equals(lastHost)) {
+            lastHost = address;
+            store.saveLastHost(address);
+        }
+    }
+
+    // 主机断开后不主动回连，避免主机关机或用户主动断开时反复唤醒对方
+    public synchronized void onDisconnected() {
+        connected = false;
+    }
+
+    // 主机删除了配对（虚拟电缆拔出）：忘记该主机，下次启动重新走可发现流程
+    public synchronized void forget(String address) {
+        if (lastHost == null || (address != null && !address.equals(lastHost))) {
+            return;
+        }
+        cancelPending();
+        active = false;
+        lastHost = null;
+        store.saveLastHost(null);
+    }
+
+    // 注销或停止服务时调用
+    public synchronized void cancel() {
+        cancelPending();
+        active = false;
+        connected = false;
+    }
+
+    private synchronized void attempt() {
+        pendingAttempt = null;
+        if (!active || connected) {
+            return;
+        }
+        if (attempts >= maxAttempts) {
+            active = false;
+            if (giveUpListener != null) {
+                giveUpListener.run();
+            }
+            return;
+        }
+        attempts++;
+        // 请求未能发出（蓝牙栈可能尚未就绪）与请求超时一样按退避间隔重试；
+        // 最后一次请求之后同样等待一个间隔，再判断是否放弃
+        connector.connect(lastHost);
+        scheduleAttempt(delayForAttempt(attempts, initialDelayMs, maxDelayMs));
+    }
+
+    // 服务释放后调度线程已关闭，此时到达的注册回调不再回连
+    private void scheduleAttempt(long delayMs) {
+        if (executor.isShutdown()) {
+            active = false;
+            return;
+        }
+        try {
+            pendingAttempt = executor.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            active = false;
+        }
+    }
+
+    private void cancelPending() {
+        if (pendingAttempt != null) {
+            pendingAttempt.cancel(false);
+            pendingAttempt = null;
+        }
+    }
+
+    // 第 attempt 次请求之后等待的毫秒数：initial, 2*initial, 4*initial ... 不超过 max
+    static long delayForAttempt(int attempt, long initialDelayMs, long maxDelayMs) {
+        int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+        return Math.min(maxDelayMs, initialDelayMs << exponent);
+    }
+}
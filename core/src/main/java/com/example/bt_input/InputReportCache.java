@@ -0,0 +1,60 @@
+package com.example.bt_input;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 每个报告 ID 当前输入报告的快照，GET_REPORT 直接从这里回复，不与发送路径争用 producerLock
+// 快照数组一经发布就不再修改，更新时整体替换；读取方不要修改返回的数组
+public class InputReportCache {
+
+    // 报告 ID 为 1 字节
+    private static final int MAX_REPORT_IDS = 256;
+
+    private final AtomicReferenceArray<byte[]> reports = new AtomicReferenceArray<>(MAX_REPORT_IDS);
+
+    // 按描述符中的输入报告重建缓存，所有报告回到空闲状态（全 0）
+    public void reset(HidDescriptor descriptor) {
+        for (int id = 0; id < MAX_REPORT_IDS; id++) {
+            int length = descriptor.getInputReportLength(id);
+            reports.set(id, length > 0 ? new byte[length] : null);
+        }
+    }
+
+    // 记录刚编码的报告；描述符中不存在的 ID 被忽略
+    public void update(int reportId, byte[] source, int length) {
+        byte[] current = reports.get(reportId);
+        if (current == null) {
+            return;
+        }
+        byte[] snapshot = new byte[current.length];
+        System.arraycopy(source, 0, snapshot, 0, Math.min(length, snapshot.length));
+        reports.set(reportId, snapshot);
+    }
+
+    // 相对位移鼠标的当前输入报告只有按钮状态，位移与滚轮为 0；按钮变化时调用
+    public void setMouseButtons(HidDescriptor layout, byte buttons) {
+        int reportId = layout.getMouseReportId();
+        if (reports.get(reportId) == null) {
+            return;
+        }
+        MouseReportFormat format = layout.getMouseFormat();
+        byte[] snapshot = new byte[format.reportLength];
+        format.encode(snapshot, buttons, 0, 0, 0);
+        reports.set(reportId, snapshot);
+    }
+
+    // 某个报告回到空闲状态
+    public void clear(int reportId) {
+        byte[] current = reports.get(reportId);
+        if (current != null) {
+            reports.set(reportId, new byte[current.length]);
+        }
+    }
+
+    // 当前报告，描述符中没有该 ID 时返回 null
+    public byte[] get(int reportId) {
+        if (reportId < 0 || reportId >= MAX_REPORT_IDS) {
+            return null;
+        }
+        return reports.get(reportId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bt_input;
+
+// 键盘报告状态表：记录当前按下的修饰键和普通键，生成兼容引导协议的 8 字节键盘报告
+// 报告最多同时携带 6 个普通键 (6KRO)，超出时按 HID 规范上报 ErrorRollOver
+// 只有状态真正变化时 setKey 才返回 true，调用方据此只发送差异
+public class KeyboardReportState {
+
+    public static final int REPORT_LENGTH = 8;
+    public static final int MAX_KEYS = 6;
+
+    // 修饰键用法 LeftControl(0xE0) .. RightGUI(0xE7)
+    private static final int MODIFIER_FIRST = 0xE0;
+    private static final int MODIFIER_LAST = 0xE7;
+    private static final byte ERROR_ROLL_OVER = 0x01;
+    // 描述符中键码数组的 Logical Maximum，超出的用法主机不会识别
+    public static final int MAX_KEY_USAGE = 0x65;
+    // 同时按下的普通键上限，超过 6 个时仍需记录以便松开后恢复正确状态
+    private static final int MAX_TRACKED_KEYS = 16;
+
+    private byte modifiers = 0;
+    // 按下顺序排列的普通键用法
+    private final int[] pressedKeys = new int[MAX_TRACKED_KEYS];
+    private int pressedCount = 0;
+
+    // 更新一个键的状态，返回报告内容是否发生变化
+    public boolean setKey(int usage, boolean pressed) {
+        if (usage >= MODIFIER_FIRST && usage <= MODIFIER_LAST) {
+            byte bit = (byte) (1 << (usage - MODIFIER_FIRST));
+            byte updated = (byte) (pressed ? (modifiers | bit) : (modifiers & ~bit));
+            boolean changed = updated != modifiers;
+            modifiers = updated;
+            return changed;
+        }
+        checkUsage(usage);
+
+        int index = indexOf(usage);
+        if (pressed) {
+            if (index >= 0 || pressedCount == MAX_TRACKED_KEYS) {
+                return false;
+            }
+            pressedKeys[pressedCount++] = usage;
+            // 第 7 个及以后的键只改变 ErrorRollOver 状态
+            return pressedCount <= MAX_KEYS + 1;
+        }
+
+        if (index < 0) {
+            return false;
+        }
+        boolean wasRollOver = pressedCount > MAX_KEYS;
+        System.arraycopy(pressedKeys, index + 1, pressedKeys, index, pressedCount - index - 1);
+        pressedCount--;
+        // 仍处于 ErrorRollOver 时报告内容不变
+        return !(wasRollOver && pressedCount > MAX_KEYS);
+    }
+
+    // 与 setKey 的返回值相同但不修改状态，调用方可以先确认需要发送报告再取得发送槽位
+    public boolean wouldChange(int usage, boolean pressed) {
+        if (usage >= MODIFIER_FIRST && usage <= MODIFIER_LAST) {
+            byte bit = (byte) (1 << (usage - MODIFIER_FIRST));
+            return pressed == ((modifiers & bit) == 0);
+        }
+        checkUsage(usage);
+
+        int index = indexOf(usage);
+        if (pressed) {
+            return index < 0 && pressedCount <= MAX_KEYS;
+        }
+        return index >= 0 && pressedCount - 1 <= MAX_KEYS;
+    }
+
+    public void releaseAll() {
+        modifiers = 0;
+        pressedCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return modifiers == 0 && pressedCount == 0;
+    }
+
+    // 写入 8 字节报告：修饰键、保留字节、6 个键码
+    public int encode(byte[] report) {
+        report[0] = modifiers;
+        report[1] = 0;
+        boolean rollOver = pressedCount > MAX_KEYS;
+        for (int i = 0; i < MAX_KEYS; i++) {
+            if (rollOver) {
+                report[2 + i] = ERROR_ROLL_OVER;
+            } else {
+                report[2 + i] = i < pressedCount ? (byte) pressedKeys[i] : 0;
+            }
+        }
+        return REPORT_LENGTH;
+    }
+
+    private static void checkUsage(int usage) {
+        if (usage <= ERROR_ROLL_OVER || usage > MAX_KEY_USAGE) {
+            throw new IllegalArgumentException("无效的键盘用法: " + usage);
+        }
+    }
+
+    private int indexOf(int usage) {
+        for (int i = 0; i < pressedCount; i++) {
+            if (pressedKeys[i] == usage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bt_input;
+
+// 惯性滚动：手指抬起后按抬起时的速度继续滚动，速度按指数衰减，以固定帧间隔输出滚轮/水平滚动计数
+// 帧由外部驱动（真机上为发送线程），每帧按实际经过的时间积分，帧迟到时滚动总距离不变
+// 任何新的触摸都应调用 cancel()，之后的帧不再输出
+public class KineticScroller {
+
+    public interface FrameRequester {
+        // 请求每隔 intervalMs 调用一次 onFrame，直到 onFrame 返回 false；无法调度时返回 false
+        boolean requestFrames(long intervalMs);
+    }
+
+    public static final long DEFAULT_FRAME_INTERVAL_MS = 16;
+    // 速度衰减到 1/e 的时间
+    public static final float DEFAULT_TIME_CONSTANT_MS = 325f;
+    // 速度单位为格/秒：低于 MIN_FLING 不启动，低于 STOP 时停止，超过 MAX 时截断
+    public static final float DEFAULT_MIN_FLING_VELOCITY = 3f;
+    public static final float DEFAULT_STOP_VELOCITY = 0.5f;
+    public static final float DEFAULT_MAX_VELOCITY = 200f;
+
+    private static final long NO_FRAME = Long.MIN_VALUE;
+
+    private final ScrollMotionProcessor.ScrollOutput output;
+    private final FrameRequester requester;
+
+    private long frameIntervalMs = DEFAULT_FRAME_INTERVAL_MS;
+    private float timeConstantMs = DEFAULT_TIME_CONSTANT_MS;
+    private int wheelCountsPerDetent = 1;
+    private int panCountsPerDetent = 1;
+
+    // 以下状态只在 synchronized 内访问
+    private boolean active = false;
+    // 格/毫秒
+    private double velocityWheel;
+    private double velocityPan;
+    private long lastFrameNanos = NO_FRAME;
+    private final RemainderAccumulator wheelRemainder = new RemainderAccumulator();
+    private final RemainderAccumulator panRemainder = new RemainderAccumulator();
+    private long flingCount = 0;
+    private long frameCount = 0;
+
+    public KineticScroller(ScrollMotionProcessor.ScrollOutput output, FrameRequester requester) {
+        this.output = output;
+        this.requester = requester;
+    }
+
+    public synchronized void setFrameIntervalMs(long frameIntervalMs) {
+        this.frameIntervalMs = frameIntervalMs;
+    }
+
+    public synchronized void setTimeConstantMs(float timeConstantMs) {
+        this.timeConstantMs = timeConstantMs;
+    }
+
+    // 每格对应的计数，由主机协商的分辨率倍增决定
+    public synchronized void setCountsPerDetent(int wheel, int pan) {
+        this.wheelCountsPerDetent = Math.max(1, wheel);
+        this.panCountsPerDetent = Math.max(1, pan);
+    }
+
+    // 以抬起时的速度（格/秒，滚轮向上、水平向右为正）开始惯性滚动，速度太小时不启动
+    public synchronized boolean fling(float wheelPerSecond, float panPerSecond) {
+        active = false;
+        float wheel = clamp(wheelPerSecond);
+        float pan = clamp(panPerSecond);
+        if (Math.hypot(wheel, pan) < DEFAULT_MIN_FLING_VELOCITY) {
+            return false;
+        }
+        velocityWheel = wheel / 1000.0;
+        velocityPan = pan / 1000.0;
+        lastFrameNanos = NO_FRAME;
+        wheelRemainder.reset();
+        panRemainder.reset();
+        active = true;
+        if (!requester.requestFrames(frameIntervalMs)) {
+            active = false;
+            return false;
+        }
+        flingCount++;
+        return true;
+    }
+
+    public synchronized void cancel() {
+        active = false;
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    public synchronized long getFlingCount() {
+        return flingCount;
+    }
+
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    // 帧回调，frameTimeNanos 为本帧的实际时间；返回 false 表示已停止，不再需要帧
+    public synchronized boolean onFrame(long frameTimeNanos) {
+        if (!active) {
+            return false;
+        }
+        // 第一帧按一个完整的帧间隔积分
+        double dtMs = lastFrameNanos == NO_FRAME ? frameIntervalMs : (frameTimeNanos - lastFrameNanos) / 1_000_000.0;
+        lastFrameNanos = frameTimeNanos;
+        if (dtMs <= 0) {
+            return true;
+        }
+        frameCount++;
+
+        // 指数衰减速度在 dt 内的积分：v * tau * (1 - e^(-dt/tau))
+        double decay = Math.exp(-dtMs / timeConstantMs);
+        double travel = timeConstantMs * (1 - decay);
+        int wheel = wheelRemainder.add((float) (velocityWheel * travel * wheelCountsPerDetent));
+        int pan = panRemainder.add((float) (velocityPan * travel * panCountsPerDetent));
+        velocityWheel *= decay;
+        velocityPan *= decay;
+        if (wheel != 0 || pan != 0) {
+            output.onScroll(wheel, pan);
+        }
+
+        if (Math.hypot(velocityWheel, velocityPan) * 1000 < DEFAULT_STOP_VELOCITY) {
+            active = false;
+            return false;
+        }
+        return true;
+    }
+
+    private static float clamp(float velocity) {
+        return Math.max(-DEFAULT_MAX_VELOCITY, Math.min(DEFAULT_MAX_VELOCITY, velocity));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bt_input;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 对数-线性分桶的延迟直方图（HDR 风格）：每个 2 的幂区间再分成 32 个子桶，相对误差约 3%
+// record 不分配内存、不加锁，可以在热路径上常开；读取端得到的是近似一致的快照
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 可记录的最大值约 1100 秒，超出的值计入最后一个桶
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_TRACKABLE_NANOS = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            // 不同时钟源之间的微小误差，按 0 记录
+            nanos = 0;
+        }
+        long value = Math.min(nanos, MAX_TRACKABLE_NANOS);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    // 返回不小于 percentile% 样本的最小桶的上界，percentile 取 0..100
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    // 一行摘要，单位微秒
+    public String summary() {
+        return "n=" + getCount()
+                + " p50=" + micros(getValueAtPercentile(50))
+                + " p90=" + micros(getValueAtPercentile(90))
+                + " p99=" + micros(getValueAtPercentile(99))
+                + " p99.9=" + micros(getValueAtPercentile(99.9))
+                + " max=" + micros(getMaxNanos()) + "us";
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    // 小于 64 的值一一对应；之后每个 2 的幂区间占 32 个桶
+    static int bucketIndex(long value) {
+        int magnitude = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1));
+        return (magnitude << SUB_BUCKET_BITS) + (int) (value >>> magnitude);
+    }
+
+    static long bucketUpperBound(int index) {
+        int magnitude = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - ((long) magnitude << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
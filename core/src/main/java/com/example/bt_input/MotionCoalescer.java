@@ -0,0 +1,144 @@
+package com.example.bt_input;
+
+// 鼠标位移合并器：发送链路繁忙时累加待发送的 X/Y/滚轮/水平滚动位移，每个发送时隙只输出一个报告
+// 超出描述符范围的累加值会拆分到多个报告中；按钮状态变化前后的位移永远不会合并
+public class MotionCoalescer {
+
+    // 最多缓存的按钮状态分段数，只有在按钮快速连续变化且链路完全阻塞时才会用满
+    private static final int MAX_SEGMENTS = 16;
+
+    private MouseReportFormat format;
+
+    // 分段环形缓冲：同一分段内的位移具有相同的按钮状态，可以合并
+    private final byte[] segmentButtons = new byte[MAX_SEGMENTS];
+    private final int[] segmentX = new int[MAX_SEGMENTS];
+    private final int[] segmentY = new int[MAX_SEGMENTS];
+    private final int[] segmentWheel = new int[MAX_SEGMENTS];
+    private final int[] segmentPan = new int[MAX_SEGMENTS];
+    // 携带按钮变化的分段保持原样发送，后续位移不能并入，否则会改变按下/抬起时的光标位置
+    private final boolean[] segmentSealed = new boolean[MAX_SEGMENTS];
+    private int first = 0;
+    private int count = 0;
+
+    // 最近一次被接受的报告的按钮状态
+    private byte currentButtons = 0;
+
+    private long addedCount = 0;
+    private long coalescedCount = 0;
+    private long droppedCount = 0;
+
+    public MotionCoalescer(MouseReportFormat format) {
+        this.format = format;
+    }
+
+    // 切换报告布局（注册 HID 应用时），同时清空未发送的数据
+    public synchronized void setFormat(MouseReportFormat format) {
+        this.format = format;
+        clear();
+    }
+
+    public boolean add(byte buttons, int deltaX, int deltaY, int wheel) {
+        return add(buttons, deltaX, deltaY, wheel, 0);
+    }
+
+    // 加入一次位移，返回 false 表示分段缓冲已满被丢弃
+    public synchronized boolean add(byte buttons, int deltaX, int deltaY, int wheel, int pan) {
+        // 布局中没有的轴直接丢弃，纯滚动不会在引导协议下产生空报告
+        if (!format.hasWheel) {
+            wheel = 0;
+        }
+        if (!format.smoothScroll) {
+            pan = 0;
+        }
+        boolean buttonsChanged = buttons != currentButtons;
+
+        if (!buttonsChanged && deltaX == 0 && deltaY == 0 && wheel == 0 && pan == 0) {
+            return true;
+        }
+        addedCount++;
+
+        if (count > 0 && !buttonsChanged) {
+            int last = (first + count - 1) % MAX_SEGMENTS;
+            if (!segmentSealed[last]) {
+                segmentX[last] += deltaX;
+                segmentY[last] += deltaY;
+                segmentWheel[last] += wheel;
+                segmentPan[last] += pan;
+                coalescedCount++;
+                return true;
+            }
+        }
+
+        if (count == MAX_SEGMENTS) {
+            droppedCount++;
+            return false;
+        }
+
+        // 只有被接受的按钮状态才算已加入，被丢弃的按下/抬起在下次加入时仍视为变化重新发送
+        currentButtons = buttons;
+        int index = (first + count) % MAX_SEGMENTS;
+        segmentButtons[index] = buttons;
+        segmentX[index] = deltaX;
+        segmentY[index] = deltaY;
+        segmentWheel[index] = wheel;
+        segmentPan[index] = pan;
+        segmentSealed[index] = buttonsChanged;
+        count++;
+        return true;
+    }
+
+    // 加入滚轮/水平滚动，沿用当前按钮状态
+    public synchronized boolean addScroll(int wheel, int pan) {
+        return add(currentButtons, 0, 0, wheel, pan);
+    }
+
+    // 按当前布局取出下一个报告写入 report，返回报告长度，没有待发送数据时返回 0
+    public synchronized int poll(byte[] report) {
+        if (count == 0) {
+            return 0;
+        }
+
+        int index = first;
+        int x = format.clampDelta(segmentX[index]);
+        int y = format.clampDelta(segmentY[index]);
+        // 布局不支持滚轮或水平滚动时一次丢弃该轴，不拆分成多个空报告
+        int wheel = format.hasWheel ? MouseReportFormat.clampWheel(segmentWheel[index]) : segmentWheel[index];
+        int pan = format.smoothScroll ? MouseReportFormat.clampWheel(segmentPan[index]) : segmentPan[index];
+        int length = format.encode(report, segmentButtons[index], x, y, wheel, pan);
+
+        segmentX[index] -= x;
+        segmentY[index] -= y;
+        segmentWheel[index] -= wheel;
+        segmentPan[index] -= pan;
+        // 拆分出的后续报告与按钮变化无关，允许继续合并
+        segmentSealed[index] = false;
+
+        if (segmentX[index] == 0 && segmentY[index] == 0 && segmentWheel[index] == 0 && segmentPan[index] == 0) {
+            first = (first + 1) % MAX_SEGMENTS;
+            count--;
+        }
+        return length;
+    }
+
+    public synchronized boolean hasPending() {
+        return count > 0;
+    }
+
+    public synchronized void clear() {
+        first = 0;
+        count = 0;
+        currentButtons = 0;
+    }
+
+    public synchronized long getAddedCount() {
+        return addedCount;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
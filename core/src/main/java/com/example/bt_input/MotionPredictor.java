@@ -0,0 +1,72 @@
+package com.example.bt_input;
+
+// 运动预测：按最近采样的最小二乘速度把位置外推 lookahead 毫秒，补偿触摸采样、蓝牙传输和主机刷新带来的滞后
+// 防止过冲：手指停下（最后一个采样之后超过停止时间）时不预测；预测距离不超过手指在最近 lookahead 毫秒内
+// 实际移动的距离，减速时随之缩短；抬起时由调用方撤回全部预测偏移，最终位置与手指一致
+// lookahead 为 0 时关闭
+public class MotionPredictor {
+
+    // 估计速度所用的时间窗，比抬起惯性用的更短，转向时更快跟上
+    public static final long DEFAULT_HORIZON_MS = 50;
+    public static final long MAX_LOOKAHEAD_MS = 50;
+
+    private final VelocityEstimator velocity = new VelocityEstimator();
+    private long lookaheadMs = 0;
+    private float offsetX;
+    private float offsetY;
+
+    public MotionPredictor() {
+        velocity.setHorizonMs(DEFAULT_HORIZON_MS);
+    }
+
+    public void setLookaheadMs(long lookaheadMs) {
+        this.lookaheadMs = Math.max(0, Math.min(MAX_LOOKAHEAD_MS, lookaheadMs));
+    }
+
+    public long getLookaheadMs() {
+        return lookaheadMs;
+    }
+
+    public boolean isEnabled() {
+        return lookaheadMs > 0;
+    }
+
+    public void reset() {
+        velocity.reset();
+        offsetX = 0;
+        offsetY = 0;
+    }
+
+    public void addSample(long eventTimeMs, float x, float y) {
+        velocity.addSample(eventTimeMs, x, y);
+    }
+
+    // 按 nowMs 时的速度重新计算预测偏移，返回是否有预测
+    public boolean update(long nowMs) {
+        offsetX = 0;
+        offsetY = 0;
+        if (lookaheadMs <= 0 || !velocity.compute(nowMs)) {
+            return false;
+        }
+        float x = velocity.getVelocityX() * lookaheadMs;
+        float y = velocity.getVelocityY() * lookaheadMs;
+        float length = (float) Math.hypot(x, y);
+        float limit = velocity.recentDistance(lookaheadMs);
+        if (length > limit) {
+            float scale = length > 0 ? limit / length : 0;
+            x *= scale;
+            y *= scale;
+        }
+        offsetX = x;
+        offsetY = y;
+        return true;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bt_input;
+
+// 鼠标输入报告布局，必须与注册时使用的 HID 描述符一致
+public enum MouseReportFormat {
+    // 按钮(1) + X(1) + Y(1) + 滚轮(1)，X/Y 范围 -127..127
+    STANDARD(false, false),
+    // 按钮(1) + X(2, 小端) + Y(2, 小端) + 滚轮(1)，X/Y 范围 -32767..32767
+    HIGH_RESOLUTION(false, true),
+    // 标准布局之后追加水平滚动(1)，滚轮和水平滚动支持分辨率倍增
+    STANDARD_SMOOTH_SCROLL(true, false),
+    // 16 位 X/Y 布局之后追加水平滚动(1)，滚轮和水平滚动支持分辨率倍增
+    HIGH_RESOLUTION_SMOOTH_SCROLL(true, true),
+    // 启动协议鼠标报告：按钮(1) + X(1) + Y(1)，没有滚轮；只在主机切换到启动协议时使用，不用于注册描述符
+    BOOT(false, false, false);
+
+    // 滚轮和水平滚动在所有布局中都是 8 位
+    public static final int MAX_WHEEL = 127;
+
+    public final boolean smoothScroll;
+    public final boolean wideMotion;
+    public final boolean hasWheel;
+    public final int reportLength;
+    public final int maxDelta;
+
+    MouseReportFormat(boolean smoothScroll, boolean wideMotion) {
+        this(smoothScroll, wideMotion, true);
+    }
+
+    MouseReportFormat(boolean smoothScroll, boolean wideMotion, boolean hasWheel) {
+        this.smoothScroll = smoothScroll;
+        this.wideMotion = wideMotion;
+        this.hasWheel = hasWheel;
+        this.reportLength = (wideMotion ? 5 : 3) + (hasWheel ? 1 : 0) + (smoothScroll ? 1 : 0);
+        this.maxDelta = wideMotion ? 32767 : 127;
+    }
+
+    public static MouseReportFormat of(boolean wideMotion, boolean smoothScroll) {
+        if (smoothScroll) {
+            return wideMotion ? HIGH_RESOLUTION_SMOOTH_SCROLL : STANDARD_SMOOTH_SCROLL;
+        }
+        return wideMotion ? HIGH_RESOLUTION : STANDARD;
+    }
+
+    public int encode(byte[] report, byte buttons, int deltaX, int deltaY, int wheel) {
+        return encode(report, buttons, deltaX, deltaY, wheel, 0);
+    }
+
+    // 把已限制在范围内的数值写入 report，返回报告长度；不支持滚轮/水平滚动的布局忽略 wheel/pan
+    public int encode(byte[] report, byte buttons, int deltaX, int deltaY, int wheel, int pan) {
+        int offset = 0;
+        report[offset++] = buttons;
+        if (wideMotion) {
+            report[offset++] = (byte) deltaX;
+            report[offset++] = (byte) (deltaX >> 8);
+            report[offset++] = (byte) deltaY;
+            report[offset++] = (byte) (deltaY >> 8);
+        } else {
+            report[offset++] = (byte) deltaX;
+            report[offset++] = (byte) deltaY;
+        }
+        if (hasWheel) {
+            report[offset++] = (byte) wheel;
+        }
+        if (smoothScroll) {
+            report[offset++] = (byte) pan;
+        }
+        return offset;
+    }
+
+    public int clampDelta(int delta) {
+        return Math.max(-maxDelta, Math.min(maxDelta, delta));
+    }
+
+    public static int clampWheel(int wheel) {
+        return Math.max(-MAX_WHEEL, Math.min(MAX_WHEEL, wheel));
+    }
+}
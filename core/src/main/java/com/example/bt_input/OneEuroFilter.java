@@ -0,0 +1,96 @@
+package com.example.bt_input;
+
+// 触摸坐标防抖（One Euro 滤波）：截止频率随手指速度自适应的一阶低通
+// 慢速或静止时截止频率接近最低截止频率，传感器噪声带来的光标抖动被滤掉；
+// 快速移动时截止频率按 beta × 速度升高，几乎不增加滞后。速度本身先经过固定截止频率的低通，避免噪声抬高截止频率
+// X/Y 共用按速度大小计算的截止频率，移动方向不会因为两轴平滑程度不同而偏转
+// 坐标单位为屏幕像素，速度单位为像素/秒；最低截止频率为 0 时关闭，直接输出原始坐标
+// 只保存几个基本类型字段，每个采样不分配对象
+public class OneEuroFilter {
+
+    public static final float DEFAULT_BETA = 0.007f;
+    public static final float DEFAULT_DERIVATIVE_CUTOFF_HZ = 1f;
+    // 同一毫秒内的多个采样按 1ms 间隔处理
+    private static final float MIN_INTERVAL_SECONDS = 0.001f;
+
+    private float minCutoffHz = 0f;
+    private float beta = DEFAULT_BETA;
+    private float derivativeCutoffHz = DEFAULT_DERIVATIVE_CUTOFF_HZ;
+
+    private boolean hasSample = false;
+    private long lastTimeMs;
+    private float x;
+    private float y;
+    private float velocityX;
+    private float velocityY;
+
+    public void setMinCutoffHz(float minCutoffHz) {
+        this.minCutoffHz = Math.max(0f, minCutoffHz);
+    }
+
+    public float getMinCutoffHz() {
+        return minCutoffHz;
+    }
+
+    public void setBeta(float beta) {
+        this.beta = Math.max(0f, beta);
+    }
+
+    public float getBeta() {
+        return beta;
+    }
+
+    public void setDerivativeCutoffHz(float derivativeCutoffHz) {
+        if (derivativeCutoffHz <= 0) {
+            throw new IllegalArgumentException("速度截止频率必须大于 0");
+        }
+        this.derivativeCutoffHz = derivativeCutoffHz;
+    }
+
+    public boolean isEnabled() {
+        return minCutoffHz > 0;
+    }
+
+    // 以当前位置作为新的起点（按下或重新锚定时调用）
+    public void reset(long eventTimeMs, float x, float y) {
+        hasSample = true;
+        lastTimeMs = eventTimeMs;
+        this.x = x;
+        this.y = y;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    // 输入一个采样，结果由 getX()/getY() 读取
+    public void filter(long eventTimeMs, float rawX, float rawY) {
+        if (!hasSample || !isEnabled()) {
+            reset(eventTimeMs, rawX, rawY);
+            return;
+        }
+        float interval = Math.max(MIN_INTERVAL_SECONDS, (eventTimeMs - lastTimeMs) / 1000f);
+        lastTimeMs = eventTimeMs;
+
+        float derivativeAlpha = alpha(derivativeCutoffHz, interval);
+        velocityX += ((rawX - x) / interval - velocityX) * derivativeAlpha;
+        velocityY += ((rawY - y) / interval - velocityY) * derivativeAlpha;
+
+        float speed = (float) Math.hypot(velocityX, velocityY);
+        float alpha = alpha(minCutoffHz + beta * speed, interval);
+        x += (rawX - x) * alpha;
+        y += (rawY - y) * alpha;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    // 一阶低通的平滑系数：alpha = 1 / (1 + tau / dt)，tau = 1 / (2π × 截止频率)
+    private static float alpha(float cutoffHz, float intervalSeconds) {
+        float tau = (float) (1.0 / (2 * Math.PI * cutoffHz));
+        return 1f / (1f + tau / intervalSeconds);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bt_input;
+
+// 指针加速：根据带时间戳的采样估计手指速度，再由加速曲线给出当前位移的增益
+// 速度取最近一个时间窗口内的首尾采样计算，采样历史保存在预分配的环形数组中，每个采样不分配对象
+public class PointerAccelerator {
+
+    private static final int HISTORY_SIZE = 16;
+    // 速度估计窗口，太短会放大噪声，太长会让加速反应迟钝
+    private static final long VELOCITY_WINDOW_MS = 40;
+
+    private final long[] sampleTimes = new long[HISTORY_SIZE];
+    private final float[] sampleX = new float[HISTORY_SIZE];
+    private final float[] sampleY = new float[HISTORY_SIZE];
+    private int newest = -1;
+    private int size = 0;
+
+    private volatile AccelerationCurve curve = new AccelerationCurves.Linear(1f);
+    private float speed = 0f;
+
+    public void setCurve(AccelerationCurve curve) {
+        this.curve = curve;
+    }
+
+    public AccelerationCurve getCurve() {
+        return curve;
+    }
+
+    public void reset(long eventTimeMs, float x, float y) {
+        newest = -1;
+        size = 0;
+        speed = 0f;
+        push(eventTimeMs, x, y);
+    }
+
+    // 加入一个新采样，返回该采样对应位移的增益
+    public float addSample(long eventTimeMs, float x, float y) {
+        push(eventTimeMs, x, y);
+        speed = estimateSpeed();
+        return curve.gain(speed);
+    }
+
+    // 当前估计的速度 (像素/毫秒)
+    public float getSpeed() {
+        return speed;
+    }
+
+    private void push(long eventTimeMs, float x, float y) {
+        newest = (newest + 1) % HISTORY_SIZE;
+        sampleTimes[newest] = eventTimeMs;
+        sampleX[newest] = x;
+        sampleY[newest] = y;
+        if (size < HISTORY_SIZE) {
+            size++;
+        }
+    }
+
+    private float estimateSpeed() {
+        if (size < 2) {
+            return speed;
+        }
+        long newestTime = sampleTimes[newest];
+        int oldest = newest;
+        for (int i = 1; i < size; i++) {
+            int index = (newest - i + HISTORY_SIZE) % HISTORY_SIZE;
+            oldest = index;
+            if (newestTime - sampleTimes[index] >= VELOCITY_WINDOW_MS) {
+                break;
+            }
+        }
+        long elapsed = newestTime - sampleTimes[oldest];
+        if (elapsed <= 0) {
+            // 同一时间戳的采样无法计算速度，沿用上一次的估计
+            return speed;
+        }
+        float dx = sampleX[newest] - sampleX[oldest];
+        float dy = sampleY[newest] - sampleY[oldest];
+        return (float) Math.sqrt(dx * dx + dy * dy) / elapsed;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bt_input;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// 运动预测的离线评估：在录制的触摸板轨迹上运行预测器，按事件（批次结束）对比预测位置和手指 lookahead 毫秒后的实际位置
+// 实际位置在同一笔划内线性插值，超出抬起时间时取抬起位置；不预测（直接使用当前位置）作为基线
+// 过冲：预测位置沿预测方向超过抬起位置的距离，只统计距抬起不足 lookahead 的事件；
+// 手指仍在快速移动时抬起的笔划无法避免瞬时过冲，抬起后由 TouchMotionProcessor 撤回
+// 多指操作的笔划不参与评估
+public final class PredictionEvaluator {
+
+    public static final class Result {
+        public final long lookaheadMs;
+        public final int samples;
+        public final int strokes;
+        public final float meanError;
+        public final float p95Error;
+        public final float baselineMeanError;
+        public final float baselineP95Error;
+        public final float maxOvershoot;
+
+        Result(long lookaheadMs, int strokes, float[] errors, float[] baseline, int samples, float maxOvershoot) {
+            this.lookaheadMs = lookaheadMs;
+            this.samples = samples;
+            this.strokes = strokes;
+            this.meanError = mean(errors, samples);
+            this.p95Error = percentile(errors, samples, 95);
+            this.baselineMeanError = mean(baseline, samples);
+            this.baselineP95Error = percentile(baseline, samples, 95);
+            this.maxOvershoot = maxOvershoot;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT,
+                    "预测 %dms: 笔划=%d 事件=%d 误差 平均/p95=%.2f/%.2f 不预测=%.2f/%.2f 最大过冲=%.2f",
+                    lookaheadMs, strokes, samples, meanError, p95Error, baselineMeanError, baselineP95Error,
+                    maxOvershoot);
+        }
+    }
+
+    private PredictionEvaluator() {
+    }
+
+    public static Result evaluate(TouchTrace trace, long lookaheadMs) {
+        MotionPredictor predictor = new MotionPredictor();
+        predictor.setLookaheadMs(lookaheadMs);
+        long lookahead = predictor.getLookaheadMs();
+
+        int size = trace.size();
+        float[] errors = new float[size];
+        float[] baseline = new float[size];
+        int samples = 0;
+        int strokes = 0;
+        float maxOvershoot = 0;
+
+        // 笔划内的采样（按下、移动、抬起）和批次结束位置
+        long[] times = new long[size];
+        float[] xs = new float[size];
+        float[] ys = new float[size];
+        int[] batchEnds = new int[size];
+
+        int index = 0;
+        while (index < size) {
+            if (trace.getSource(index) != TouchTrace.SOURCE_TOUCHPAD || trace.getKind(index) != TouchTrace.KIND_DOWN) {
+                index++;
+                continue;
+            }
+            int count = 0;
+            int batches = 0;
+            boolean multiTouch = false;
+            boolean lifted = false;
+            for (; index < size && !lifted; index++) {
+                if (trace.getSource(index) != TouchTrace.SOURCE_TOUCHPAD) {
+                    continue;
+                }
+                switch (trace.getKind(index)) {
+                    case TouchTrace.KIND_DOWN:
+                    case TouchTrace.KIND_MOVE:
+                        times[count] = trace.getTimeMs(index);
+                        xs[count] = trace.getX(index);
+                        ys[count] = trace.getY(index);
+                        count++;
+                        break;
+                    case TouchTrace.KIND_UP:
+                        times[count] = trace.getTimeMs(index);
+                        xs[count] = trace.getX(index);
+                        ys[count] = trace.getY(index);
+                        count++;
+                        lifted = true;
+                        break;
+                    case TouchTrace.KIND_CANCEL:
+                        multiTouch = true;
+                        lifted = true;
+                        break;
+                    case TouchTrace.KIND_POINTERS:
+                        multiTouch |= trace.getX(index) > 1;
+                        break;
+                    default:
+                        if (count > 0 && (batches == 0 || batchEnds[batches - 1] != count - 1)) {
+                            batchEnds[batches++] = count - 1;
+                        }
+                        break;
+                }
+            }
+            if (multiTouch || !lifted || count < 2) {
+                continue;
+            }
+            strokes++;
+
+            // 与 TouchMotionProcessor 相同：每个事件结束时按最后一个采样更新预测，抬起时撤回
+            predictor.reset();
+            int fed = 0;
+            long liftMs = times[count - 1];
+            for (int b = 0; b < batches; b++) {
+                int last = batchEnds[b];
+                if (last == count - 1) {
+                    break;
+                }
+                for (; fed <= last; fed++) {
+                    predictor.addSample(times[fed], xs[fed], ys[fed]);
+                }
+                predictor.update(times[last]);
+                float offsetX = predictor.getOffsetX();
+                float offsetY = predictor.getOffsetY();
+                long target = times[last] + lookahead;
+                float actualX = interpolate(times, xs, count, target);
+                float actualY = interpolate(times, ys, count, target);
+                errors[samples] = (float) Math.hypot(xs[last] + offsetX - actualX, ys[last] + offsetY - actualY);
+                baseline[samples] = (float) Math.hypot(xs[last] - actualX, ys[last] - actualY);
+                samples++;
+
+                float length = (float) Math.hypot(offsetX, offsetY);
+                if (target >= liftMs && length > 0) {
+                    float overshoot = ((xs[last] + offsetX - xs[count - 1]) * offsetX
+                            + (ys[last] + offsetY - ys[count - 1]) * offsetY) / length;
+                    maxOvershoot = Math.max(maxOvershoot, overshoot);
+                }
+            }
+        }
+        return new Result(lookahead, strokes, errors, baseline, samples, maxOvershoot);
+    }
+
+    // 笔划内 timeMs 时的位置，超出范围时取端点
+    private static float interpolate(long[] times, float[] values, int count, long timeMs) {
+        if (timeMs >= times[count - 1]) {
+            return values[count - 1];
+        }
+        for (int i = 1; i < count; i++) {
+            if (times[i] >= timeMs) {
+                long span = times[i] - times[i - 1];
+                if (span <= 0) {
+                    return values[i];
+                }
+                float fraction = (float) (timeMs - times[i - 1]) / span;
+                return values[i - 1] + (values[i] - values[i - 1]) * fraction;
+            }
+        }
+        return values[count - 1];
+    }
+
+    private static float mean(float[] values, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return (float) (sum / count);
+    }
+
+    private static float percentile(float[] values, int count, int percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        float[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, count * percentile / 100)];
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bt_input;
+
+// 亚像素余量累加器：把带小数的位移转换为整数计数，舍去的小数部分带入下一次转换
+// 余量始终保持在 (-1, 1) 之间，因此累计输出与累计输入之差不超过一个计数
+public class RemainderAccumulator {
+
+    // 每个输出计数对应的输入量，例如滚轮每 10 个单位输出一格
+    private final float unitsPerCount;
+    private float remainder = 0f;
+
+    public RemainderAccumulator() {
+        this(1f);
+    }
+
+    public RemainderAccumulator(float unitsPerCount) {
+        if (unitsPerCount <= 0f) {
+            throw new IllegalArgumentException("unitsPerCount 必须大于 0");
+        }
+        this.unitsPerCount = unitsPerCount;
+    }
+
+    // 加入一段位移，返回本次可以输出的整数计数
+    public int add(float value) {
+        remainder += value / unitsPerCount;
+        int whole = (int) remainder;
+        remainder -= whole;
+        return whole;
+    }
+
+    public float getRemainder() {
+        return remainder;
+    }
+
+    public void reset() {
+        remainder = 0f;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bt_input;
+
+import java.util.concurrent.TimeUnit;
+
+// 报告速率控制（AIMD）：按 sendReport 的完成时间和失败率调整合并报告的发送速率
+// 协议栈积压时 sendReport 变慢：平滑后的发送耗时超过基线（近期最小耗时）加上允许的排队时间，或发送失败，
+// 视为拥塞，速率减半（每个保持期最多一次）；否则速率按时间线性回升到上限
+// 限速期间发送线程不从合并器拉取报告，位移继续在合并器中累加，而不是在协议栈里排队
+// 只由发送线程调用，reset 在每次连接、新的发送线程开始发送前调用；时间都由调用方传入，便于在 JVM 上模拟链路
+public class ReportRateController {
+
+    private static final double DEFAULT_MIN_RATE = 60;
+    private static final double DEFAULT_MAX_RATE = 1000;
+    private static final long DEFAULT_QUEUE_DELAY_TARGET_MS = 3;
+    // 无拥塞时每秒增加的报告速率
+    private static final double INCREASE_PER_SECOND = 200;
+    private static final double DECREASE_FACTOR = 0.5;
+    // 减速后等待效果体现的时间，期间不再减速
+    private static final long DECREASE_HOLD_MS = 100;
+    // 两次完成之间超过该时间（空闲）不计入增速
+    private static final long MAX_INCREASE_STEP_MS = 100;
+    // 平滑系数：耗时 1/4，失败率 1/32；基线每次向上回归 1/4096，只有长时间没有更低的耗时才会抬高
+    private static final int LATENCY_SMOOTHING_SHIFT = 2;
+    private static final double FAILURE_SMOOTHING = 1.0 / 32;
+    private static final int BASELINE_DRIFT_SHIFT = 12;
+
+    private final double minRate;
+    private final double maxRate;
+    private final long queueDelayTargetNanos;
+
+    private double rate;
+    private long intervalNanos;
+    private long lastSendStartNanos;
+    private long lastCompleteNanos;
+    private long holdUntilNanos;
+    private boolean hasSent;
+    private boolean hasSample;
+    private long baselineNanos;
+
+    // 统计值可能在界面线程读取
+    private volatile long smoothedLatencyNanos;
+    private volatile double failureRate;
+    private volatile double currentRate;
+    private volatile long decreaseCount;
+
+    public ReportRateController() {
+        this(DEFAULT_MIN_RATE, DEFAULT_MAX_RATE, DEFAULT_QUEUE_DELAY_TARGET_MS);
+    }
+
+    public ReportRateController(double minRate, double maxRate, long queueDelayTargetMs) {
+        if (minRate <= 0 || maxRate < minRate || queueDelayTargetMs <= 0) {
+            throw new IllegalArgumentException("无效的速率控制参数");
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.queueDelayTargetNanos = TimeUnit.MILLISECONDS.toNanos(queueDelayTargetMs);
+        reset();
+    }
+
+    // 距离下一次允许发送合并报告还需等待的纳秒数，0 表示可以立即发送
+    public long delayNanos(long nowNanos) {
+        if (!hasSent) {
+            return 0;
+        }
+        return Math.max(0, lastSendStartNanos + intervalNanos - nowNanos);
+    }
+
+    // 每个报告的 sendReport 返回后调用
+    public void onSendComplete(long sendStartNanos, long sendEndNanos, boolean success) {
+        long latency = Math.max(0, sendEndNanos - sendStartNanos);
+        long step = hasSent ? sendEndNanos - lastCompleteNanos : 0;
+        hasSent = true;
+        lastSendStartNanos = sendStartNanos;
+        lastCompleteNanos = sendEndNanos;
+
+        failureRate += ((success ? 0 : 1) - failureRate) * FAILURE_SMOOTHING;
+        boolean congested = !success;
+        if (success) {
+            if (!hasSample) {
+                hasSample = true;
+                baselineNanos = latency;
+                smoothedLatencyNanos = latency;
+            } else {
+                baselineNanos = latency < baselineNanos
+                        ? latency : baselineNanos + ((latency - baselineNanos) >> BASELINE_DRIFT_SHIFT);
+                smoothedLatencyNanos += (latency - smoothedLatencyNanos) >> LATENCY_SMOOTHING_SHIFT;
+            }
+            congested = smoothedLatencyNanos > baselineNanos + queueDelayTargetNanos;
+        }
+
+        if (congested) {
+            if (sendEndNanos - holdUntilNanos >= 0) {
+                setRate(rate * DECREASE_FACTOR);
+                holdUntilNanos = sendEndNanos + TimeUnit.MILLISECONDS.toNanos(DECREASE_HOLD_MS);
+                decreaseCount++;
+            }
+        } else if (rate < maxRate) {
+            long increaseStep = Math.min(step, TimeUnit.MILLISECONDS.toNanos(MAX_INCREASE_STEP_MS));
+            setRate(rate + INCREASE_PER_SECOND * increaseStep / 1e9);
+        }
+    }
+
+    // 新连接开始时回到上限速率
+    public void reset() {
+        setRate(maxRate);
+        hasSent = false;
+        hasSample = false;
+        holdUntilNanos = 0;
+        baselineNanos = 0;
+        smoothedLatencyNanos = 0;
+        failureRate = 0;
+        decreaseCount = 0;
+    }
+
+    private void setRate(double newRate) {
+        rate = Math.max(minRate, Math.min(maxRate, newRate));
+        intervalNanos = (long) (1e9 / rate);
+        currentRate = rate;
+    }
+
+    public double getRate() {
+        return currentRate;
+    }
+
+    public boolean isThrottled() {
+        return currentRate < maxRate;
+    }
+
+    public long getSmoothedLatencyNanos() {
+        return smoothedLatencyNanos;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public long getDecreaseCount() {
+        return decreaseCount;
+    }
+}
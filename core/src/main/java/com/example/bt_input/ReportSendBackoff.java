@@ -0,0 +1,72 @@
+package com.example.bt_input;
+
+import java.util.concurrent.TimeUnit;
+
+// 发送失败退避策略：偶发失败直接跳过，连续失败达到阈值后按指数增长的间隔暂停发送线程
+// 暂停期间位移继续在合并器中累加，恢复后一次发出；任何一次成功都会回到正常节奏
+// 只由发送线程调用，reset 在每次连接、新的发送线程开始发送前调用
+public class ReportSendBackoff {
+
+    private static final int DEFAULT_FAILURES_BEFORE_BACKOFF = 3;
+    private static final long DEFAULT_INITIAL_DELAY_MS = 2;
+    // 不超过 HidReportSender 停止时的等待时间
+    private static final long DEFAULT_MAX_DELAY_MS = 100;
+
+    private final int failuresBeforeBackoff;
+    private final long initialDelayNanos;
+    private final long maxDelayNanos;
+
+    // 统计值可能在界面线程读取
+    private volatile int consecutiveFailures = 0;
+    private volatile long connectionFailures = 0;
+    private volatile long backoffCount = 0;
+
+    public ReportSendBackoff() {
+        this(DEFAULT_FAILURES_BEFORE_BACKOFF, DEFAULT_INITIAL_DELAY_MS, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public ReportSendBackoff(int failuresBeforeBackoff, long initialDelayMs, long maxDelayMs) {
+        if (failuresBeforeBackoff < 1 || initialDelayMs <= 0 || maxDelayMs < initialDelayMs) {
+            throw new IllegalArgumentException("无效的退避参数");
+        }
+        this.failuresBeforeBackoff = failuresBeforeBackoff;
+        this.initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialDelayMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+    }
+
+    public void onSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    // 记录一次失败，返回发送线程在下一次发送前应等待的纳秒数，0 表示无需等待
+    public long onFailure() {
+        int failures = consecutiveFailures + 1;
+        consecutiveFailures = failures;
+        connectionFailures++;
+        if (failures < failuresBeforeBackoff) {
+            return 0;
+        }
+        backoffCount++;
+        int exponent = Math.min(failures - failuresBeforeBackoff, 30);
+        return Math.min(maxDelayNanos, initialDelayNanos << exponent);
+    }
+
+    // 新连接开始时清零
+    public void reset() {
+        consecutiveFailures = 0;
+        connectionFailures = 0;
+        backoffCount = 0;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getConnectionFailures() {
+        return connectionFailures;
+    }
+
+    public long getBackoffCount() {
+        return backoffCount;
+    }
+}
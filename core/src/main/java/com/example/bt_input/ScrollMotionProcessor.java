@@ -0,0 +1,138 @@
+package com.example.bt_input;
+
+// 滚动位移处理：把纵向（以及可选的横向）滑动距离按灵敏度缩放后转换为滚轮/水平滚动计数，不足一个计数的部分保留到下一次
+// 主机启用分辨率倍增后每格滚轮分为多个计数，输出的是小数格而不是整数格
+// 设置了惯性滚动时，抬起手指后按抬起时的速度继续滚动；新的按下立即停止惯性滚动
+// 用于滚轮条（仅纵向）和触摸板的双指滚动（纵向 + 横向）
+public class ScrollMotionProcessor implements TouchSampleListener {
+
+    // 滚动距离 × 灵敏度每累计 10 个单位输出一格
+    static final float UNITS_PER_STEP = 10f;
+
+    public interface ScrollOutput {
+        // wheel 向上为正，pan 向右为正
+        void onScroll(int wheel, int pan);
+    }
+
+    private final ScrollOutput output;
+    private RemainderAccumulator accumulator = new RemainderAccumulator(UNITS_PER_STEP);
+    private RemainderAccumulator panAccumulator = new RemainderAccumulator(UNITS_PER_STEP);
+    private float sensitivity = 1f;
+    private boolean horizontal = false;
+    private KineticScroller kineticScroller;
+    // 采样位置（已乘灵敏度的滚动单位），用于估计抬起时的速度
+    private final VelocityEstimator velocity = new VelocityEstimator();
+    private float positionX;
+    private float positionY;
+
+    private boolean tracking = false;
+    private float lastX;
+    private float lastY;
+    private float pendingX;
+    private float pendingY;
+
+    public ScrollMotionProcessor(ScrollOutput output) {
+        this.output = output;
+    }
+
+    public void setSensitivity(float sensitivity) {
+        this.sensitivity = sensitivity;
+    }
+
+    // 是否输出横向滑动的水平滚动
+    public void setHorizontalScroll(boolean horizontal) {
+        this.horizontal = horizontal;
+    }
+
+    public void setKineticScroller(KineticScroller kineticScroller) {
+        this.kineticScroller = kineticScroller;
+    }
+
+    // 每格滚轮对应的计数，由主机协商的分辨率倍增决定
+    public void setCountsPerDetent(int countsPerDetent) {
+        accumulator = new RemainderAccumulator(UNITS_PER_STEP / Math.max(1, countsPerDetent));
+    }
+
+    // 每格水平滚动对应的计数
+    public void setPanCountsPerDetent(int countsPerDetent) {
+        panAccumulator = new RemainderAccumulator(UNITS_PER_STEP / Math.max(1, countsPerDetent));
+    }
+
+    @Override
+    public void onTouchDown(long eventTimeMs, float x, float y) {
+        if (kineticScroller != null) {
+            kineticScroller.cancel();
+        }
+        tracking = true;
+        lastX = x;
+        lastY = y;
+        pendingX = 0;
+        pendingY = 0;
+        accumulator.reset();
+        panAccumulator.reset();
+        positionX = 0;
+        positionY = 0;
+        velocity.reset();
+        velocity.addSample(eventTimeMs, 0, 0);
+    }
+
+    @Override
+    public void onTouchMove(long eventTimeMs, float x, float y) {
+        if (!tracking) {
+            onTouchDown(eventTimeMs, x, y);
+            return;
+        }
+        track(eventTimeMs, x, y);
+    }
+
+    @Override
+    public void onTouchUp(long eventTimeMs, float x, float y) {
+        if (tracking && kineticScroller != null) {
+            // 抬起位置只用于估计速度，不再输出位移
+            track(eventTimeMs, x, y);
+            pendingX = 0;
+            pendingY = 0;
+            if (velocity.compute(eventTimeMs)) {
+                // 滚动单位/毫秒 -> 格/秒
+                kineticScroller.fling(velocity.getVelocityY() * 1000f / UNITS_PER_STEP,
+                        velocity.getVelocityX() * 1000f / UNITS_PER_STEP);
+            }
+        }
+        tracking = false;
+        accumulator.reset();
+        panAccumulator.reset();
+    }
+
+    @Override
+    public void onTouchCancel(long eventTimeMs) {
+        tracking = false;
+        pendingX = 0;
+        pendingY = 0;
+        accumulator.reset();
+        panAccumulator.reset();
+    }
+
+    @Override
+    public void onTouchBatchEnd() {
+        int counts = accumulator.add(pendingY);
+        int panCounts = panAccumulator.add(pendingX);
+        pendingX = 0;
+        pendingY = 0;
+        if (counts != 0 || panCounts != 0) {
+            output.onScroll(counts, panCounts);
+        }
+    }
+
+    private void track(long eventTimeMs, float x, float y) {
+        // 向上为正，向下为负；横向向右为正
+        float deltaY = (lastY - y) * sensitivity;
+        float deltaX = horizontal ? (x - lastX) * sensitivity : 0f;
+        pendingY += deltaY;
+        pendingX += deltaX;
+        positionY += deltaY;
+        positionX += deltaX;
+        lastX = x;
+        lastY = y;
+        velocity.addSample(eventTimeMs, positionX, positionY);
+    }
+}
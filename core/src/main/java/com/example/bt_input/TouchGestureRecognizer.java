@@ -0,0 +1,350 @@
+package com.example.bt_input;
+
+// 触摸板手势识别：单击、双击、点击后拖动（可选拖动锁定）、双指点击右键、三指点击中键
+// 只依据采样的事件时间判断，不读取系统时钟，同样的采样序列总是得到同样的按钮序列，可以直接用录制的轨迹测试
+// 按钮释放等延迟动作以截止时间交给外部定时器（真机上为发送线程），定时器回调 onDeadline 时生效；
+// 截止时间之后到达的采样会先执行到期的动作，定时器迟到或没有执行都不会打乱按钮顺序
+// 采样识别后原样转发给 next（位移处理器）；多指按下期间不转发移动，手指数变化后重新定位起点，光标不会跳动
+// 设置了滚动监听器时，双指按下期间的移动转发给它（双指滚动），离开双指时作为一次抬起，可以触发惯性滚动
+public class TouchGestureRecognizer implements TouchSampleListener {
+
+    public interface GestureOutput {
+        // 按钮状态变化，bit0 左键、bit1 右键、bit2 中键
+        void onButtonsChanged(byte buttons);
+
+        // 请求在 delayMs 毫秒后调用 onDeadline(deadlineMs)；新的请求取代旧的，过期的回调会被忽略
+        void scheduleDeadline(long deadlineMs, long delayMs);
+    }
+
+    public static final byte BUTTON_LEFT = 0x01;
+    public static final byte BUTTON_RIGHT = 0x02;
+    public static final byte BUTTON_MIDDLE = 0x04;
+
+    public static final long DEFAULT_TAP_TIMEOUT_MS = 200;
+    public static final float DEFAULT_TAP_SLOP = 20f;
+    public static final long DEFAULT_DOUBLE_TAP_TIMEOUT_MS = 250;
+    public static final long DEFAULT_CLICK_HOLD_MS = 50;
+    public static final long DEFAULT_DRAG_LOCK_TIMEOUT_MS = 800;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final GestureOutput output;
+    private final TouchSampleListener next;
+    private volatile TouchSampleListener scrollListener;
+
+    // 按下到抬起不超过该时间且移动不超过 tapSlop（像素，X/Y 之和）才算点击
+    private long tapTimeoutMs = DEFAULT_TAP_TIMEOUT_MS;
+    private float tapSlop = DEFAULT_TAP_SLOP;
+    // 点击抬起后在该时间内再次按下：按住左键，移动即拖动，不移动即双击的第二次点击
+    private long doubleTapTimeoutMs = DEFAULT_DOUBLE_TAP_TIMEOUT_MS;
+    // 点击时按钮保持按下的时间
+    private long clickHoldMs = DEFAULT_CLICK_HOLD_MS;
+    // 拖动锁定：拖动中抬起手指不松开左键，再次点击或超时后才松开
+    private boolean dragLockEnabled = false;
+    private long dragLockTimeoutMs = DEFAULT_DRAG_LOCK_TIMEOUT_MS;
+
+    // 以下状态只在 synchronized 内修改
+    private volatile byte buttons = 0;
+    // 到期时松开所有按钮，NO_TIME 表示没有
+    private long deadlineMs = NO_TIME;
+    private boolean touching = false;
+    private long downTimeMs;
+    private int pointerCount;
+    private int maxPointerCount;
+    // 移动距离的起点，手指数变化后在下一个采样处重新设置
+    private float anchorX;
+    private float anchorY;
+    private boolean anchorPending;
+    private boolean moved;
+    // 本次触摸按住了左键（点击后拖动或拖动锁定中）
+    private boolean dragging = false;
+    private boolean dragLocked = false;
+    // 上一次单指点击的抬起时间
+    private long lastTapUpMs = NO_TIME;
+    // 手指数变化后下一次转发给 next 的移动改为按下，重新定位起点
+    private boolean reanchorNext = false;
+    // 双指滚动：进入双指后第一个采样作为滚动的按下，scrolling 表示滚动监听器处于按下状态
+    private boolean scrollStartPending = false;
+    private boolean scrolling = false;
+    private float lastX;
+    private float lastY;
+
+    private long tapCount = 0;
+    private long dragCount = 0;
+
+    public TouchGestureRecognizer(GestureOutput output, TouchSampleListener next) {
+        this.output = output;
+        this.next = next;
+    }
+
+    public synchronized void setTapTimeoutMs(long tapTimeoutMs) {
+        this.tapTimeoutMs = tapTimeoutMs;
+    }
+
+    public synchronized void setTapSlop(float tapSlop) {
+        this.tapSlop = tapSlop;
+    }
+
+    public synchronized void setDoubleTapTimeoutMs(long doubleTapTimeoutMs) {
+        this.doubleTapTimeoutMs = doubleTapTimeoutMs;
+    }
+
+    public synchronized void setClickHoldMs(long clickHoldMs) {
+        this.clickHoldMs = clickHoldMs;
+    }
+
+    public synchronized void setDragLockEnabled(boolean dragLockEnabled) {
+        this.dragLockEnabled = dragLockEnabled;
+    }
+
+    public synchronized void setDragLockTimeoutMs(long dragLockTimeoutMs) {
+        this.dragLockTimeoutMs = dragLockTimeoutMs;
+    }
+
+    public void setScrollListener(TouchSampleListener scrollListener) {
+        this.scrollListener = scrollListener;
+    }
+
+    // 当前按钮状态，位移报告应携带它（拖动时保持左键按下）
+    public byte getButtons() {
+        return buttons;
+    }
+
+    public synchronized long getTapCount() {
+        return tapCount;
+    }
+
+    public synchronized long getDragCount() {
+        return dragCount;
+    }
+
+    // 回到空闲状态且不输出按钮变化，用于连接切换后主机侧的按钮状态已清零的情况
+    public synchronized void reset() {
+        buttons = 0;
+        deadlineMs = NO_TIME;
+        touching = false;
+        dragging = false;
+        dragLocked = false;
+        lastTapUpMs = NO_TIME;
+    }
+
+    // 定时器回调，deadlineMs 为 scheduleDeadline 请求时的截止时间
+    public synchronized void onDeadline(long deadlineMs) {
+        if (deadlineMs != NO_TIME && deadlineMs == this.deadlineMs) {
+            fireDeadline();
+        }
+    }
+
+    @Override
+    public void onTouchDown(long eventTimeMs, float x, float y) {
+        synchronized (this) {
+            expire(eventTimeMs);
+            touching = true;
+            downTimeMs = eventTimeMs;
+            pointerCount = 1;
+            maxPointerCount = 1;
+            anchorX = x;
+            anchorY = y;
+            anchorPending = false;
+            moved = false;
+            reanchorNext = false;
+            scrollStartPending = false;
+            scrolling = false;
+            lastX = x;
+            lastY = y;
+            if (dragLocked) {
+                // 拖动锁定中再次按下：左键保持，继续拖动
+                dragLocked = false;
+                deadlineMs = NO_TIME;
+                dragging = true;
+            } else {
+                // 还没松开的点击提前松开，主机总能看到完整的按下/松开
+                deadlineMs = NO_TIME;
+                setButtons((byte) 0);
+                dragging = lastTapUpMs != NO_TIME && eventTimeMs - lastTapUpMs <= doubleTapTimeoutMs;
+                if (dragging) {
+                    setButtons(BUTTON_LEFT);
+                }
+            }
+            lastTapUpMs = NO_TIME;
+        }
+        next.onTouchDown(eventTimeMs, x, y);
+    }
+
+    @Override
+    public void onTouchMove(long eventTimeMs, float x, float y) {
+        boolean forward;
+        boolean reanchor;
+        boolean scrollStart = false;
+        boolean scrollMove = false;
+        TouchSampleListener scroll = scrollListener;
+        synchronized (this) {
+            expire(eventTimeMs);
+            if (touching) {
+                trackMovement(x, y);
+            }
+            lastX = x;
+            lastY = y;
+            forward = pointerCount <= 1;
+            reanchor = forward && reanchorNext;
+            if (reanchor) {
+                reanchorNext = false;
+            }
+            if (scroll != null && pointerCount == 2) {
+                scrollStart = scrollStartPending;
+                scrollMove = scrolling;
+                scrollStartPending = false;
+                scrolling = true;
+            }
+        }
+        if (reanchor) {
+            next.onTouchDown(eventTimeMs, x, y);
+        } else if (forward) {
+            next.onTouchMove(eventTimeMs, x, y);
+        } else if (scrollStart) {
+            scroll.onTouchDown(eventTimeMs, x, y);
+        } else if (scrollMove) {
+            scroll.onTouchMove(eventTimeMs, x, y);
+        }
+    }
+
+    @Override
+    public void onPointerCountChanged(long eventTimeMs, int count) {
+        boolean scrollEnd = false;
+        float endX;
+        float endY;
+        synchronized (this) {
+            expire(eventTimeMs);
+            if (touching && count != pointerCount) {
+                pointerCount = count;
+                maxPointerCount = Math.max(maxPointerCount, count);
+                // 主触摸点可能换成另一根手指，坐标会跳变
+                anchorPending = true;
+                reanchorNext = true;
+                // 离开双指时结束滚动，进入双指时等待下一个采样开始滚动
+                scrollEnd = scrolling;
+                scrolling = false;
+                scrollStartPending = count == 2;
+            }
+            endX = lastX;
+            endY = lastY;
+        }
+        TouchSampleListener scroll = scrollListener;
+        if (scrollEnd && scroll != null) {
+            scroll.onTouchUp(eventTimeMs, endX, endY);
+            scroll.onTouchBatchEnd();
+        }
+        next.onPointerCountChanged(eventTimeMs, count);
+    }
+
+    @Override
+    public void onTouchUp(long eventTimeMs, float x, float y) {
+        boolean scrollEnd;
+        synchronized (this) {
+            expire(eventTimeMs);
+            scrollEnd = scrolling;
+            scrolling = false;
+            scrollStartPending = false;
+            if (touching) {
+                trackMovement(x, y);
+                touching = false;
+                boolean tap = !moved && eventTimeMs - downTimeMs <= tapTimeoutMs;
+                if (dragging) {
+                    dragging = false;
+                    if (!tap && dragLockEnabled) {
+                        dragLocked = true;
+                        scheduleRelease(eventTimeMs, dragLockTimeoutMs);
+                    } else {
+                        // 双击的第二次点击、普通拖动结束或锁定中的点击：松开左键
+                        setButtons((byte) 0);
+                    }
+                    if (tap) {
+                        tapCount++;
+                    } else {
+                        dragCount++;
+                    }
+                } else if (tap) {
+                    tapCount++;
+                    setButtons(maxPointerCount >= 3 ? BUTTON_MIDDLE
+                            : maxPointerCount == 2 ? BUTTON_RIGHT : BUTTON_LEFT);
+                    scheduleRelease(eventTimeMs, clickHoldMs);
+                    if (maxPointerCount == 1) {
+                        lastTapUpMs = eventTimeMs;
+                    }
+                }
+            }
+        }
+        TouchSampleListener scroll = scrollListener;
+        if (scrollEnd && scroll != null) {
+            scroll.onTouchUp(eventTimeMs, x, y);
+            scroll.onTouchBatchEnd();
+        }
+        next.onTouchUp(eventTimeMs, x, y);
+    }
+
+    @Override
+    public void onTouchCancel(long eventTimeMs) {
+        boolean scrollEnd;
+        synchronized (this) {
+            scrollEnd = scrolling;
+            scrolling = false;
+            scrollStartPending = false;
+            touching = false;
+            dragging = false;
+            dragLocked = false;
+            deadlineMs = NO_TIME;
+            lastTapUpMs = NO_TIME;
+            setButtons((byte) 0);
+        }
+        TouchSampleListener scroll = scrollListener;
+        if (scrollEnd && scroll != null) {
+            scroll.onTouchCancel(eventTimeMs);
+            scroll.onTouchBatchEnd();
+        }
+        next.onTouchCancel(eventTimeMs);
+    }
+
+    @Override
+    public void onTouchBatchEnd() {
+        TouchSampleListener scroll = scrollListener;
+        if (scroll != null) {
+            scroll.onTouchBatchEnd();
+        }
+        next.onTouchBatchEnd();
+    }
+
+    private void trackMovement(float x, float y) {
+        if (anchorPending) {
+            anchorX = x;
+            anchorY = y;
+            anchorPending = false;
+        } else if (!moved && Math.abs(x - anchorX) + Math.abs(y - anchorY) > tapSlop) {
+            moved = true;
+        }
+    }
+
+    // 采样时间已经超过截止时间：先执行到期的动作
+    private void expire(long eventTimeMs) {
+        if (deadlineMs != NO_TIME && eventTimeMs >= deadlineMs) {
+            fireDeadline();
+        }
+    }
+
+    private void fireDeadline() {
+        deadlineMs = NO_TIME;
+        dragLocked = false;
+        setButtons((byte) 0);
+    }
+
+    private void scheduleRelease(long nowMs, long delayMs) {
+        deadlineMs = nowMs + delayMs;
+        output.scheduleDeadline(deadlineMs, delayMs);
+    }
+
+    private void setButtons(byte updated) {
+        if (updated != buttons) {
+            buttons = updated;
+            output.onButtonsChanged(updated);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bt_input;
+
+// 触摸板位移处理：把逐个采样的绝对坐标转换为缩放后的相对位移
+// 一个触摸事件内的所有采样先累加，事件结束时只输出一次，交给发送端的位移合并器
+// 不足一个计数的小数部分由余量累加器带入下一次输出，慢速拖动不会被截断为零
+// 每个采样的增益由指针加速根据手指速度决定，灵敏度作为整体倍率
+// 启用防抖时，采样坐标先经过 One Euro 滤波再计算位移和加速，慢速时的传感器噪声不会变成光标抖动
+// 启用运动预测时，在输出坐标中把光标位置外推一小段时间；抬起或取消时撤回预测偏移，总位移与不预测时相同
+public class TouchMotionProcessor implements TouchSampleListener {
+
+    public interface MotionOutput {
+        void onMotion(int deltaX, int deltaY);
+    }
+
+    private final MotionOutput output;
+    private final RemainderAccumulator remainderX = new RemainderAccumulator();
+    private final RemainderAccumulator remainderY = new RemainderAccumulator();
+    private final PointerAccelerator accelerator = new PointerAccelerator();
+    private final MotionPredictor predictor = new MotionPredictor();
+    private final OneEuroFilter jitterFilter = new OneEuroFilter();
+    private float sensitivity = 1f;
+
+    private boolean tracking = false;
+    private float lastX;
+    private float lastY;
+    private float pendingX;
+    private float pendingY;
+    // 输出坐标中的累计位置和已经输出的预测偏移
+    private float positionX;
+    private float positionY;
+    private float predictedX;
+    private float predictedY;
+    private long lastSampleMs;
+
+    public TouchMotionProcessor(MotionOutput output) {
+        this.output = output;
+    }
+
+    public void setSensitivity(float sensitivity) {
+        this.sensitivity = sensitivity;
+    }
+
+    public void setAccelerationCurve(AccelerationCurve curve) {
+        accelerator.setCurve(curve);
+    }
+
+    public PointerAccelerator getAccelerator() {
+        return accelerator;
+    }
+
+    public MotionPredictor getPredictor() {
+        return predictor;
+    }
+
+    public OneEuroFilter getJitterFilter() {
+        return jitterFilter;
+    }
+
+    @Override
+    public void onTouchDown(long eventTimeMs, float x, float y) {
+        tracking = true;
+        lastX = x;
+        lastY = y;
+        // 多指操作后重新锚定时，上一段输出的预测偏移在这次一起撤回
+        pendingX = -predictedX;
+        pendingY = -predictedY;
+        remainderX.reset();
+        remainderY.reset();
+        jitterFilter.reset(eventTimeMs, x, y);
+        accelerator.reset(eventTimeMs, x, y);
+        positionX = 0;
+        positionY = 0;
+        predictedX = 0;
+        predictedY = 0;
+        lastSampleMs = eventTimeMs;
+        predictor.reset();
+        predictor.addSample(eventTimeMs, 0, 0);
+    }
+
+    @Override
+    public void onTouchMove(long eventTimeMs, float x, float y) {
+        if (!tracking) {
+            // 没有收到按下事件时以当前采样作为起点
+            onTouchDown(eventTimeMs, x, y);
+            return;
+        }
+        if (jitterFilter.isEnabled()) {
+            jitterFilter.filter(eventTimeMs, x, y);
+            x = jitterFilter.getX();
+            y = jitterFilter.getY();
+        }
+        float gain = sensitivity * accelerator.addSample(eventTimeMs, x, y);
+        float deltaX = (x - lastX) * gain;
+        float deltaY = (y - lastY) * gain;
+        pendingX += deltaX;
+        pendingY += deltaY;
+        positionX += deltaX;
+        positionY += deltaY;
+        lastX = x;
+        lastY = y;
+        lastSampleMs = eventTimeMs;
+        predictor.addSample(eventTimeMs, positionX, positionY);
+    }
+
+    // 手指数变化后主触摸点可能跳变，停止预测直到重新锚定
+    @Override
+    public void onPointerCountChanged(long eventTimeMs, int count) {
+        retractPrediction();
+        predictor.reset();
+    }
+
+    @Override
+    public void onTouchUp(long eventTimeMs, float x, float y) {
+        tracking = false;
+        retractPrediction();
+    }
+
+    @Override
+    public void onTouchCancel(long eventTimeMs) {
+        tracking = false;
+        pendingX = 0;
+        pendingY = 0;
+        retractPrediction();
+    }
+
+    @Override
+    public void onTouchBatchEnd() {
+        // 每个事件只按最后一个采样更新一次预测，输出的是预测偏移的变化量
+        if (tracking && predictor.isEnabled()) {
+            predictor.update(lastSampleMs);
+            pendingX += predictor.getOffsetX() - predictedX;
+            pendingY += predictor.getOffsetY() - predictedY;
+            predictedX = predictor.getOffsetX();
+            predictedY = predictor.getOffsetY();
+        }
+        int deltaX = remainderX.add(pendingX);
+        int deltaY = remainderY.add(pendingY);
+        pendingX = 0;
+        pendingY = 0;
+        if (deltaX != 0 || deltaY != 0) {
+            output.onMotion(deltaX, deltaY);
+        }
+    }
+
+    // 撤回已经输出的预测偏移，在下一次事件结束时随剩余位移一起输出
+    private void retractPrediction() {
+        pendingX -= predictedX;
+        pendingY -= predictedY;
+        predictedX = 0;
+        predictedY = 0;
+    }
+}
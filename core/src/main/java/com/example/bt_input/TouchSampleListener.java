@@ -0,0 +1,20 @@
+package com.example.bt_input;
+
+// 触摸采样接收者：按时间顺序接收每个触摸事件中的全部采样（包括批量的历史采样）
+// 坐标为视图内的绝对位置，时间戳为 MotionEvent 的事件时间 (uptimeMillis)
+public interface TouchSampleListener {
+    void onTouchDown(long eventTimeMs, float x, float y);
+
+    void onTouchMove(long eventTimeMs, float x, float y);
+
+    void onTouchUp(long eventTimeMs, float x, float y);
+
+    void onTouchCancel(long eventTimeMs);
+
+    // 一个 MotionEvent 中的采样已全部送达
+    void onTouchBatchEnd();
+
+    // 按下的手指数变化（多指按下或抬起），count 为变化后的数量；只跟踪单指的处理器无需关心
+    default void onPointerCountChanged(long eventTimeMs, int count) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.bt_input;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// 触摸轨迹：按时间顺序保存触摸板和滚动条的原始采样（含历史采样和批次边界），可写入紧凑的二进制文件
+//
+// 文件格式（大端）：
+//   magic "BTTR" | version (1 字节) | 记录...
+//   每条记录以 1 字节标签开始：高 4 位为来源，低 4 位为类型
+//   DOWN/MOVE/UP：时间增量 (无符号 varint，毫秒) | x (float32) | y (float32)
+//   CANCEL：时间增量
+//   POINTERS：时间增量 | 手指数 (1 字节)，版本 2 起
+//   BATCH_END：无附加数据
+public final class TouchTrace {
+
+    public static final int SOURCE_TOUCHPAD = 0;
+    public static final int SOURCE_SCROLL = 1;
+
+    public static final int KIND_DOWN = 0;
+    public static final int KIND_MOVE = 1;
+    public static final int KIND_UP = 2;
+    public static final int KIND_CANCEL = 3;
+    public static final int KIND_BATCH_END = 4;
+    // 手指数变化，手指数保存在 x 中
+    public static final int KIND_POINTERS = 5;
+
+    private static final int MAGIC = 0x42545452; // "BTTR"
+    private static final int VERSION = 2;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] sources = new byte[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private long[] timesMs = new long[INITIAL_CAPACITY];
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // 批次结束没有自己的时间戳，沿用同一来源上一条记录的时间
+    public void append(int source, int kind, long eventTimeMs, float x, float y) {
+        if (source < 0 || source > 0x0F || kind < KIND_DOWN || kind > KIND_POINTERS) {
+            throw new IllegalArgumentException("无效的轨迹记录: source=" + source + " kind=" + kind);
+        }
+        if (size > 0 && eventTimeMs < timesMs[size - 1]) {
+            throw new IllegalArgumentException("轨迹时间倒退: " + eventTimeMs);
+        }
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            timesMs = Arrays.copyOf(timesMs, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        sources[size] = (byte) source;
+        kinds[size] = (byte) kind;
+        timesMs[size] = eventTimeMs;
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSource(int index) {
+        return sources[index];
+    }
+
+    public int getKind(int index) {
+        return kinds[index];
+    }
+
+    public long getTimeMs(int index) {
+        return timesMs[index];
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    // 总时长（毫秒）
+    public long getDurationMs() {
+        return size == 0 ? 0 : timesMs[size - 1] - timesMs[0];
+    }
+
+    // 把一条记录分发给对应来源的监听器
+    public void dispatch(int index, TouchSampleListener listener) {
+        switch (kinds[index]) {
+            case KIND_DOWN:
+                listener.onTouchDown(timesMs[index], xs[index], ys[index]);
+                break;
+            case KIND_MOVE:
+                listener.onTouchMove(timesMs[index], xs[index], ys[index]);
+                break;
+            case KIND_UP:
+                listener.onTouchUp(timesMs[index], xs[index], ys[index]);
+                break;
+            case KIND_CANCEL:
+                listener.onTouchCancel(timesMs[index]);
+                break;
+            case KIND_POINTERS:
+                listener.onPointerCountChanged(timesMs[index], (int) xs[index]);
+                break;
+            default:
+                listener.onTouchBatchEnd();
+                break;
+        }
+    }
+
+    // 记录某个来源的采样的监听器
+    public TouchSampleListener recorder(int source) {
+        return recorder(source, null);
+    }
+
+    // 先记录再转发给 next，用于在应用运行时旁路录制
+    public TouchSampleListener recorder(int source, TouchSampleListener next) {
+        return new TouchSampleListener() {
+            private long lastTimeMs = 0;
+
+            @Override
+            public void onTouchDown(long eventTimeMs, float x, float y) {
+                record(KIND_DOWN, eventTimeMs, x, y);
+                if (next != null) {
+                    next.onTouchDown(eventTimeMs, x, y);
+                }
+            }
+
+            @Override
+            public void onTouchMove(long eventTimeMs, float x, float y) {
+                record(KIND_MOVE, eventTimeMs, x, y);
+                if (next != null) {
+                    next.onTouchMove(eventTimeMs, x, y);
+                }
+            }
+
+            @Override
+            public void onTouchUp(long eventTimeMs, float x, float y) {
+                record(KIND_UP, eventTimeMs, x, y);
+                if (next != null) {
+                    next.onTouchUp(eventTimeMs, x, y);
+                }
+            }
+
+            @Override
+            public void onTouchCancel(long eventTimeMs) {
+                record(KIND_CANCEL, eventTimeMs, 0, 0);
+                if (next != null) {
+                    next.onTouchCancel(eventTimeMs);
+                }
+            }
+
+            @Override
+            public void onPointerCountChanged(long eventTimeMs, int count) {
+                record(KIND_POINTERS, eventTimeMs, count, 0);
+                if (next != null) {
+                    next.onPointerCountChanged(eventTimeMs, count);
+                }
+            }
+
+            @Override
+            public void onTouchBatchEnd() {
+                record(KIND_BATCH_END, lastTimeMs, 0, 0);
+                if (next != null) {
+                    next.onTouchBatchEnd();
+                }
+            }
+
+            private void record(int kind, long eventTimeMs, float x, float y) {
+                // 两个视图的事件交错到达，个别时间戳可能略早于另一来源的上一条记录
+                long time = size > 0 ? Math.max(eventTimeMs, timesMs[size - 1]) : eventTimeMs;
+                lastTimeMs = time;
+                append(source, kind, time, x, y);
+            }
+        };
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        // 第一条记录的时间增量即其绝对时间
+        long previousTime = 0;
+        for (int i = 0; i < size; i++) {
+            out.writeByte((sources[i] << 4) | kinds[i]);
+            if (kinds[i] == KIND_BATCH_END) {
+                continue;
+            }
+            writeVarLong(out, timesMs[i] - previousTime);
+            previousTime = timesMs[i];
+            if (kinds[i] == KIND_POINTERS) {
+                out.writeByte((int) xs[i]);
+            } else if (kinds[i] != KIND_CANCEL) {
+                out.writeFloat(xs[i]);
+                out.writeFloat(ys[i]);
+            }
+        }
+        out.flush();
+    }
+
+    public static TouchTrace readFrom(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是触摸轨迹文件");
+        }
+        int version = in.readUnsignedByte();
+        // 版本 1 没有手指数记录，其余格式相同
+        if (version < 1 || version > VERSION) {
+            throw new IOException("不支持的轨迹版本: " + version);
+        }
+        TouchTrace trace = new TouchTrace();
+        long time = 0;
+        while (true) {
+            int tag = in.read();
+            if (tag < 0) {
+                return trace;
+            }
+            int source = tag >>> 4;
+            int kind = tag & 0x0F;
+            float x = 0;
+            float y = 0;
+            if (kind != KIND_BATCH_END) {
+                time += readVarLong(in);
+                if (kind == KIND_POINTERS) {
+                    x = in.readUnsignedByte();
+                } else if (kind != KIND_CANCEL) {
+                    x = in.readFloat();
+                    y = in.readFloat();
+                }
+            }
+            try {
+                trace.append(source, kind, time, x, y);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("损坏的轨迹记录: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("轨迹记录不完整");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("时间增量过长");
+    }
+}
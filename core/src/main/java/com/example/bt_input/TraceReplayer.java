@@ -0,0 +1,270 @@
+package com.example.bt_input;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// 触摸轨迹回放：把录制的轨迹送入与应用相同的处理链路（触摸板/滚动条处理器 -> 位移合并器 -> 发送器），
+// 由假的 HID 发送通道收集输出的报告流
+//
+// 两种模式：
+//   确定性回放  不启动线程，每个批次结束后立即取空合并器（相当于链路始终空闲），输出只取决于轨迹和参数，
+//              用于黄金文件测试
+//   定时回放    按原速或加速重现事件间隔，使用真实的发送线程，可模拟 sendReport 耗时，
+//              用于比较不同链路版本的延迟和合并效果
+public class TraceReplayer {
+
+    // 输出的一个报告，时间为相对轨迹开始的纳秒数
+    public static final class ReportRecord {
+        public final long timeNanos;
+        public final int reportId;
+        public final byte[] data;
+
+        ReportRecord(long timeNanos, int reportId, byte[] data) {
+            this.timeNanos = timeNanos;
+            this.reportId = reportId;
+            this.data = data;
+        }
+    }
+
+    private final MouseReportFormat format;
+    private float sensitivity = 1f;
+    private float scrollSensitivity = 1f;
+    private AccelerationCurve accelerationCurve = new AccelerationCurves.Linear(1f);
+    private int countsPerDetent = 1;
+    // 定时回放中每次 sendReport 的模拟耗时
+    private long sendCostNanos = 0;
+    // 是否经过手势识别（点击/拖动产生按钮报告）；默认只回放位移，与已有的黄金文件一致
+    private boolean gesturesEnabled = false;
+    private boolean dragLockEnabled = false;
+    private final HidMetrics metrics = new HidMetrics();
+
+    public TraceReplayer(MouseReportFormat format) {
+        this.format = format;
+    }
+
+    public void setSensitivity(float sensitivity) {
+        this.sensitivity = sensitivity;
+    }
+
+    public void setScrollSensitivity(float scrollSensitivity) {
+        this.scrollSensitivity = scrollSensitivity;
+    }
+
+    public void setAccelerationCurve(AccelerationCurve curve) {
+        this.accelerationCurve = curve;
+    }
+
+    public void setCountsPerDetent(int countsPerDetent) {
+        this.countsPerDetent = countsPerDetent;
+    }
+
+    public void setSendCostMicros(long micros) {
+        this.sendCostNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    public void setGesturesEnabled(boolean enabled) {
+        this.gesturesEnabled = enabled;
+    }
+
+    public void setDragLockEnabled(boolean enabled) {
+        this.dragLockEnabled = enabled;
+    }
+
+    // 最近一次定时回放的指标
+    public HidMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<ReportRecord> replayDeterministic(TouchTrace trace) {
+        List<ReportRecord> reports = new ArrayList<>();
+        MotionCoalescer coalescer = new MotionCoalescer(format);
+        Pipeline pipeline = createPipeline(coalescer, null, 0);
+        byte[] buffer = new byte[format.reportLength];
+        long startMs = trace.size() > 0 ? trace.getTimeMs(0) : 0;
+
+        for (int i = 0; i < trace.size(); i++) {
+            // 轨迹时间越过手势的截止时间：相当于定时器先于这条记录触发
+            if (pipeline.pendingDeadlineMs != Long.MIN_VALUE && trace.getTimeMs(i) >= pipeline.pendingDeadlineMs) {
+                fireDeadline(pipeline, coalescer, buffer, startMs, reports);
+            }
+            trace.dispatch(i, pipeline.listeners[trace.getSource(i)]);
+            if (trace.getKind(i) != TouchTrace.KIND_BATCH_END) {
+                continue;
+            }
+            drain(coalescer, buffer, TimeUnit.MILLISECONDS.toNanos(trace.getTimeMs(i) - startMs), reports);
+        }
+        if (pipeline.pendingDeadlineMs != Long.MIN_VALUE) {
+            fireDeadline(pipeline, coalescer, buffer, startMs, reports);
+        }
+        return reports;
+    }
+
+    private static void fireDeadline(Pipeline pipeline, MotionCoalescer coalescer, byte[] buffer, long startMs,
+                                     List<ReportRecord> reports) {
+        long deadlineMs = pipeline.pendingDeadlineMs;
+        pipeline.pendingDeadlineMs = Long.MIN_VALUE;
+        pipeline.gestures.onDeadline(deadlineMs);
+        drain(coalescer, buffer, TimeUnit.MILLISECONDS.toNanos(deadlineMs - startMs), reports);
+    }
+
+    private static void drain(MotionCoalescer coalescer, byte[] buffer, long timeNanos, List<ReportRecord> reports) {
+        int length;
+        while ((length = coalescer.poll(buffer)) > 0) {
+            reports.add(new ReportRecord(timeNanos, HidDescriptor.NO_REPORT_ID, copy(buffer, length)));
+        }
+    }
+
+    // speed 为回放倍速，1 为原速，0 表示不等待
+    public List<ReportRecord> replayTimed(TouchTrace trace, float speed) {
+        List<ReportRecord> reports = new ArrayList<>();
+        long[] startNanos = new long[1];
+        HidReportSender sender = new HidReportSender((reportId, report) -> {
+            if (sendCostNanos > 0) {
+                // 自旋等待，模拟阻塞的 binder 调用
+                long until = System.nanoTime() + sendCostNanos;
+                while (System.nanoTime() < until) {
+                    Thread.yield();
+                }
+            }
+            synchronized (reports) {
+                reports.add(new ReportRecord(System.nanoTime() - startNanos[0], reportId, report.clone()));
+            }
+            return true;
+        }, 64, format.reportLength);
+        MotionCoalescer coalescer = new MotionCoalescer(format);
+        sender.setReportSource(HidDescriptor.NO_REPORT_ID, coalescer::poll);
+        sender.setMetrics(metrics);
+        metrics.attach(sender, coalescer);
+        metrics.reset();
+        TouchSampleListener[] listeners = createPipeline(coalescer, sender, speed).listeners;
+
+        startNanos[0] = System.nanoTime();
+        long traceStartMs = trace.size() > 0 ? trace.getTimeMs(0) : 0;
+        sender.start();
+        try {
+            for (int i = 0; i < trace.size(); i++) {
+                long dueNanos = startNanos[0];
+                if (speed > 0) {
+                    dueNanos += (long) (TimeUnit.MILLISECONDS.toNanos(trace.getTimeMs(i) - traceStartMs) / speed);
+                    waitUntil(dueNanos);
+                }
+                if (trace.getKind(i) == TouchTrace.KIND_BATCH_END) {
+                    metrics.onInputEvent(dueNanos, System.nanoTime());
+                }
+                trace.dispatch(i, listeners[trace.getSource(i)]);
+            }
+            waitForIdle(sender, coalescer);
+        } finally {
+            sender.stop();
+        }
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    // 一次回放的处理链路
+    private static final class Pipeline {
+        final TouchSampleListener[] listeners = new TouchSampleListener[TouchTrace.SOURCE_SCROLL + 1];
+        TouchGestureRecognizer gestures;
+        // 确定性回放中等待触发的手势截止时间
+        long pendingDeadlineMs = Long.MIN_VALUE;
+    }
+
+    // 与 MainActivity 相同的连接方式：触摸板先经过手势识别再输出位移，滚动条输出滚轮计数
+    // 定时回放中手势的截止时间交给发送线程，按回放倍速缩短等待
+    private Pipeline createPipeline(MotionCoalescer coalescer, HidReportSender sender, float speed) {
+        Pipeline pipeline = new Pipeline();
+        TouchMotionProcessor touchProcessor = new TouchMotionProcessor((deltaX, deltaY) -> {
+            metrics.onMotionSubmitted();
+            coalescer.add(pipeline.gestures != null ? pipeline.gestures.getButtons() : 0, deltaX, deltaY, 0);
+            if (sender != null) {
+                sender.signal();
+            }
+        });
+        touchProcessor.setSensitivity(sensitivity);
+        touchProcessor.setAccelerationCurve(accelerationCurve);
+
+        ScrollMotionProcessor.ScrollOutput scrollOutput = (counts, pan) -> {
+            metrics.onMotionSubmitted();
+            coalescer.addScroll(counts, pan);
+            if (sender != null) {
+                sender.signal();
+            }
+        };
+        ScrollMotionProcessor scrollProcessor = new ScrollMotionProcessor(scrollOutput);
+        scrollProcessor.setSensitivity(scrollSensitivity);
+        scrollProcessor.setCountsPerDetent(countsPerDetent);
+
+        pipeline.listeners[TouchTrace.SOURCE_TOUCHPAD] = touchProcessor;
+        pipeline.listeners[TouchTrace.SOURCE_SCROLL] = scrollProcessor;
+        if (!gesturesEnabled) {
+            return pipeline;
+        }
+        pipeline.gestures = new TouchGestureRecognizer(new TouchGestureRecognizer.GestureOutput() {
+            @Override
+            public void onButtonsChanged(byte buttons) {
+                metrics.onMotionSubmitted();
+                coalescer.add(buttons, 0, 0, 0);
+                if (sender != null) {
+                    sender.signal();
+                }
+            }
+
+            @Override
+            public void scheduleDeadline(long deadlineMs, long delayMs) {
+                if (sender == null) {
+                    pipeline.pendingDeadlineMs = deadlineMs;
+                    return;
+                }
+                long delayNanos = speed > 0 ? (long) (TimeUnit.MILLISECONDS.toNanos(delayMs) / speed) : 0;
+                sender.schedule(() -> pipeline.gestures.onDeadline(deadlineMs), delayNanos);
+            }
+        }, touchProcessor);
+        pipeline.gestures.setDragLockEnabled(dragLockEnabled);
+        // 双指滚动与滚轮条使用相同的换算；回放不驱动帧，因此不包含惯性滚动
+        ScrollMotionProcessor touchpadScroll = new ScrollMotionProcessor(scrollOutput);
+        touchpadScroll.setSensitivity(scrollSensitivity);
+        touchpadScroll.setCountsPerDetent(countsPerDetent);
+        touchpadScroll.setPanCountsPerDetent(countsPerDetent);
+        touchpadScroll.setHorizontalScroll(true);
+        pipeline.gestures.setScrollListener(touchpadScroll);
+        pipeline.listeners[TouchTrace.SOURCE_TOUCHPAD] = pipeline.gestures;
+        return pipeline;
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void waitForIdle(HidReportSender sender, MotionCoalescer coalescer) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((sender.getPendingCount() > 0 || coalescer.hasPending()) && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static byte[] copy(byte[] buffer, int length) {
+        byte[] data = new byte[length];
+        System.arraycopy(buffer, 0, data, 0, length);
+        return data;
+    }
+
+    // 文本形式的报告流，每行一个报告："<毫秒> <报告 ID> <十六进制数据>"
+    public static void writeReports(List<ReportRecord> reports, Appendable out) throws IOException {
+        for (ReportRecord record : reports) {
+            out.append(String.format(Locale.ROOT, "%.3f", record.timeNanos / 1_000_000.0))
+                    .append(' ').append(Integer.toString(record.reportId)).append(' ');
+            for (byte b : record.data) {
+                out.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+            }
+            out.append('\n');
+        }
+    }
+}
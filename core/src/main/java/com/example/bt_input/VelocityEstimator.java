@@ -0,0 +1,127 @@
+package com.example.bt_input;
+
+// 速度估计：保存最近的带时间戳采样，取最后一段时间窗内采样的最小二乘直线斜率作为速度
+// 比只用首尾两点更能抵抗单个采样的抖动；手指在抬起前停顿过久时速度为 0。环形缓冲，不分配对象
+public class VelocityEstimator {
+
+    private static final int CAPACITY = 20;
+    public static final long DEFAULT_HORIZON_MS = 100;
+    // 最后一个采样之后超过该时间才抬起，认为手指已经停下
+    public static final long DEFAULT_STOP_TIME_MS = 40;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private int next = 0;
+    private int count = 0;
+
+    private long horizonMs = DEFAULT_HORIZON_MS;
+    private long stopTimeMs = DEFAULT_STOP_TIME_MS;
+
+    private float velocityX;
+    private float velocityY;
+
+    public void setHorizonMs(long horizonMs) {
+        this.horizonMs = horizonMs;
+    }
+
+    public void setStopTimeMs(long stopTimeMs) {
+        this.stopTimeMs = stopTimeMs;
+    }
+
+    public void reset() {
+        next = 0;
+        count = 0;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    public void addSample(long eventTimeMs, float x, float y) {
+        times[next] = eventTimeMs;
+        xs[next] = x;
+        ys[next] = y;
+        next = (next + 1) % CAPACITY;
+        if (count < CAPACITY) {
+            count++;
+        }
+    }
+
+    // 计算 nowMs（通常为抬起时间）时的速度，单位为每毫秒；时间窗内采样不足两个时返回 false，速度为 0
+    public boolean compute(long nowMs) {
+        velocityX = 0;
+        velocityY = 0;
+        if (count < 2) {
+            return false;
+        }
+        int last = (next - 1 + CAPACITY) % CAPACITY;
+        long lastTime = times[last];
+        if (nowMs - lastTime > stopTimeMs) {
+            return false;
+        }
+
+        // 以最后一个采样为原点，先求均值再求斜率，避免大时间戳带来的精度损失
+        int used = 0;
+        double sumT = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (last - i + CAPACITY) % CAPACITY;
+            long dt = times[index] - lastTime;
+            if (-dt > horizonMs) {
+                break;
+            }
+            sumT += dt;
+            sumX += xs[index];
+            sumY += ys[index];
+            used++;
+        }
+        if (used < 2) {
+            return false;
+        }
+        double meanT = sumT / used;
+        double meanX = sumX / used;
+        double meanY = sumY / used;
+        double sumTT = 0;
+        double sumTX = 0;
+        double sumTY = 0;
+        for (int i = 0; i < used; i++) {
+            int index = (last - i + CAPACITY) % CAPACITY;
+            double t = (times[index] - lastTime) - meanT;
+            sumTT += t * t;
+            sumTX += t * (xs[index] - meanX);
+            sumTY += t * (ys[index] - meanY);
+        }
+        // 所有采样时间相同，无法估计
+        if (sumTT <= 0) {
+            return false;
+        }
+        velocityX = (float) (sumTX / sumTT);
+        velocityY = (float) (sumTY / sumTT);
+        return true;
+    }
+
+    // 最后一个采样与 windowMs 之前（没有更早的采样时取最早一个）的采样之间的直线距离
+    public float recentDistance(long windowMs) {
+        if (count < 2) {
+            return 0;
+        }
+        int last = (next - 1 + CAPACITY) % CAPACITY;
+        int from = last;
+        for (int i = 1; i < count; i++) {
+            int index = (last - i + CAPACITY) % CAPACITY;
+            from = index;
+            if (times[last] - times[index] >= windowMs) {
+                break;
+            }
+        }
+        return (float) Math.hypot(xs[last] - xs[from], ys[last] - ys[from]);
+    }
+
+    public float getVelocityX() {
+        return velocityX;
+    }
+
+    public float getVelocityY() {
+        return velocityY;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void firstEventIsDeliveredWithoutDelay() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        EventBatcher batcher = new EventBatcher(scheduler, 10_000, batch -> delivered.countDown());
+        long start = System.nanoTime();
+        batcher.post("a", () -> { });
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void stormIsCollapsedToLatestEventPerKey() throws Exception {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> log = new ArrayList<>();
+        CountDownLatch twoBatches = new CountDownLatch(2);
+        EventBatcher batcher = new EventBatcher(scheduler, 50, batch -> {
+            List<String> names = new ArrayList<>();
+            synchronized (log) {
+                for (Runnable event : batch) {
+                    event.run();
+                    names.add(log.get(log.size() - 1));
+                }
+                batches.add(names);
+            }
+            twoBatches.countDown();
+        });
+
+        // 占用第一个时隙，后续事件必须等到间隔结束
+        batcher.post("registered", () -> log.add("registered"));
+        Thread.sleep(10);
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            batcher.post("connected", () -> log.add("connected" + n));
+            batcher.post("disconnected", () -> log.add("disconnected" + n));
+        }
+        batcher.post("connected", () -> log.add("connected-final"));
+
+        assertTrue(twoBatches.await(2, TimeUnit.SECONDS));
+        synchronized (log) {
+            assertEquals(2, batches.size());
+            assertEquals(1, batches.get(0).size());
+            assertEquals("disconnected19", batches.get(1).get(0));
+            assertEquals("connected-final", batches.get(1).get(1));
+        }
+        assertEquals(42, batcher.getPostedCount());
+        assertEquals(3, batcher.getDeliveredCount());
+        assertEquals(2, batcher.getBatchCount());
+    }
+
+    @Test
+    public void deliveriesRespectMinimumInterval() throws Exception {
+        List<Long> times = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        EventBatcher batcher = new EventBatcher(scheduler, 40, batch -> {
+            synchronized (times) {
+                times.add(System.nanoTime());
+            }
+            done.countDown();
+        });
+        for (int i = 0; i < 3; i++) {
+            batcher.post("event", () -> { });
+            Thread.sleep(5);
+            // 等待上一批投递后再发下一个事件
+            while (batcher.getBatchCount() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        synchronized (times) {
+            for (int i = 1; i < times.size(); i++) {
+                assertTrue(times.get(i) - times.get(i - 1) >= TimeUnit.MILLISECONDS.toNanos(35));
+            }
+        }
+    }
+
+    @Test
+    public void zeroIntervalCollapsesEventsPostedWhileBusy() throws Exception {
+        List<String> log = new ArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        // 不限速：空闲时立即投递，处理上一批期间到达的同键事件只保留最新一次
+        EventBatcher batcher = new EventBatcher(scheduler, 0, batch -> {
+            for (Runnable event : batch) {
+                event.run();
+            }
+        });
+        batcher.post("connection", () -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add("connected0");
+        });
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            int n = i;
+            batcher.post("connection", () -> log.add((n % 2 == 0 ? "connected" : "disconnected") + n));
+        }
+        batcher.post("unplug", () -> {
+            log.add("unplug");
+            done.countDown();
+        });
+        release.countDown();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("connected0", "connected10", "unplug"), log);
+        assertEquals(12, batcher.getPostedCount());
+        assertEquals(3, batcher.getDeliveredCount());
+    }
+
+    @Test
+    public void postAfterSchedulerShutdownIsDropped() {
+        List<Runnable> delivered = new ArrayList<>();
+        EventBatcher batcher = new EventBatcher(scheduler, 10, delivered::addAll);
+        scheduler.shutdownNow();
+
+        batcher.post("a", () -> { });
+        batcher.post("a", () -> { });
+        assertEquals(2, batcher.getPostedCount());
+        assertEquals(0, batcher.getDeliveredCount());
+        assertTrue(delivered.isEmpty());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HidConnectionStateTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void followsTheRegistrationAndConnectionLifecycle() {
+        HidConnectionState<String> state = new HidConnectionState<>(scheduler);
+        List<String> transitions = new ArrayList<>();
+        state.setListener((from, to, host) -> transitions.add(from + "->" + to + (host != null ? " " + host : "")));
+
+        assertTrue(state.start());
+        assertFalse(state.isRegistered());
+        assertTrue(state.onRegistered());
+        assertTrue(state.isRegistered());
+        assertFalse(state.isConnected());
+        assertTrue(state.onConnected("host"));
+        assertTrue(state.isConnected());
+        assertEquals("host", state.getConnectedHost());
+        assertTrue(state.onDisconnected());
+        assertNull(state.getConnectedHost());
+        assertEquals(HidConnectionState.Phase.REGISTERED, state.reset());
+        assertEquals(HidConnectionState.Phase.IDLE, state.getPhase());
+
+        assertEquals(5, transitions.size());
+        assertEquals("IDLE->STARTING", transitions.get(0));
+        assertEquals("REGISTERED->CONNECTED host", transitions.get(2));
+        assertEquals("REGISTERED->IDLE", transitions.get(4));
+    }
+
+    @Test
+    public void rejectsOutOfOrderEvents() {
+        HidConnectionState<String> state = new HidConnectionState<>(scheduler);
+        assertFalse(state.onRegistered());
+        assertFalse(state.onConnected("host"));
+        assertFalse(state.onDisconnected());
+
+        assertTrue(state.start());
+        assertFalse(state.start());
+        assertFalse(state.onConnected("host"));
+        assertEquals(HidConnectionState.Phase.STARTING, state.getPhase());
+
+        // 空闲时 reset 不通知
+        state.reset();
+        AtomicInteger notified = new AtomicInteger();
+        state.setListener((from, to, host) -> notified.incrementAndGet());
+        assertEquals(HidConnectionState.Phase.IDLE, state.reset());
+        assertEquals(0, notified.get());
+    }
+
+    @Test
+    public void timeoutFiresOnlyWhenStateIsUnchanged() throws Exception {
+        HidConnectionState<String> state = new HidConnectionState<>(scheduler);
+        state.start();
+        CountDownLatch fired = new CountDownLatch(1);
+        state.scheduleTimeout(10, fired::countDown);
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+
+        // 超时前完成注册：超时不执行
+        state.reset();
+        state.start();
+        AtomicInteger stale = new AtomicInteger();
+        state.scheduleTimeout(30, stale::incrementAndGet);
+        state.onRegistered();
+        Thread.sleep(80);
+        assertEquals(0, stale.get());
+
+        // 回到相同阶段也算发生过转换
+        state.reset();
+        state.start();
+        state.scheduleTimeout(30, stale::incrementAndGet);
+        state.reset();
+        state.start();
+        Thread.sleep(80);
+        assertEquals(0, stale.get());
+    }
+
+    @Test
+    public void concurrentStartsAdmitExactlyOne() throws Exception {
+        HidConnectionState<String> state = new HidConnectionState<>(scheduler);
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (state.start()) {
+                    winners.incrementAndGet();
+                }
+            });
+            threads[i].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, winners.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HidDescriptorTest {
+
+    private static int indexOf(byte[] data, byte... pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Test
+    public void singleMouseUsesNoReportId() {
+        HidDescriptor descriptor = new HidDescriptor(MouseReportFormat.STANDARD, false);
+        assertEquals(HidDescriptor.NO_REPORT_ID, descriptor.getMouseReportId());
+        assertEquals(4, descriptor.getInputReportLength(0));
+        assertEquals(-1, descriptor.getInputReportLength(1));
+        assertEquals(-1, descriptor.getFeatureReportLength(0));
+        assertFalse(descriptor.hasKeyboard());
+        // 描述符中不出现 Report ID 项
+        assertEquals(-1, indexOf(descriptor.getBytes(), (byte) 0x85, (byte) 0x01));
+    }
+
+    @Test
+    public void compositeDeclaresEveryReportId() {
+        HidDescriptor descriptor = new HidDescriptor(MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL, true);
+        byte[] bytes = descriptor.getBytes();
+        assertEquals(HidDescriptor.MOUSE_REPORT_ID, descriptor.getMouseReportId());
+        assertTrue(indexOf(bytes, (byte) 0x85, (byte) 0x01) >= 0);
+        assertTrue(indexOf(bytes, (byte) 0x85, (byte) 0x02) >= 0);
+        assertTrue(indexOf(bytes, (byte) 0x85, (byte) 0x03) >= 0);
+
+        assertEquals(7, descriptor.getInputReportLength(HidDescriptor.MOUSE_REPORT_ID));
+        assertEquals(8, descriptor.getInputReportLength(HidDescriptor.KEYBOARD_REPORT_ID));
+        assertEquals(2, descriptor.getInputReportLength(HidDescriptor.CONSUMER_REPORT_ID));
+        assertEquals(-1, descriptor.getInputReportLength(HidDescriptor.NO_REPORT_ID));
+        assertEquals(1, descriptor.getFeatureReportLength(HidDescriptor.MOUSE_REPORT_ID));
+        assertEquals(1, descriptor.getOutputReportLength(HidDescriptor.KEYBOARD_REPORT_ID));
+    }
+
+    @Test
+    public void collectionsAreBalanced() {
+        for (MouseReportFormat format : MouseReportFormat.values()) {
+            if (format == MouseReportFormat.BOOT) {
+                continue;
+            }
+            for (boolean composite : new boolean[]{false, true}) {
+                byte[] bytes = new HidDescriptor(format, composite).getBytes();
+                int depth = 0;
+                int i = 0;
+                while (i < bytes.length) {
+                    int prefix = bytes[i] & 0xFF;
+                    int size = prefix & 0x03;
+                    if (size == 3) {
+                        size = 4;
+                    }
+                    if ((prefix & 0xFC) == 0xA0) {
+                        depth++;
+                    } else if ((prefix & 0xFC) == 0xC0) {
+                        depth--;
+                        assertTrue(depth >= 0);
+                    }
+                    i += 1 + size;
+                }
+                assertEquals(bytes.length, i);
+                assertEquals(0, depth);
+            }
+        }
+    }
+
+    @Test
+    public void bootProtocolUsesFixedReportIds() {
+        HidDescriptor registered = new HidDescriptor(MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL, true);
+        HidDescriptor boot = registered.withBootProtocol(true);
+        assertTrue(boot.isBootProtocol());
+        assertArrayEquals(registered.getBytes(), boot.getBytes());
+        assertSame(boot, boot.withBootProtocol(true));
+
+        assertEquals(MouseReportFormat.BOOT, boot.getMouseFormat());
+        assertEquals(HidDescriptor.BOOT_MOUSE_REPORT_ID, boot.getMouseReportId());
+        assertEquals(HidDescriptor.BOOT_KEYBOARD_REPORT_ID, boot.getKeyboardReportId());
+        assertEquals(3, boot.getInputReportLength(HidDescriptor.BOOT_MOUSE_REPORT_ID));
+        assertEquals(8, boot.getInputReportLength(HidDescriptor.BOOT_KEYBOARD_REPORT_ID));
+        assertEquals(-1, boot.getInputReportLength(HidDescriptor.CONSUMER_REPORT_ID));
+        assertEquals(1, boot.getOutputReportLength(HidDescriptor.BOOT_KEYBOARD_REPORT_ID));
+        assertEquals(-1, boot.getOutputReportLength(HidDescriptor.KEYBOARD_REPORT_ID));
+        assertEquals(-1, boot.getFeatureReportLength(HidDescriptor.BOOT_MOUSE_REPORT_ID));
+        assertFalse(boot.hasConsumerControl());
+
+        HidDescriptor report = boot.withBootProtocol(false);
+        assertEquals(MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL, report.getMouseFormat());
+        assertEquals(HidDescriptor.MOUSE_REPORT_ID, report.getMouseReportId());
+        assertEquals(HidDescriptor.KEYBOARD_REPORT_ID, report.getKeyboardReportId());
+        assertTrue(report.hasConsumerControl());
+    }
+
+    @Test
+    public void bootMouseReportHasNoWheel() {
+        byte[] report = new byte[8];
+        int length = MouseReportFormat.BOOT.encode(report, (byte) 0x01, -5, 7, 3);
+        assertEquals(3, length);
+        assertEquals(0x01, report[0]);
+        assertEquals(-5, report[1]);
+        assertEquals(7, report[2]);
+        assertEquals(0, report[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bootLayoutCannotBeRegistered() {
+        new HidDescriptor(MouseReportFormat.BOOT, true);
+    }
+
+        @Test
+    public void maxInputReportLengthCoversEveryLayout() {
+        for (MouseReportFormat format : MouseReportFormat.values()) {
+            assertTrue(format.reportLength <= HidDescriptor.MAX_INPUT_REPORT_LENGTH);
+        }
+        assertTrue(KeyboardReportState.REPORT_LENGTH <= HidDescriptor.MAX_INPUT_REPORT_LENGTH);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HidMetricsTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private HidReportSender sender;
+
+    @After
+    public void tearDown() {
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    @Test
+    public void endToEndUsesOldestUnsentInput() {
+        HidMetrics metrics = new HidMetrics();
+        metrics.onInputEvent(100 * MS, 101 * MS);
+        metrics.onMotionSubmitted();
+        metrics.onInputEvent(104 * MS, 105 * MS);
+        metrics.onMotionSubmitted();
+        metrics.onSendComplete(106 * MS, 110 * MS, true);
+
+        assertEquals(2, metrics.touchIngest.getCount());
+        assertEquals(1, metrics.endToEnd.getCount());
+        assertEquals(10 * MS, metrics.endToEnd.getMaxNanos());
+        assertEquals(4 * MS, metrics.binderSend.getMaxNanos());
+
+        // 没有新位移的报告（例如按键）不计入端到端
+        metrics.onSendComplete(111 * MS, 112 * MS, true);
+        assertEquals(1, metrics.endToEnd.getCount());
+    }
+
+    @Test
+    public void unbufferedGainComparesDispatchModes() {
+        HidMetrics metrics = new HidMetrics();
+        assertEquals(0, metrics.getUnbufferedGainNanos());
+        // 逐帧批量：最新采样等待约 10ms，最早的历史采样等待约 18ms
+        for (int i = 0; i < 10; i++) {
+            long now = (100 + i * 16) * MS;
+            metrics.onInputEvent(now - 10 * MS, now - 18 * MS, now, false);
+        }
+        assertEquals(0, metrics.getUnbufferedGainNanos());
+        for (int i = 0; i < 10; i++) {
+            long now = (500 + i * 4) * MS;
+            metrics.onInputEvent(now - 2 * MS, now - 2 * MS, now, true);
+        }
+
+        assertEquals(20, metrics.touchIngest.getCount());
+        assertEquals(10, metrics.touchIngestBuffered.getCount());
+        assertEquals(10, metrics.touchIngestUnbuffered.getCount());
+        assertEquals(8 * MS, metrics.getUnbufferedGainNanos(), MS / 10);
+        assertEquals(18 * MS, metrics.touchBatchAge.getMaxNanos(), MS / 10);
+        assertTrue(metrics.dump().contains("无缓冲分发节省"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getUnbufferedGainNanos());
+        assertEquals(0, metrics.touchBatchAge.getCount());
+    }
+
+    @Test
+    public void failedSendKeepsInputPending() {
+        HidMetrics metrics = new HidMetrics();
+        metrics.onInputEvent(100 * MS, 100 * MS);
+        metrics.onMotionSubmitted();
+        metrics.onSendComplete(101 * MS, 102 * MS, false);
+        assertEquals(0, metrics.endToEnd.getCount());
+        metrics.onSendComplete(103 * MS, 108 * MS, true);
+        assertEquals(8 * MS, metrics.endToEnd.getMaxNanos());
+    }
+
+    @Test
+    public void timeToFirstReportSurvivesResetAndIgnoresFailures() {
+        HidMetrics metrics = new HidMetrics();
+        metrics.onSendComplete(1 * MS, 2 * MS, true);
+        assertEquals(-1, metrics.getTimeToFirstReportNanos());
+
+        metrics.markSessionStart(100 * MS);
+        metrics.reset();
+        metrics.onSendComplete(300 * MS, 301 * MS, false);
+        metrics.onSendComplete(350 * MS, 352 * MS, true);
+        metrics.onSendComplete(400 * MS, 401 * MS, true);
+        assertEquals(252 * MS, metrics.getTimeToFirstReportNanos());
+        assertTrue(metrics.dump().contains("252 ms"));
+    }
+
+    @Test
+    public void senderRecordsStagesAndCountersAreRelativeToReset() throws Exception {
+        HidMetrics metrics = new HidMetrics();
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        sender = new HidReportSender((reportId, report) -> true, 16, 8);
+        sender.setMetrics(metrics);
+        sender.setReportSource(0, coalescer::poll);
+        metrics.attach(sender, coalescer);
+        sender.start();
+
+        sender.offer(2, new byte[8]);
+        coalescer.add((byte) 0, 5, 5, 0);
+        sender.signal();
+        waitForSent(2);
+
+        HidMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.sent);
+        assertEquals(2, metrics.queueing.getCount());
+        assertEquals(2, metrics.binderSend.getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().sent);
+        sender.offer(2, new byte[8]);
+        waitForSent(3);
+        assertEquals(1, metrics.snapshot().sent);
+        assertTrue(metrics.dump().contains("已发送=1"));
+    }
+
+    private void waitForSent(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sender.getSentCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, sender.getSentCount());
+    }
+}
@@ -0,0 +1,462 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class HidReportSenderTest {
+
+    private HidReportSender sender;
+
+    @After
+    public void tearDown() {
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    @Test
+    public void reportsAreSentInOrder() throws Exception {
+        List<Byte> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(50);
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (received) {
+                received.add(report[1]);
+            }
+            done.countDown();
+            return true;
+        }, 64, 4);
+        sender.start();
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(sender.offer(0, new byte[]{0, (byte) i, 0, 0}));
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals((byte) i, (byte) received.get(i));
+        }
+        assertEquals(50, sender.getEnqueuedCount());
+        assertEquals(0, sender.getOverflowCount());
+    }
+
+    @Test
+    public void fullQueueCountsOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        sender = new HidReportSender((reportId, report) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 4, 4);
+        sender.start();
+
+        byte[] report = new byte[4];
+        int accepted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (sender.offer(0, report)) {
+                accepted++;
+            }
+        }
+        release.countDown();
+
+        // 发送线程最多占用一个槽位正在发送，其余槽位被填满
+        assertTrue(accepted >= sender.getCapacity() && accepted <= sender.getCapacity() + 1);
+        assertEquals(20 - accepted, sender.getOverflowCount());
+    }
+
+    @Test
+    public void failedSendsAreCounted() throws Exception {
+        CountDownLatch done = new CountDownLatch(10);
+        sender = new HidReportSender((reportId, report) -> {
+            done.countDown();
+            if (report[0] == 1) {
+                throw new SecurityException("no permission");
+            }
+            return report[0] == 0;
+        }, 16, 4);
+        sender.start();
+
+        for (int i = 0; i < 10; i++) {
+            sender.offer(0, new byte[]{(byte) (i % 3), 0, 0, 0});
+        }
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        waitForDrain();
+
+        assertEquals(4, sender.getSentCount());
+        assertEquals(6, sender.getFailedCount());
+    }
+
+    @Test
+    public void failuresBackOffWithoutRetrying() throws Exception {
+        List<Integer> attempts = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(6);
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (attempts) {
+                attempts.add(reportId);
+            }
+            done.countDown();
+            return report[0] == 1;
+        }, 16, 4);
+        ReportSendBackoff backoff = new ReportSendBackoff(2, 1, 4);
+        sender.setBackoff(backoff);
+        sender.start();
+
+        for (int i = 0; i < 5; i++) {
+            sender.offer(2, new byte[4]);
+        }
+        sender.offer(2, new byte[]{1, 0, 0, 0});
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        waitForDrain();
+
+        // 每个报告只尝试一次，报告 ID 不变
+        assertEquals(6, attempts.size());
+        for (int reportId : attempts) {
+            assertEquals(2, reportId);
+        }
+        assertEquals(5, backoff.getConnectionFailures());
+        assertEquals(4, backoff.getBackoffCount());
+        assertEquals(0, backoff.getConsecutiveFailures());
+    }
+
+    @Test
+    public void restartWaitsForSenderStuckInSendReport() throws Exception {
+        List<String> sent = new ArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger threads = new AtomicInteger();
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (sent) {
+                sent.add(Thread.currentThread().getName() + ":" + report[0]);
+            }
+            if (report[0] == 1) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }, 8, 4, runnable -> new Thread(runnable, "sender-" + threads.incrementAndGet()));
+        sender.start();
+        assertTrue(sender.offer(0, new byte[]{1, 0, 0, 0}));
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+
+        // 旧线程阻塞在 sendReport 中超过停止等待时间，随后重新连接
+        sender.stop();
+        sender.start();
+        assertTrue(sender.offer(0, new byte[]{2, 0, 0, 0}));
+        Thread.sleep(50);
+        synchronized (sent) {
+            assertEquals(1, sent.size());
+        }
+
+        // 旧线程返回后直接退出，新线程接管队列，每个报告只发送一次
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sender.getSentCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        synchronized (sent) {
+            assertEquals(2, sent.size());
+            assertEquals("sender-1:1", sent.get(0));
+            assertEquals("sender-2:2", sent.get(1));
+        }
+        assertEquals(0, sender.getPendingCount());
+    }
+
+    @Test
+    public void repeatedRestartsKeepWaitingForOldestStuckSender() throws Exception {
+        List<String> sent = new ArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger threads = new AtomicInteger();
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (sent) {
+                sent.add(Thread.currentThread().getName() + ":" + report[0]);
+            }
+            if (report[0] == 1) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }, 8, 4, runnable -> new Thread(runnable, "sender-" + threads.incrementAndGet()));
+        sender.start();
+        assertTrue(sender.offer(0, new byte[]{1, 0, 0, 0}));
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+
+        // 两次重新连接：第二个线程只在等待第一个，第三个线程仍必须等第一个退出
+        sender.stop();
+        sender.start();
+        sender.stop();
+        sender.start();
+        assertTrue(sender.offer(0, new byte[]{3, 0, 0, 0}));
+        // 等第二个线程放弃等待并退出
+        Thread.sleep(600);
+        synchronized (sent) {
+            assertEquals(1, sent.size());
+        }
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sender.getSentCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        synchronized (sent) {
+            assertEquals(2, sent.size());
+            assertEquals("sender-1:1", sent.get(0));
+            assertEquals("sender-3:3", sent.get(1));
+        }
+        assertEquals(0, sender.getPendingCount());
+    }
+
+    @Test
+    public void offerIsRejectedWhenStopped() {
+        sender = new HidReportSender((reportId, report) -> true, 8, 4);
+        assertFalse(sender.offer(0, new byte[4]));
+        assertEquals(0, sender.getEnqueuedCount());
+    }
+
+    // 使用模拟的 sendReport 测量队列吞吐量
+    @Test
+    public void throughputWithFakeTransport() throws Exception {
+        final int reports = 200_000;
+        CountDownLatch done = new CountDownLatch(1);
+        long[] sent = new long[1];
+        sender = new HidReportSender((reportId, report) -> {
+            if (++sent[0] == reports) {
+                done.countDown();
+            }
+            return true;
+        }, 256, 4);
+        sender.start();
+
+        byte[] report = new byte[4];
+        long start = System.nanoTime();
+        int offered = 0;
+        while (offered < reports) {
+            if (sender.offer(0, report)) {
+                offered++;
+            } else {
+                Thread.yield();
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        long elapsedNanos = System.nanoTime() - start;
+        waitForDrain();
+
+        assertEquals(reports, sender.getSentCount());
+        // 蓝牙链路每秒最多约 1000 个报告，队列本身的吞吐量要高出至少两个数量级，不能成为瓶颈
+        long reportsPerSecond = reports * 1_000_000_000L / elapsedNanos;
+        assertTrue("吞吐量 " + reportsPerSecond + " 报告/秒", reportsPerSecond > 100_000);
+    }
+
+    @Test
+    public void scheduledTaskRunsOnSenderThreadAndReplacesPrevious() throws Exception {
+        List<String> sent = new ArrayList<>();
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (sent) {
+                sent.add(Thread.currentThread().getName() + ":" + report[0]);
+            }
+            return true;
+        }, 16, 4);
+        assertFalse(sender.schedule(() -> { }, 0));
+        sender.start();
+
+        CountDownLatch ran = new CountDownLatch(1);
+        String[] threadName = new String[1];
+        long start = System.nanoTime();
+        AtomicInteger stale = new AtomicInteger();
+        sender.schedule(stale::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(20));
+        sender.schedule(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            sender.offer(0, new byte[]{7, 0, 0, 0});
+            ran.countDown();
+        }, TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals("HidReportSender", threadName[0]);
+        waitForDrain();
+        synchronized (sent) {
+            assertEquals(1, sent.size());
+            assertEquals("HidReportSender:7", sent.get(0));
+        }
+
+        // 停止时丢弃未执行的任务
+        sender.schedule(stale::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(10));
+        sender.stop();
+        Thread.sleep(30);
+        assertEquals(0, stale.get());
+    }
+
+    @Test
+    public void slowSendsThrottleSourceAndCoalesceMotion() throws Exception {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        AtomicInteger motion = new AtomicInteger();
+        AtomicInteger reports = new AtomicInteger();
+        // 前 5 个报告很快，之后每个 sendReport 耗时 1.5ms，模拟协议栈积压
+        sender = new HidReportSender((reportId, report) -> {
+            if (reports.incrementAndGet() > 5) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(1500));
+            }
+            motion.addAndGet(report[1]);
+            return true;
+        }, 16, MouseReportFormat.STANDARD.reportLength);
+        ReportRateController controller = new ReportRateController(20, 1000, 1);
+        sender.setRateController(controller);
+        sender.setReportSource(0, coalescer::poll);
+        sender.start();
+
+        for (int i = 0; i < 200; i++) {
+            coalescer.add((byte) 0, 1, 0, 0);
+            sender.signal();
+            Thread.sleep(1);
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((coalescer.hasPending() || motion.get() < 200) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(200, motion.get());
+        assertTrue(controller.isThrottled());
+        assertTrue(controller.getDecreaseCount() > 0);
+        // 不限速时约每 1.5ms 发出一个报告；限速期间位移在合并器中累加，报告数远少于位移次数
+        assertTrue(reports.get() < 100);
+    }
+
+    @Test
+    public void fixedPeriodResamplesMotionOntoTicks() throws Exception {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        List<Long> sendTimes = new ArrayList<>();
+        AtomicInteger motion = new AtomicInteger();
+        sender = new HidReportSender((reportId, report) -> {
+            synchronized (sendTimes) {
+                sendTimes.add(System.nanoTime());
+            }
+            motion.addAndGet(report[1]);
+            return true;
+        }, 16, MouseReportFormat.STANDARD.reportLength);
+        HidMetrics metrics = new HidMetrics();
+        metrics.attach(sender, coalescer);
+        sender.setMetrics(metrics);
+        sender.setReportSource(0, coalescer::poll);
+        sender.setReportPeriod(TimeUnit.MILLISECONDS.toNanos(8));
+        sender.start();
+
+        // 约 1ms 一次位移，持续 100ms
+        long start = System.nanoTime();
+        int added = 0;
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100)) {
+            coalescer.add((byte) 0, 1, 0, 0);
+            sender.signal();
+            added++;
+            Thread.sleep(1);
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while (motion.get() < added && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // 空闲期间不发送，空节拍只计数
+        Thread.sleep(50);
+
+        assertEquals(added, motion.get());
+        synchronized (sendTimes) {
+            // 每个节拍最多一个报告
+            assertTrue(sendTimes.size() <= 100 / 8 + 3);
+            assertTrue(sendTimes.size() >= 100 / 8 / 2);
+            for (int i = 1; i < sendTimes.size(); i++) {
+                assertTrue(sendTimes.get(i) - sendTimes.get(i - 1) >= TimeUnit.MILLISECONDS.toNanos(2));
+            }
+            assertEquals(sendTimes.size(), metrics.tickJitter.getCount());
+        }
+        assertTrue(sender.getSkippedTickCount() > 0);
+        assertTrue(metrics.dump().contains("节拍抖动"));
+
+        // 空闲时挂起等待 signal()，不再按节拍唤醒拉取
+        long skipped = sender.getSkippedTickCount();
+        Thread.sleep(50);
+        assertEquals(skipped, sender.getSkippedTickCount());
+
+        // 零星的单次位移（轻扫、点击）在空闲后的第一个节拍发出，最多等待一个周期
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(17 + i % 4);
+            int before;
+            synchronized (sendTimes) {
+                before = sendTimes.size();
+            }
+            long signalNanos = System.nanoTime();
+            coalescer.add((byte) 0, 1, 0, 0);
+            sender.signal();
+            deadline = System.currentTimeMillis() + 1000;
+            while (motion.get() < added + i + 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(0, 200_000);
+            }
+            synchronized (sendTimes) {
+                assertEquals(before + 1, sendTimes.size());
+                long delay = sendTimes.get(before) - signalNanos;
+                assertTrue("空闲后的报告等待了 " + TimeUnit.NANOSECONDS.toMicros(delay) + "us",
+                        delay < TimeUnit.MILLISECONDS.toNanos(8 + 3));
+            }
+        }
+    }
+
+    @Test
+    public void framesRunAtFixedIntervalUntilCallbackStops() throws Exception {
+        sender = new HidReportSender((reportId, report) -> true, 16, 4);
+        assertFalse(sender.startFrames(frameTime -> true, TimeUnit.MILLISECONDS.toNanos(5)));
+        sender.start();
+
+        List<Long> frames = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        assertTrue(sender.startFrames(frameTime -> {
+            frames.add(frameTime);
+            if (frames.size() == 10) {
+                done.countDown();
+                return false;
+            }
+            // 每帧耗时 1ms：按回调结束时间安排下一帧的实现会每帧漂移 1ms
+            long busyUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+            while (System.nanoTime() < busyUntil) {
+                Thread.onSpinWait();
+            }
+            return true;
+        }, TimeUnit.MILLISECONDS.toNanos(5)));
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(30);
+        assertEquals(10, frames.size());
+        // 帧时间落在 start + k × 5ms 的网格上（start 略早于第一帧的计划时间）：第十帧在 45ms，漂移时至少 54ms
+        for (int k = 0; k < frames.size(); k++) {
+            assertTrue(frames.get(k) - start >= k * TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        long span = frames.get(9) - start;
+        assertTrue("第十帧在 " + TimeUnit.NANOSECONDS.toMicros(span) + "us",
+                span < TimeUnit.MILLISECONDS.toNanos(49));
+    }
+
+    private void waitForDrain() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sender.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HostReconnectManagerTest {
+
+    private static final String HOST = "00:11:22:33:44:55";
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private static class MemoryStore implements HostReconnectManager.HostStore {
+        String host;
+        final List<String> saved = new ArrayList<>();
+
+        MemoryStore(String host) {
+            this.host = host;
+        }
+
+        @Override
+        public String loadLastHost() {
+            return host;
+        }
+
+        @Override
+        public void saveLastHost(String address) {
+            host = address;
+            saved.add(address);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void noAttemptWithoutKnownHost() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HostReconnectManager manager = new HostReconnectManager(address -> {
+            calls.incrementAndGet();
+            return true;
+        }, new MemoryStore(null), executor, 1, 4, 3);
+
+        assertFalse(manager.hasKnownHost());
+        manager.onRegistered();
+        Thread.sleep(30);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void retriesWithBackoffUntilAttemptLimit() throws Exception {
+        List<String> addresses = new ArrayList<>();
+        CountDownLatch gaveUp = new CountDownLatch(1);
+        HostReconnectManager manager = new HostReconnectManager(address -> {
+            addresses.add(address);
+            return false;
+        }, new MemoryStore(HOST), executor, 1, 4, 4);
+        manager.setGiveUpListener(gaveUp::countDown);
+
+        manager.onRegistered();
+        assertTrue(gaveUp.await(2, TimeUnit.SECONDS));
+        Thread.sleep(30);
+        assertEquals(4, manager.getAttempts());
+        assertEquals(4, addresses.size());
+        for (String address : addresses) {
+            assertEquals(HOST, address);
+        }
+    }
+
+    @Test
+    public void stopsRetryingOnceConnected() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HostReconnectManager[] holder = new HostReconnectManager[1];
+        holder[0] = new HostReconnectManager(address -> {
+            if (calls.incrementAndGet() == 2) {
+                holder[0].onConnected(address);
+            }
+            return true;
+        }, new MemoryStore(HOST), executor, 1, 4, 10);
+        AtomicInteger gaveUp = new AtomicInteger();
+        holder[0].setGiveUpListener(gaveUp::incrementAndGet);
+
+        holder[0].onRegistered();
+        Thread.sleep(100);
+        assertEquals(2, calls.get());
+        assertEquals(0, gaveUp.get());
+    }
+
+    @Test
+    public void cancelDropsPendingAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch first = new CountDownLatch(1);
+        HostReconnectManager manager = new HostReconnectManager(address -> {
+            calls.incrementAndGet();
+            first.countDown();
+            return true;
+        }, new MemoryStore(HOST), executor, 50, 50, 5);
+
+        manager.onRegistered();
+        assertTrue(first.await(2, TimeUnit.SECONDS));
+        manager.cancel();
+        Thread.sleep(150);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void connectedHostIsPersistedOnlyWhenItChanges() {
+        MemoryStore store = new MemoryStore(HOST);
+        HostReconnectManager manager = new HostReconnectManager(address -> true, store, executor);
+
+        manager.onConnected(HOST);
+        assertTrue(store.saved.isEmpty());
+
+        manager.onConnected("66:77:88:99:AA:BB");
+        assertEquals("66:77:88:99:AA:BB", manager.getLastHost());
+        assertEquals(1, store.saved.size());
+        assertEquals("66:77:88:99:AA:BB", store.host);
+    }
+
+    @Test
+    public void unpluggedHostIsForgotten() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MemoryStore store = new MemoryStore(HOST);
+        HostReconnectManager manager = new HostReconnectManager(address -> {
+            calls.incrementAndGet();
+            return true;
+        }, store, executor, 1, 4, 3);
+
+        // 其他主机的拔出不影响已记住的主机
+        manager.forget("66:77:88:99:AA:BB");
+        assertTrue(manager.hasKnownHost());
+
+        manager.forget(HOST);
+        assertFalse(manager.hasKnownHost());
+        assertNull(store.host);
+        manager.onRegistered();
+        Thread.sleep(30);
+        assertEquals(0, calls.get());
+    }
+
+        @Test
+    public void delayDoublesUpToMaximum() {
+        assertEquals(100, HostReconnectManager.delayForAttempt(1, 100, 500));
+        assertEquals(200, HostReconnectManager.delayForAttempt(2, 100, 500));
+        assertEquals(400, HostReconnectManager.delayForAttempt(3, 100, 500));
+        assertEquals(500, HostReconnectManager.delayForAttempt(4, 100, 500));
+        assertEquals(500, HostReconnectManager.delayForAttempt(40, 100, 500));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidParameters() {
+        new HostReconnectManager(address -> true, new MemoryStore(null), executor, 10, 5, 3);
+    }
+
+    @Test
+    public void registrationAfterExecutorShutdownDoesNotReconnect() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HostReconnectManager manager = new HostReconnectManager(address -> {
+            calls.incrementAndGet();
+            return true;
+        }, new MemoryStore(HOST), executor, 1, 4, 3);
+        executor.shutdownNow();
+
+        manager.onRegistered();
+        Thread.sleep(20);
+        assertEquals(0, calls.get());
+    }
+}
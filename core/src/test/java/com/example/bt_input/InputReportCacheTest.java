@@ -0,0 +1,73 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InputReportCacheTest {
+
+    @Test
+    public void resetCreatesIdleReportsForDescriptorIds() {
+        InputReportCache cache = new InputReportCache();
+        cache.reset(new HidDescriptor(MouseReportFormat.STANDARD, false));
+        assertArrayEquals(new byte[MouseReportFormat.STANDARD.reportLength], cache.get(HidDescriptor.NO_REPORT_ID));
+        assertNull(cache.get(HidDescriptor.KEYBOARD_REPORT_ID));
+
+        cache.reset(new HidDescriptor(MouseReportFormat.STANDARD, true));
+        assertNull(cache.get(HidDescriptor.NO_REPORT_ID));
+        assertNotNull(cache.get(HidDescriptor.MOUSE_REPORT_ID));
+        assertEquals(KeyboardReportState.REPORT_LENGTH, cache.get(HidDescriptor.KEYBOARD_REPORT_ID).length);
+        assertEquals(HidDescriptor.CONSUMER_REPORT_LENGTH, cache.get(HidDescriptor.CONSUMER_REPORT_ID).length);
+        assertNull(cache.get(-1));
+        assertNull(cache.get(300));
+    }
+
+    @Test
+    public void updatePublishesACopy() {
+        InputReportCache cache = new InputReportCache();
+        cache.reset(new HidDescriptor(MouseReportFormat.STANDARD, true));
+
+        byte[] slot = {0x02, 0x00, 0x04, 0, 0, 0, 0, 0, 0x7F};
+        byte[] before = cache.get(HidDescriptor.KEYBOARD_REPORT_ID);
+        cache.update(HidDescriptor.KEYBOARD_REPORT_ID, slot, KeyboardReportState.REPORT_LENGTH);
+        byte[] after = cache.get(HidDescriptor.KEYBOARD_REPORT_ID);
+
+        assertNotSame(before, after);
+        assertEquals(0, before[0]);
+        assertEquals(0x02, after[0]);
+        assertEquals(0x04, after[2]);
+        slot[0] = 0;
+        assertEquals(0x02, after[0]);
+
+        cache.clear(HidDescriptor.KEYBOARD_REPORT_ID);
+        assertArrayEquals(new byte[KeyboardReportState.REPORT_LENGTH], cache.get(HidDescriptor.KEYBOARD_REPORT_ID));
+    }
+
+    @Test
+    public void mouseReportFollowsButtonsAndProtocol() {
+        InputReportCache cache = new InputReportCache();
+        HidDescriptor registered = new HidDescriptor(MouseReportFormat.HIGH_RESOLUTION, true);
+        cache.reset(registered);
+        cache.setMouseButtons(registered, (byte) 0x03);
+        byte[] report = cache.get(HidDescriptor.MOUSE_REPORT_ID);
+        assertEquals(MouseReportFormat.HIGH_RESOLUTION.reportLength, report.length);
+        assertEquals(0x03, report[0]);
+
+        // 启动协议：鼠标为 ID 2 的 3 字节报告，键盘为 ID 1
+        HidDescriptor boot = registered.withBootProtocol(true);
+        cache.reset(boot);
+        cache.setMouseButtons(boot, (byte) 0x01);
+        assertArrayEquals(new byte[]{0x01, 0, 0}, cache.get(HidDescriptor.BOOT_MOUSE_REPORT_ID));
+        assertEquals(KeyboardReportState.REPORT_LENGTH, cache.get(HidDescriptor.BOOT_KEYBOARD_REPORT_ID).length);
+        assertNull(cache.get(HidDescriptor.CONSUMER_REPORT_ID));
+    }
+
+        @Test
+    public void unknownIdsAreIgnored() {
+        InputReportCache cache = new InputReportCache();
+        cache.reset(new HidDescriptor(MouseReportFormat.STANDARD, false));
+        cache.update(HidDescriptor.CONSUMER_REPORT_ID, new byte[]{1, 2}, 2);
+        cache.clear(HidDescriptor.CONSUMER_REPORT_ID);
+        assertNull(cache.get(HidDescriptor.CONSUMER_REPORT_ID));
+    }
+}
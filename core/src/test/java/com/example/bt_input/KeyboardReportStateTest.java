@@ -0,0 +1,119 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyboardReportStateTest {
+
+    private static final int KEY_A = 0x04;
+    private static final int LEFT_SHIFT = 0xE1;
+    private static final int RIGHT_GUI = 0xE7;
+
+    private static byte[] encode(KeyboardReportState state) {
+        byte[] report = new byte[KeyboardReportState.REPORT_LENGTH];
+        assertEquals(KeyboardReportState.REPORT_LENGTH, state.encode(report));
+        return report;
+    }
+
+    @Test
+    public void pressAndReleaseProduceDiffsOnly() {
+        KeyboardReportState state = new KeyboardReportState();
+        assertTrue(state.setKey(KEY_A, true));
+        // 重复按下不产生新的报告
+        assertFalse(state.setKey(KEY_A, true));
+        assertArrayEquals(new byte[]{0, 0, KEY_A, 0, 0, 0, 0, 0}, encode(state));
+
+        assertTrue(state.setKey(KEY_A, false));
+        assertFalse(state.setKey(KEY_A, false));
+        assertTrue(state.isEmpty());
+        assertArrayEquals(new byte[8], encode(state));
+    }
+
+    @Test
+    public void modifiersMapToBits() {
+        KeyboardReportState state = new KeyboardReportState();
+        assertTrue(state.setKey(LEFT_SHIFT, true));
+        assertTrue(state.setKey(RIGHT_GUI, true));
+        assertFalse(state.setKey(LEFT_SHIFT, true));
+        assertEquals((byte) 0x82, encode(state)[0]);
+
+        assertTrue(state.setKey(LEFT_SHIFT, false));
+        assertEquals((byte) 0x80, encode(state)[0]);
+    }
+
+    @Test
+    public void releasingMiddleKeyKeepsPressOrder() {
+        KeyboardReportState state = new KeyboardReportState();
+        state.setKey(0x04, true);
+        state.setKey(0x05, true);
+        state.setKey(0x06, true);
+        state.setKey(0x05, false);
+        assertArrayEquals(new byte[]{0, 0, 0x04, 0x06, 0, 0, 0, 0}, encode(state));
+    }
+
+    @Test
+    public void seventhKeyReportsErrorRollOver() {
+        KeyboardReportState state = new KeyboardReportState();
+        for (int i = 0; i < KeyboardReportState.MAX_KEYS; i++) {
+            assertTrue(state.setKey(0x04 + i, true));
+        }
+        assertTrue(state.setKey(0x0A, true));
+        byte[] report = encode(state);
+        for (int i = 2; i < 8; i++) {
+            assertEquals(0x01, report[i]);
+        }
+        // 仍处于 ErrorRollOver 时新增或松开键不改变报告
+        assertFalse(state.setKey(0x0B, true));
+        assertFalse(state.setKey(0x0B, false));
+
+        // 回到 6 个键后恢复正常报告
+        assertTrue(state.setKey(0x04, false));
+        assertArrayEquals(new byte[]{0, 0, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A}, encode(state));
+    }
+
+    @Test
+    public void releaseAllClearsState() {
+        KeyboardReportState state = new KeyboardReportState();
+        state.setKey(LEFT_SHIFT, true);
+        state.setKey(KEY_A, true);
+        state.releaseAll();
+        assertTrue(state.isEmpty());
+        assertArrayEquals(new byte[8], encode(state));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservedUsage() {
+        new KeyboardReportState().setKey(0x01, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUsageAboveLogicalMaximum() {
+        new KeyboardReportState().setKey(KeyboardReportState.MAX_KEY_USAGE + 1, true);
+    }
+
+    @Test
+    public void acceptsLogicalMaximum() {
+        KeyboardReportState state = new KeyboardReportState();
+        assertTrue(state.setKey(KeyboardReportState.MAX_KEY_USAGE, true));
+        assertEquals(KeyboardReportState.MAX_KEY_USAGE, encode(state)[2]);
+    }
+
+    @Test
+    public void wouldChangeMatchesSetKeyWithoutModifyingState() {
+        KeyboardReportState state = new KeyboardReportState();
+        int[][] steps = {
+                {KEY_A, 1}, {KEY_A, 1}, {LEFT_SHIFT, 1}, {LEFT_SHIFT, 1}, {LEFT_SHIFT, 0}, {LEFT_SHIFT, 0},
+                {0x05, 1}, {0x06, 1}, {0x07, 1}, {0x08, 1}, {0x09, 1}, {0x0A, 1}, {0x0B, 1},
+                {0x0B, 0}, {KEY_A, 0}, {0x05, 0}, {0x05, 0},
+        };
+        for (int[] step : steps) {
+            boolean pressed = step[1] == 1;
+            byte[] before = encode(state);
+            boolean expected = state.wouldChange(step[0], pressed);
+            // 只查询时报告内容不变
+            assertArrayEquals(before, encode(state));
+            assertEquals(expected, state.setKey(step[0], pressed));
+        }
+    }
+}
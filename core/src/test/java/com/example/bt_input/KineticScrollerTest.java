@@ -0,0 +1,161 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KineticScrollerTest {
+
+    private static final long FRAME_NANOS = 16_000_000L;
+
+    private final List<int[]> scrolls = new ArrayList<>();
+    private int frameRequests;
+    private int currentFrame;
+    private boolean framesAvailable = true;
+    private final KineticScroller scroller = new KineticScroller((wheel, pan) -> scrolls.add(new int[]{wheel, pan, currentFrame}),
+            intervalMs -> {
+                assertEquals(KineticScroller.DEFAULT_FRAME_INTERVAL_MS, intervalMs);
+                frameRequests++;
+                return framesAvailable;
+            });
+
+    // 按固定帧间隔驱动直到停止，返回帧数
+    private int runFrames(long startNanos, long frameNanos, int maxFrames) {
+        int frames = 0;
+        long t = startNanos;
+        currentFrame = 0;
+        while (frames < maxFrames && scroller.onFrame(t)) {
+            frames++;
+            currentFrame = frames;
+            t += frameNanos;
+        }
+        return frames;
+    }
+
+    private int totalWheel() {
+        int sum = 0;
+        for (int[] s : scrolls) {
+            sum += s[0];
+        }
+        return sum;
+    }
+
+    private int totalPan() {
+        int sum = 0;
+        for (int[] s : scrolls) {
+            sum += s[1];
+        }
+        return sum;
+    }
+
+    @Test
+    public void flingDecaysAndStops() {
+        assertTrue(scroller.fling(40f, 0f));
+        assertEquals(1, frameRequests);
+        int frames = runFrames(0, FRAME_NANOS, 1000);
+        assertFalse(scroller.isActive());
+        assertTrue(frames > 10 && frames < 200);
+
+        // 总距离接近 v * tau = 40 格/秒 × 0.325 秒
+        assertEquals(13, totalWheel(), 1);
+        assertEquals(0, totalPan());
+        // 输出随时间递减：前一半帧的滚动多于后一半帧
+        int first = 0;
+        for (int[] s : scrolls) {
+            if (s[2] < frames / 2) {
+                first += s[0];
+            }
+        }
+        assertTrue(first > 2 * (totalWheel() - first));
+    }
+
+    @Test
+    public void lateFramesKeepTotalDistance() {
+        scroller.setCountsPerDetent(HidDescriptor.WHEEL_RESOLUTION_MULTIPLIER, 1);
+        scroller.fling(-60f, 30f);
+        runFrames(0, FRAME_NANOS, 1000);
+        int wheelOnTime = totalWheel();
+        int panOnTime = totalPan();
+
+        scrolls.clear();
+        scroller.fling(-60f, 30f);
+        // 帧间隔为 50ms（发送线程繁忙），按实际经过的时间积分
+        runFrames(0, 50_000_000L, 1000);
+        assertEquals(wheelOnTime, totalWheel(), 2);
+        assertEquals(panOnTime, totalPan(), 1);
+        assertTrue(wheelOnTime < 0 && panOnTime > 0);
+    }
+
+    @Test
+    public void cancelStopsOutput() {
+        scroller.fling(100f, 0f);
+        assertTrue(scroller.onFrame(0));
+        assertTrue(scroller.onFrame(FRAME_NANOS));
+        int before = scrolls.size();
+        scroller.cancel();
+        assertFalse(scroller.onFrame(2 * FRAME_NANOS));
+        assertEquals(before, scrolls.size());
+        assertFalse(scroller.isActive());
+    }
+
+    @Test
+    public void slowReleaseOrMissingFramesDoNotFling() {
+        assertFalse(scroller.fling(1f, 1f));
+        assertEquals(0, frameRequests);
+
+        framesAvailable = false;
+        assertFalse(scroller.fling(50f, 0f));
+        assertFalse(scroller.isActive());
+        assertEquals(0, scroller.getFlingCount());
+    }
+
+    @Test
+    public void velocityEstimateIgnoresJitterAndStops() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        // 0.5 单位/毫秒，叠加交替的 ±1 抖动
+        for (int i = 0; i <= 10; i++) {
+            estimator.addSample(1000 + i * 8, i * 4 + (i % 2 == 0 ? 1 : -1), -i * 2);
+        }
+        assertTrue(estimator.compute(1084));
+        assertEquals(0.5f, estimator.getVelocityX(), 0.05f);
+        assertEquals(-0.25f, estimator.getVelocityY(), 0.01f);
+
+        // 最后一个采样之后停顿过久才抬起
+        assertFalse(estimator.compute(1200));
+        assertEquals(0f, estimator.getVelocityX(), 0f);
+    }
+
+    @Test
+    public void scrollReleaseStartsFlingAndNewTouchCancels() {
+        ScrollMotionProcessor processor = new ScrollMotionProcessor((wheel, pan) -> scrolls.add(new int[]{wheel, pan}));
+        processor.setHorizontalScroll(true);
+        processor.setKineticScroller(scroller);
+
+        // 向上快速滑动：每 8ms 10 像素，约 125 格/秒
+        processor.onTouchDown(0, 100, 500);
+        for (int i = 1; i <= 8; i++) {
+            processor.onTouchMove(i * 8, 100, 500 - i * 10);
+            processor.onTouchBatchEnd();
+        }
+        int dragged = totalWheel();
+        assertEquals(8, dragged);
+        processor.onTouchUp(72, 100, 420);
+        processor.onTouchBatchEnd();
+        assertTrue(scroller.isActive());
+        assertEquals(dragged, totalWheel());
+
+        assertTrue(scroller.onFrame(0));
+        assertTrue(totalWheel() > dragged);
+        processor.onTouchDown(100, 100, 420);
+        assertFalse(scroller.isActive());
+
+        // 停下后再抬起不会继续滚动
+        processor.onTouchMove(110, 100, 400);
+        processor.onTouchUp(300, 100, 400);
+        assertFalse(scroller.isActive());
+        assertEquals(1, scroller.getFlingCount());
+    }
+}
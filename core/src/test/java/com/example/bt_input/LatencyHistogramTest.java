@@ -0,0 +1,74 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverValuesContiguously() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            previous = index;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertEquals(5_000_500, histogram.getMeanNanos());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.04);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.04);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void matchesExactPercentilesOnRandomData() {
+        Random random = new Random(7);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[20_000];
+        for (int i = 0; i < values.length; i++) {
+            // 对数分布，覆盖微秒到百毫秒
+            values[i] = (long) Math.exp(7 + random.nextDouble() * 12);
+            histogram.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact);
+            assertTrue(estimate <= exact * 1.04);
+        }
+    }
+
+    @Test
+    public void negativeAndHugeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertTrue(histogram.getMaxNanos() > 1_000_000_000_000L);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// 合并模式与逐个发送模式在不同模拟链路速率下的对比
+// 触摸以 240Hz 产生位移，链路每个发送时隙只能传输一个报告
+public class MotionCoalescerBenchmarkTest {
+
+    private static final int TOUCH_RATE_HZ = 240;
+    private static final int DURATION_MS = 2000;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final class Result {
+        long reportsSent;
+        long inputMotion;
+        long deliveredMotion;
+        long droppedReports;
+        double meanLagCounts;
+        double finalLagMs;
+    }
+
+    @Test
+    public void coalescingKeepsUpWithSlowLinks() {
+        int[] linkRates = {60, 125, 250, 500};
+        for (int linkRate : linkRates) {
+            Result plain = simulate(linkRate, false);
+            Result merged = simulate(linkRate, true);
+            double linkPeriodMs = 1000.0 / linkRate;
+
+            // 合并模式不丢失任何位移，每个时隙清空累加值，输入结束后一个时隙内追上
+            assertEquals(merged.inputMotion, merged.deliveredMotion);
+            assertEquals(0, merged.droppedReports);
+            assertTrue(merged.meanLagCounts < 127);
+            assertTrue(merged.finalLagMs <= linkPeriodMs);
+            assertTrue(merged.meanLagCounts <= plain.meanLagCounts);
+            assertTrue(merged.reportsSent <= plain.reportsSent);
+            if (linkRate < TOUCH_RATE_HZ) {
+                // 链路慢于触摸采样时逐个发送会填满队列、丢弃报告，输入结束后仍要花数百毫秒发送积压
+                assertTrue(plain.droppedReports > 0);
+                assertTrue(plain.finalLagMs > 400);
+                assertTrue(merged.reportsSent < plain.reportsSent);
+            } else {
+                assertEquals(0, plain.droppedReports);
+                assertEquals(plain.inputMotion, plain.deliveredMotion);
+            }
+        }
+    }
+
+    @Test
+    public void coalescerThroughput() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        byte[] report = new byte[4];
+        int iterations = 2_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            coalescer.add((byte) 0, i & 7, -(i & 3), 0);
+            if ((i & 3) == 0) {
+                coalescer.poll(report);
+            }
+        }
+        while (coalescer.poll(report) > 0) {
+            // 清空剩余数据
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        assertFalse(coalescer.hasPending());
+        // 每秒至少一百万次加入，远高于任何触摸采样率
+        assertTrue(iterations * 1_000_000_000L / elapsedNanos > 1_000_000);
+    }
+
+    // 离散事件模拟：虚拟时钟以微秒推进，不依赖真实线程调度
+    private static Result simulate(int linkRateHz, boolean coalesce) {
+        Result result = new Result();
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        int[] queue = new int[QUEUE_CAPACITY];
+        int queueHead = 0;
+        int queueSize = 0;
+        byte[] report = new byte[4];
+
+        long touchPeriodUs = 1_000_000L / TOUCH_RATE_HZ;
+        long linkPeriodUs = 1_000_000L / linkRateHz;
+        long endUs = DURATION_MS * 1000L;
+        long nextTouchUs = 0;
+        long nextLinkUs = 0;
+        long lagSum = 0;
+        long lagSamples = 0;
+        long caughtUpUs = -1;
+
+        while (true) {
+            boolean inputDone = nextTouchUs >= endUs;
+            boolean pending = coalesce ? coalescer.hasPending() : queueSize > 0;
+            if (inputDone && !pending) {
+                caughtUpUs = Math.max(0, nextLinkUs - linkPeriodUs - endUs);
+                break;
+            }
+
+            if (!inputDone && nextTouchUs <= nextLinkUs) {
+                // 快速划动：每个采样 6~20 个计数
+                int delta = 6 + (int) ((nextTouchUs / touchPeriodUs) % 15);
+                result.inputMotion += delta;
+                if (coalesce) {
+                    coalescer.add((byte) 0, delta, 0, 0);
+                } else if (queueSize < QUEUE_CAPACITY) {
+                    queue[(queueHead + queueSize) % QUEUE_CAPACITY] = delta;
+                    queueSize++;
+                } else {
+                    result.droppedReports++;
+                }
+                nextTouchUs += touchPeriodUs;
+            } else {
+                if (coalesce) {
+                    if (coalescer.poll(report) > 0) {
+                        result.deliveredMotion += report[1];
+                        result.reportsSent++;
+                    }
+                } else if (queueSize > 0) {
+                    result.deliveredMotion += queue[queueHead];
+                    queueHead = (queueHead + 1) % QUEUE_CAPACITY;
+                    queueSize--;
+                    result.reportsSent++;
+                }
+                lagSum += result.inputMotion - result.deliveredMotion;
+                lagSamples++;
+                nextLinkUs += linkPeriodUs;
+            }
+        }
+
+        result.meanLagCounts = lagSamples == 0 ? 0 : (double) lagSum / lagSamples;
+        result.finalLagMs = caughtUpUs / 1000.0;
+        return result;
+    }
+}
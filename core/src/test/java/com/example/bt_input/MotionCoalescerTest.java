@@ -0,0 +1,165 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionCoalescerTest {
+
+    private final byte[] report = new byte[4];
+
+    @Test
+    public void pendingDeltasAreSummedIntoOneReport() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        coalescer.add((byte) 0, 3, -2, 0);
+        coalescer.add((byte) 0, 4, -5, 1);
+        coalescer.add((byte) 0, 1, 0, 0);
+
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 8, -7, 1}, report);
+        assertEquals(0, coalescer.poll(report));
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void largeSumsAreSplitAcrossReports() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        coalescer.add((byte) 0, 300, -130, 0);
+
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 127, -127, 0}, report);
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 127, -3, 0}, report);
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 46, 0, 0}, report);
+        assertEquals(0, coalescer.poll(report));
+    }
+
+    @Test
+    public void motionIsNeverMergedAcrossButtonChange() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        coalescer.add((byte) 0, 5, 5, 0);
+        coalescer.add((byte) 1, 0, 0, 0);
+        coalescer.add((byte) 1, 7, 0, 0);
+        coalescer.add((byte) 1, 2, 1, 0);
+        coalescer.add((byte) 0, 0, 0, 0);
+        coalescer.add((byte) 0, 1, 1, 0);
+
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 5, 5, 0}, report);
+        // 按下报告保持原样
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{1, 0, 0, 0}, report);
+        // 按住期间的位移可以合并
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{1, 9, 1, 0}, report);
+        // 抬起报告保持原样
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 0, 0, 0}, report);
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 1, 1, 0}, report);
+        assertEquals(0, coalescer.poll(report));
+    }
+
+    @Test
+    public void motionAddedWhileReportInFlightIsMergedIntoRemainder() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        coalescer.add((byte) 0, 200, 0, 0);
+        assertEquals(4, coalescer.poll(report));
+        assertEquals(127, report[1]);
+
+        coalescer.add((byte) 0, 10, 0, 0);
+        assertEquals(4, coalescer.poll(report));
+        assertEquals(83, report[1]);
+        assertEquals(0, coalescer.poll(report));
+    }
+
+    @Test
+    public void segmentOverflowIsCounted() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        int accepted = 0;
+        for (int i = 0; i < 40; i++) {
+            if (coalescer.add((byte) (i & 1), 1, 0, 0)) {
+                accepted++;
+            }
+        }
+        assertEquals(16, accepted);
+        assertEquals(24, coalescer.getDroppedCount());
+    }
+
+    @Test
+    public void droppedReleaseIsSentOnRetry() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        // 按下后用按钮变化填满 16 个分段，最后一个分段为按下状态
+        for (int i = 0; i < 16; i++) {
+            assertTrue(coalescer.add((byte) ((i & 1) == 0 ? 1 : 2), 1, 0, 0));
+        }
+        // 缓冲已满，抬起被丢弃
+        assertFalse(coalescer.add((byte) 0, 0, 0, 0));
+
+        byte lastButtons = -1;
+        while (coalescer.poll(report) > 0) {
+            lastButtons = report[0];
+        }
+        assertEquals(2, lastButtons);
+
+        // 调用方重试抬起时仍视为按钮变化，发出空位移的抬起报告
+        assertTrue(coalescer.add((byte) 0, 0, 0, 0));
+        assertEquals(4, coalescer.poll(report));
+        assertArrayEquals(new byte[]{0, 0, 0, 0}, report);
+        assertEquals(0, coalescer.poll(report));
+    }
+
+    @Test
+    public void zeroMotionWithoutButtonChangeIsIgnored() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        coalescer.add((byte) 0, 0, 0, 0);
+        assertFalse(coalescer.hasPending());
+        assertEquals(0, coalescer.poll(report));
+    }
+
+    @Test
+    public void highResolutionFormatUsesSixteenBitDeltas() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.HIGH_RESOLUTION);
+        byte[] wide = new byte[6];
+        coalescer.add((byte) 0, 1000, -40000, 3);
+
+        assertEquals(6, coalescer.poll(wide));
+        assertArrayEquals(new byte[]{0, (byte) 0xE8, 0x03, 0x01, (byte) 0x80, 3}, wide);
+        assertEquals(6, coalescer.poll(wide));
+        assertArrayEquals(new byte[]{0, 0, 0, (byte) 0xBF, (byte) 0xE3, 0}, wide);
+        assertEquals(0, coalescer.poll(wide));
+    }
+
+    @Test
+    public void smoothScrollFormatCarriesPanAndKeepsButtons() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD_SMOOTH_SCROLL);
+        byte[] withPan = new byte[5];
+        coalescer.add((byte) 1, 0, 0, 0);
+        assertEquals(5, coalescer.poll(withPan));
+
+        // 按住按钮时滚动不会产生按钮变化
+        coalescer.addScroll(-3, 200);
+        assertEquals(5, coalescer.poll(withPan));
+        assertArrayEquals(new byte[]{1, 0, 0, -3, 127}, withPan);
+        assertEquals(5, coalescer.poll(withPan));
+        assertArrayEquals(new byte[]{1, 0, 0, 0, 73}, withPan);
+        assertEquals(0, coalescer.poll(withPan));
+    }
+
+    @Test
+    public void bootFormatDropsScrollWithoutEmptyReports() {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.BOOT);
+        byte[] boot = new byte[3];
+        // 引导协议没有滚轮：纯滚动不产生报告
+        coalescer.addScroll(-1000, 300);
+        assertFalse(coalescer.hasPending());
+        assertEquals(0, coalescer.poll(boot));
+
+        // 与位移一起加入的滚轮同样丢弃，只发出位移
+        coalescer.add((byte) 0, 5, -3, 500);
+        assertEquals(3, coalescer.poll(boot));
+        assertArrayEquals(new byte[]{0, 5, -3}, boot);
+        assertEquals(0, coalescer.poll(boot));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionPredictorTest {
+
+    @Test
+    public void constantVelocityIsExtrapolated() {
+        MotionPredictor predictor = new MotionPredictor();
+        predictor.setLookaheadMs(20);
+        for (int i = 0; i <= 10; i++) {
+            predictor.addSample(1000 + i * 8, i * 4, -i * 2);
+        }
+        assertTrue(predictor.update(1080));
+        assertEquals(10f, predictor.getOffsetX(), 0.01f);
+        assertEquals(-5f, predictor.getOffsetY(), 0.01f);
+
+        // 关闭后不预测
+        predictor.setLookaheadMs(0);
+        assertFalse(predictor.update(1080));
+        assertEquals(0f, predictor.getOffsetX(), 0f);
+    }
+
+    @Test
+    public void predictionIsLimitedByRecentTravelAndStops() {
+        MotionPredictor predictor = new MotionPredictor();
+        predictor.setLookaheadMs(30);
+        // 快速移动后急停：最小二乘速度仍然很大，但预测不超过最近 30ms（从 24ms 的采样算起）的实际移动
+        for (int i = 0; i <= 5; i++) {
+            predictor.addSample(i * 8, i * 10, 0);
+        }
+        predictor.addSample(48, 51, 0);
+        predictor.addSample(56, 52, 0);
+        assertTrue(predictor.update(56));
+        assertEquals(22f, predictor.getOffsetX(), 0.01f);
+        // 停住超过 30ms 后不再向前预测
+        predictor.addSample(64, 52, 0);
+        predictor.addSample(72, 52, 0);
+        predictor.addSample(80, 52, 0);
+        predictor.addSample(88, 52, 0);
+        assertTrue(predictor.update(88));
+        assertEquals(0f, predictor.getOffsetX(), 0.01f);
+
+        // 停顿后再来一个采样：时间窗内只有一个采样，不预测
+        predictor.addSample(200, 52, 0);
+        assertFalse(predictor.update(200));
+        assertEquals(0f, predictor.getOffsetX(), 0f);
+    }
+
+    @Test
+    public void processorLeadsDuringStrokeAndRetractsOnLift() {
+        List<int[]> withPrediction = new ArrayList<>();
+        List<int[]> without = new ArrayList<>();
+        TouchMotionProcessor predicted = new TouchMotionProcessor((dx, dy) -> withPrediction.add(new int[]{dx, dy}));
+        predicted.getPredictor().setLookaheadMs(16);
+        TouchMotionProcessor plain = new TouchMotionProcessor((dx, dy) -> without.add(new int[]{dx, dy}));
+
+        int leadAtMidStroke = 0;
+        for (TouchMotionProcessor processor : new TouchMotionProcessor[]{predicted, plain}) {
+            processor.onTouchDown(0, 100, 100);
+            processor.onTouchBatchEnd();
+            for (int i = 1; i <= 20; i++) {
+                processor.onTouchMove(i * 8, 100 + i * 6, 100 + i * 3);
+                processor.onTouchBatchEnd();
+                if (i == 10) {
+                    leadAtMidStroke += processor == predicted ? sumX(withPrediction) : -sumX(without);
+                }
+            }
+            processor.onTouchUp(168, 220, 160);
+            processor.onTouchBatchEnd();
+        }
+
+        // 16ms 的预测约为 12 像素
+        assertEquals(12, leadAtMidStroke, 1);
+        // 抬起后总位移与不预测时完全相同
+        assertEquals(sumX(without), sumX(withPrediction));
+        assertEquals(120, sumX(withPrediction));
+        assertEquals(60, sumY(withPrediction));
+    }
+
+    @Test
+    public void pointerChangeRetractsPrediction() {
+        List<int[]> out = new ArrayList<>();
+        TouchMotionProcessor processor = new TouchMotionProcessor((dx, dy) -> out.add(new int[]{dx, dy}));
+        processor.getPredictor().setLookaheadMs(16);
+        processor.onTouchDown(0, 0, 0);
+        for (int i = 1; i <= 10; i++) {
+            processor.onTouchMove(i * 8, i * 5, 0);
+            processor.onTouchBatchEnd();
+        }
+        assertTrue(sumX(out) > 50);
+        processor.onPointerCountChanged(85, 2);
+        processor.onTouchBatchEnd();
+        assertEquals(50, sumX(out));
+    }
+
+    @Test
+    public void predictionBeatsBaselineOnNoisySyntheticTrace() {
+        TouchTrace trace = syntheticTrace(new Random(7), 20);
+        PredictionEvaluator.Result none = PredictionEvaluator.evaluate(trace, 0);
+        PredictionEvaluator.Result result = PredictionEvaluator.evaluate(trace, 16);
+
+        assertEquals(20, result.strokes);
+        assertEquals(none.baselineMeanError, none.meanError, 0.001f);
+        assertTrue(result.summary(), result.meanError < result.baselineMeanError * 0.6f);
+        assertTrue(result.summary(), result.p95Error < result.baselineP95Error);
+        // 笔划末尾减速到停止，预测不越过抬起位置太多
+        assertTrue(result.summary(), result.maxOvershoot < 3f);
+    }
+
+    @Test
+    public void recordedSessionPredictionBeatsBaseline() throws IOException {
+        TouchTrace trace;
+        try (InputStream in = getClass().getResourceAsStream("/traces/mixed_session.bttrace")) {
+            assertNotNull(in);
+            trace = TouchTrace.readFrom(in);
+        }
+        PredictionEvaluator.Result result = PredictionEvaluator.evaluate(trace, 8);
+        assertTrue(result.strokes > 0);
+        assertTrue(result.samples > 0);
+        // 录制的会话中预测后的平均误差和 p95 误差都不到不预测时的一半
+        assertTrue(result.summary(), result.meanError < result.baselineMeanError * 0.5f);
+        assertTrue(result.summary(), result.p95Error < result.baselineP95Error * 0.5f);
+        assertTrue(result.summary().contains("预测 8ms"));
+    }
+
+    // 每笔划：随机方向，速度按正弦从 0 加速再减速到 0（约 300ms），采样间隔 8ms，坐标叠加 ±0.5 像素噪声
+    private static TouchTrace syntheticTrace(Random random, int strokes) {
+        TouchTrace trace = new TouchTrace();
+        long t = 0;
+        for (int s = 0; s < strokes; s++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            double distance = 100 + random.nextDouble() * 200;
+            int steps = 36 + random.nextInt(8);
+            float startX = 500;
+            float startY = 500;
+            trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_DOWN, t, startX, startY);
+            trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_BATCH_END, t, 0, 0);
+            float x = startX;
+            float y = startY;
+            for (int i = 1; i <= steps; i++) {
+                // 位置按 (1 - cos) / 2 从 0 走到 distance
+                double progress = (1 - Math.cos(Math.PI * i / steps)) / 2;
+                x = (float) (startX + Math.cos(angle) * distance * progress + random.nextDouble() - 0.5);
+                y = (float) (startY + Math.sin(angle) * distance * progress + random.nextDouble() - 0.5);
+                trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_MOVE, t + i * 8, x, y);
+                trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_BATCH_END, t + i * 8, 0, 0);
+            }
+            t += steps * 8 + 10;
+            trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_UP, t, x, y);
+            trace.append(TouchTrace.SOURCE_TOUCHPAD, TouchTrace.KIND_BATCH_END, t, 0, 0);
+            t += 500;
+        }
+        return trace;
+    }
+
+    private static int sumX(List<int[]> out) {
+        int sum = 0;
+        for (int[] d : out) {
+            sum += d[0];
+        }
+        return sum;
+    }
+
+    private static int sumY(List<int[]> out) {
+        int sum = 0;
+        for (int[] d : out) {
+            sum += d[1];
+        }
+        return sum;
+    }
+}
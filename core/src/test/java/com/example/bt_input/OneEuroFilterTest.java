@@ -0,0 +1,187 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// 在合成的带噪声轨迹上量化防抖效果：抖动用相对真实位置的均方根误差衡量，滞后用沿移动方向的平均落后距离 / 速度衡量
+public class OneEuroFilterTest {
+
+    // 触摸采样间隔（250Hz）和传感器噪声标准差（像素）
+    private static final int SAMPLE_INTERVAL_MS = 4;
+    private static final float NOISE = 1.5f;
+    // 前 200ms 为滤波器起步阶段，不计入统计
+    private static final int SETTLE_MS = 200;
+
+    private static class Stats {
+        // 垂直于移动方向的均方根误差（静止时为整体误差），即残留抖动
+        double jitter;
+        // 沿移动方向的平均落后距离换算成的毫秒数
+        double lagMs;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "抖动=%.3fpx 滞后=%.2fms", jitter, lagMs);
+        }
+    }
+
+    // 以 speed 像素/秒沿 X 轴匀速移动（speed 为 0 时静止）durationMs，每个采样叠加高斯噪声
+    // filter 为 null 时统计原始采样
+    private static Stats run(OneEuroFilter filter, float speed, int durationMs, long seed) {
+        Random random = new Random(seed);
+        double sumAlong = 0;
+        double sumSquares = 0;
+        int count = 0;
+        for (int t = 0; t <= durationMs; t += SAMPLE_INTERVAL_MS) {
+            float trueX = 100 + speed * t / 1000f;
+            float trueY = 300;
+            float rawX = trueX + (float) random.nextGaussian() * NOISE;
+            float rawY = trueY + (float) random.nextGaussian() * NOISE;
+            float x = rawX;
+            float y = rawY;
+            if (filter != null) {
+                if (t == 0) {
+                    filter.reset(t, rawX, rawY);
+                } else {
+                    filter.filter(t, rawX, rawY);
+                }
+                x = filter.getX();
+                y = filter.getY();
+            }
+            if (t < SETTLE_MS) {
+                continue;
+            }
+            sumAlong += trueX - x;
+            double across = y - trueY;
+            sumSquares += speed > 0 ? across * across : across * across + (x - trueX) * (x - trueX);
+            count++;
+        }
+        Stats stats = new Stats();
+        stats.jitter = Math.sqrt(sumSquares / count);
+        stats.lagMs = speed > 0 ? sumAlong / count / speed * 1000 : 0;
+        return stats;
+    }
+
+    private static OneEuroFilter filter(float minCutoffHz, float beta) {
+        OneEuroFilter filter = new OneEuroFilter();
+        filter.setMinCutoffHz(minCutoffHz);
+        filter.setBeta(beta);
+        return filter;
+    }
+
+    @Test
+    public void stationaryJitterIsRemoved() {
+        Stats raw = run(null, 0, 2000, 1);
+        Stats filtered = run(filter(1f, OneEuroFilter.DEFAULT_BETA), 0, 2000, 1);
+
+        // 两轴噪声合计约 2.1px，防抖后不到 0.4px
+        assertEquals(NOISE * Math.sqrt(2), raw.jitter, 0.2);
+        assertTrue("防抖 " + filtered, filtered.jitter < raw.jitter / 4);
+        assertTrue("防抖 " + filtered, filtered.jitter < 0.4);
+    }
+
+    @Test
+    public void fastMovementAddsLittleLag() {
+        OneEuroFilter adaptive = filter(1f, OneEuroFilter.DEFAULT_BETA);
+        Stats raw = run(null, 1500, 1000, 2);
+        Stats filtered = run(adaptive, 1500, 1000, 2);
+        // 同样最低截止频率的固定低通（beta = 0）作为对照
+        Stats fixed = run(filter(1f, 0f), 1500, 1000, 2);
+
+        assertEquals(0, raw.lagMs, 1);
+        // 快速移动时截止频率升高到约 11Hz，滞后只有几毫秒，固定低通的滞后接近 1/(2π) 秒
+        assertTrue("防抖 " + filtered, filtered.lagMs > 0);
+        assertTrue("防抖 " + filtered, filtered.lagMs < 10);
+        assertEquals(1000 / (2 * Math.PI), fixed.lagMs, 20);
+        // 垂直方向的抖动仍然减少
+        assertTrue("原始 " + raw + " 防抖 " + filtered, filtered.jitter < raw.jitter * 0.7);
+    }
+
+    @Test
+    public void slowMovementTradesLagForSmoothness() {
+        Stats raw = run(null, 50, 2000, 3);
+        Stats filtered = run(filter(1f, OneEuroFilter.DEFAULT_BETA), 50, 2000, 3);
+
+        // 慢速时以滞后换取平滑：抖动减少到三分之一以下，滞后远小于最低截止频率对应的时间常数（约 160ms）
+        assertTrue("原始 " + raw + " 防抖 " + filtered, filtered.jitter < raw.jitter / 3);
+        assertTrue("防抖 " + filtered, filtered.lagMs < 60);
+
+        // beta 越大，同样速度下滞后越小、残留抖动越多
+        Stats responsive = run(filter(1f, 0.05f), 50, 2000, 3);
+        assertTrue(responsive.lagMs < filtered.lagMs);
+        assertTrue(responsive.jitter > filtered.jitter);
+    }
+
+    @Test
+    public void disabledFilterPassesSamplesThrough() {
+        OneEuroFilter filter = new OneEuroFilter();
+        assertFalse(filter.isEnabled());
+        filter.reset(0, 10, 20);
+        filter.filter(4, 13.5f, 18f);
+        assertEquals(13.5f, filter.getX(), 0f);
+        assertEquals(18f, filter.getY(), 0f);
+
+        filter.setMinCutoffHz(1f);
+        assertTrue(filter.isEnabled());
+        filter.filter(8, 20f, 18f);
+        assertTrue(filter.getX() > 13.5f && filter.getX() < 20f);
+        // 重新锚定后从新位置开始
+        filter.reset(100, 50, 60);
+        assertEquals(50f, filter.getX(), 0f);
+        assertEquals(60f, filter.getY(), 0f);
+    }
+
+    @Test
+    public void processorHoldsStillUnderNoiseAndKeepsStrokeLength() {
+        int[] rawTravel = new int[3];
+        int[] filteredTravel = new int[3];
+        TouchMotionProcessor raw = new TouchMotionProcessor((dx, dy) -> accumulate(rawTravel, dx, dy));
+        TouchMotionProcessor filtered = new TouchMotionProcessor((dx, dy) -> accumulate(filteredTravel, dx, dy));
+        filtered.getJitterFilter().setMinCutoffHz(1f);
+
+        for (TouchMotionProcessor processor : new TouchMotionProcessor[]{raw, filtered}) {
+            Random random = new Random(4);
+            processor.onTouchDown(0, 500, 500);
+            processor.onTouchBatchEnd();
+            // 手指静止 1 秒，然后以 1500px/s 向右移动 300px 后停住 200ms 再抬起
+            int t = SAMPLE_INTERVAL_MS;
+            for (; t <= 1000; t += SAMPLE_INTERVAL_MS) {
+                processor.onTouchMove(t, 500 + noise(random), 500 + noise(random));
+                processor.onTouchBatchEnd();
+            }
+            int[] travel = processor == raw ? rawTravel : filteredTravel;
+            int stillTravel = travel[2];
+            travel[0] = 0;
+            travel[1] = 0;
+            for (int i = 1; t <= 1400; t += SAMPLE_INTERVAL_MS, i++) {
+                float x = 500 + Math.min(300, i * 1.5f * SAMPLE_INTERVAL_MS);
+                processor.onTouchMove(t, x + noise(random), 500 + noise(random));
+                processor.onTouchBatchEnd();
+            }
+            processor.onTouchUp(t, 800, 500);
+            processor.onTouchBatchEnd();
+            travel[2] = stillTravel;
+        }
+
+        // 静止时原始坐标每个采样都带出一两个计数的抖动，防抖后光标基本不动
+        assertTrue(rawTravel[2] > 100);
+        assertTrue(filteredTravel[2] < rawTravel[2] / 5);
+        // 移动的总距离不变（加速只取决于速度，两者一致时输出相近）
+        assertEquals(rawTravel[0], filteredTravel[0], Math.abs(rawTravel[0]) / 20 + 4);
+        assertEquals(rawTravel[1], filteredTravel[1], 6);
+    }
+
+    private static float noise(Random random) {
+        return (float) random.nextGaussian() * NOISE;
+    }
+
+    // [0]/[1] 为 X/Y 总位移，[2] 为路径长度（各次输出的绝对值之和）
+    private static void accumulate(int[] travel, int dx, int dy) {
+        travel[0] += dx;
+        travel[1] += dy;
+        travel[2] += Math.abs(dx) + Math.abs(dy);
+    }
+}
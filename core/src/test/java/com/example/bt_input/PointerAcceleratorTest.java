@@ -0,0 +1,127 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PointerAcceleratorTest {
+
+    // 录制的触摸轨迹：{时间(ms), x, y}，先慢速微调再快速划过
+    private static final float[][] TRACE = buildTrace();
+
+    private static float[][] buildTrace() {
+        float[][] trace = new float[120][];
+        float x = 200f;
+        for (int i = 0; i < trace.length; i++) {
+            // 前 60 个采样约 0.05 像素/毫秒，之后约 3 像素/毫秒
+            float step = i < 60 ? 0.2f : 12f;
+            x += step;
+            trace[i] = new float[]{i * 4f, x, 300f};
+        }
+        return trace;
+    }
+
+    @Test
+    public void speedIsEstimatedFromTimestamps() {
+        PointerAccelerator accelerator = new PointerAccelerator();
+        accelerator.reset(0, 0f, 0f);
+        for (int i = 1; i <= 30; i++) {
+            // 每 5ms 移动 (3, 4)，即 1 像素/毫秒
+            accelerator.addSample(i * 5L, i * 3f, i * 4f);
+        }
+        assertEquals(1f, accelerator.getSpeed(), 1e-4f);
+    }
+
+    @Test
+    public void samplesWithSameTimestampKeepPreviousSpeed() {
+        PointerAccelerator accelerator = new PointerAccelerator();
+        accelerator.reset(0, 0f, 0f);
+        accelerator.addSample(10, 5f, 0f);
+        float speed = accelerator.getSpeed();
+        accelerator.reset(20, 0f, 0f);
+        accelerator.addSample(20, 5f, 0f);
+        assertEquals(0f, accelerator.getSpeed(), 0f);
+        assertEquals(0.5f, speed, 1e-4f);
+    }
+
+    @Test
+    public void linearCurveMatchesPlainSensitivity() {
+        int[] totals = replay(new AccelerationCurves.Linear(1f), 2f);
+        float distance = TRACE[TRACE.length - 1][1] - TRACE[0][1];
+        assertEquals(distance * 2f, totals[0], 1.01f);
+    }
+
+    @Test
+    public void acceleratedCurvesSlowDownPreciseMotionAndSpeedUpFlicks() {
+        AccelerationCurve[] curves = {
+                new AccelerationCurves.WindowsPrecision(),
+                new AccelerationCurves.Adaptive(),
+                AccelerationCurves.LookupTable.parse(AccelerationCurves.DEFAULT_LOOKUP_TABLE)
+        };
+        for (AccelerationCurve curve : curves) {
+            assertTrue(curve.gain(0.05f) <= 1f);
+            assertTrue(curve.gain(3f) > 1.5f);
+            // 增益随速度单调不减
+            float previous = 0f;
+            for (float speed = 0f; speed < 10f; speed += 0.05f) {
+                float gain = curve.gain(speed);
+                assertTrue(gain >= previous - 1e-4f);
+                previous = gain;
+            }
+        }
+    }
+
+    @Test
+    public void lookupTableInterpolatesAndClamps() {
+        AccelerationCurves.LookupTable table = AccelerationCurves.LookupTable.parse("0.5:1, 1.5:3");
+        assertEquals(1f, table.gain(0f), 1e-6f);
+        assertEquals(2f, table.gain(1f), 1e-6f);
+        assertEquals(3f, table.gain(9f), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lookupTableRejectsUnsortedSpeeds() {
+        AccelerationCurves.LookupTable.parse("1:1,0.5:2");
+    }
+
+    @Test
+    public void userLookupTableIsUsedByCreate() {
+        AccelerationCurve curve = AccelerationCurves.create(AccelerationCurves.TYPE_LOOKUP_TABLE, "0:1,2:5");
+        assertEquals(3f, curve.gain(1f), 1e-6f);
+        // 未提供时使用默认表
+        AccelerationCurve fallback = AccelerationCurves.create(AccelerationCurves.TYPE_LOOKUP_TABLE, null);
+        assertEquals(0.4f, fallback.gain(0f), 1e-6f);
+    }
+
+    // 设置界面输入的非法数字同样以 IllegalArgumentException 报告
+    @Test(expected = IllegalArgumentException.class)
+    public void lookupTableRejectsMalformedNumbers() {
+        AccelerationCurves.LookupTable.parse("0:1,fast:2");
+    }
+
+    @Test
+    public void windowsCurveIsContinuous() {
+        AccelerationCurves.WindowsPrecision curve = new AccelerationCurves.WindowsPrecision();
+        float[] knots = {0.43f, 1.25f, 3.86f, 40f};
+        for (float knot : knots) {
+            assertEquals(curve.gain(knot - 1e-3f), curve.gain(knot + 1e-3f), 0.01f);
+        }
+    }
+
+    // 用指定曲线回放录制轨迹，返回输出的总位移
+    private static int[] replay(AccelerationCurve curve, float sensitivity) {
+        int[] totals = new int[2];
+        TouchMotionProcessor processor = new TouchMotionProcessor((deltaX, deltaY) -> {
+            totals[0] += deltaX;
+            totals[1] += deltaY;
+        });
+        processor.setSensitivity(sensitivity);
+        processor.setAccelerationCurve(curve);
+        processor.onTouchDown((long) TRACE[0][0], TRACE[0][1], TRACE[0][2]);
+        for (int i = 1; i < TRACE.length; i++) {
+            processor.onTouchMove((long) TRACE[i][0], TRACE[i][1], TRACE[i][2]);
+            processor.onTouchBatchEnd();
+        }
+        return totals;
+    }
+}
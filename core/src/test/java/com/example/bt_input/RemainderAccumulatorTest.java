@@ -0,0 +1,53 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RemainderAccumulatorTest {
+
+    @Test
+    public void fractionalMovesAreNotLost() {
+        RemainderAccumulator accumulator = new RemainderAccumulator();
+        int emitted = 0;
+        for (int i = 0; i < 10; i++) {
+            emitted += accumulator.add(0.3f);
+        }
+        assertEquals(3, emitted);
+        assertEquals(0f, accumulator.getRemainder(), 1e-4f);
+    }
+
+    @Test
+    public void totalEmittedMatchesTotalInputWithinOneCount() {
+        Random random = new Random(42);
+        RemainderAccumulator accumulator = new RemainderAccumulator();
+        double totalInput = 0;
+        long totalEmitted = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // 正负混合的小位移，模拟慢速且来回的拖动
+            float value = (random.nextFloat() - 0.45f) * 1.7f;
+            totalInput += value;
+            totalEmitted += accumulator.add(value);
+            assertTrue(Math.abs(totalInput - totalEmitted) < 1.0 + 1e-3);
+        }
+    }
+
+    @Test
+    public void unitsPerCountScalesOutput() {
+        RemainderAccumulator accumulator = new RemainderAccumulator(10f);
+        assertEquals(0, accumulator.add(7f));
+        assertEquals(1, accumulator.add(7f));
+        assertEquals(-1, accumulator.add(-20f));
+        assertEquals(-0.6f, accumulator.getRemainder(), 1e-4f);
+    }
+
+    @Test
+    public void resetDropsRemainder() {
+        RemainderAccumulator accumulator = new RemainderAccumulator();
+        accumulator.add(0.9f);
+        accumulator.reset();
+        assertEquals(0, accumulator.add(0.5f));
+    }
+}
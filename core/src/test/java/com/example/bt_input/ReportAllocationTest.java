@@ -0,0 +1,190 @@
+package com.example.bt_input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+// 用 HotSpot 的线程分配计数验证稳定状态下编码和发送报告不分配堆内存
+// Android 上没有 com.sun.management，只在 JVM 单元测试中运行
+public class ReportAllocationTest {
+
+    private static final int WARMUP_REPORTS = 50_000;
+    private static final int MEASURED_REPORTS = 100_000;
+    // 允许计数接口自身的少量固定开销，测量期间平均每个报告不到 0.01 字节，远小于每个报告一个数组
+    private static final long ALLOCATION_LIMIT_BYTES = 1024;
+
+    private HidReportSender sender;
+
+    @After
+    public void tearDown() {
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    @Test
+    public void claimCommitPathDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = threadBean();
+        if (threadBean == null) {
+            return;
+        }
+        AtomicLong sent = new AtomicLong();
+        Thread[] senderThread = new Thread[1];
+        sender = new HidReportSender((reportId, report) -> {
+            sent.incrementAndGet();
+            return true;
+        }, 64, MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL.reportLength, runnable -> {
+            senderThread[0] = new Thread(runnable, "HidReportSender");
+            return senderThread[0];
+        });
+        sender.start();
+        MouseReportFormat format = MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL;
+
+        produceEncoded(format, WARMUP_REPORTS);
+        waitForSent(sent, WARMUP_REPORTS);
+
+        long producerId = Thread.currentThread().getId();
+        long consumerId = senderThread[0].getId();
+        long producerBefore = threadBean.getThreadAllocatedBytes(producerId);
+        long consumerBefore = threadBean.getThreadAllocatedBytes(consumerId);
+        produceEncoded(format, MEASURED_REPORTS);
+        waitForSent(sent, WARMUP_REPORTS + MEASURED_REPORTS);
+        long producerBytes = threadBean.getThreadAllocatedBytes(producerId) - producerBefore;
+        long consumerBytes = threadBean.getThreadAllocatedBytes(consumerId) - consumerBefore;
+
+        assertAllocationWithinLimit("生产者", producerBytes);
+        assertAllocationWithinLimit("发送线程", consumerBytes);
+    }
+
+    @Test
+    public void coalescedPathDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = threadBean();
+        if (threadBean == null) {
+            return;
+        }
+        AtomicLong sent = new AtomicLong();
+        Thread[] senderThread = new Thread[1];
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        sender = new HidReportSender((reportId, report) -> {
+            sent.incrementAndGet();
+            return true;
+        }, 64, MouseReportFormat.STANDARD.reportLength, runnable -> {
+            senderThread[0] = new Thread(runnable, "HidReportSender");
+            return senderThread[0];
+        });
+        sender.setReportSource(0, coalescer::poll);
+        sender.start();
+
+        produceCoalesced(coalescer, WARMUP_REPORTS);
+        waitForIdle(coalescer);
+
+        long producerId = Thread.currentThread().getId();
+        long consumerId = senderThread[0].getId();
+        long producerBefore = threadBean.getThreadAllocatedBytes(producerId);
+        long consumerBefore = threadBean.getThreadAllocatedBytes(consumerId);
+        produceCoalesced(coalescer, MEASURED_REPORTS);
+        waitForIdle(coalescer);
+        long producerBytes = threadBean.getThreadAllocatedBytes(producerId) - producerBefore;
+        long consumerBytes = threadBean.getThreadAllocatedBytes(consumerId) - consumerBefore;
+
+        assertAllocationWithinLimit("生产者", producerBytes);
+        assertAllocationWithinLimit("发送线程", consumerBytes);
+        assertTrue(sent.get() > 0);
+    }
+
+    @Test
+    public void filteredTouchPathDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean = threadBean();
+        if (threadBean == null) {
+            return;
+        }
+        int[] total = new int[1];
+        TouchMotionProcessor processor = new TouchMotionProcessor((dx, dy) -> total[0] += dx + dy);
+        processor.getJitterFilter().setMinCutoffHz(1f);
+        processor.getPredictor().setLookaheadMs(8);
+
+        produceTouch(processor, WARMUP_REPORTS);
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        produceTouch(processor, MEASURED_REPORTS);
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertAllocationWithinLimit("触摸线程", bytes);
+        assertTrue(total[0] != 0);
+    }
+
+    private static void assertAllocationWithinLimit(String thread, long bytes) {
+        assertTrue(thread + "分配了 " + bytes + " 字节 / " + MEASURED_REPORTS + " 次", bytes < ALLOCATION_LIMIT_BYTES);
+    }
+
+    // 每 50 个采样一次按下到抬起的笔划
+    private static void produceTouch(TouchMotionProcessor processor, int samples) {
+        for (int i = 0; i < samples; i++) {
+            long time = i * 4L;
+            float x = 100 + (i % 50) * 3 + (i % 3);
+            float y = 200 + (i % 50) * 2 - (i % 2);
+            if (i % 50 == 0) {
+                processor.onTouchDown(time, x, y);
+            } else if (i % 50 == 49) {
+                processor.onTouchUp(time, x, y);
+            } else {
+                processor.onTouchMove(time, x, y);
+            }
+            processor.onTouchBatchEnd();
+        }
+    }
+
+    private void produceEncoded(MouseReportFormat format, int reports) {
+        int produced = 0;
+        while (produced < reports) {
+            byte[] slot = sender.claim();
+            if (slot == null) {
+                Thread.yield();
+                continue;
+            }
+            int length = format.encode(slot, (byte) 0, produced % 200 - 100, 3, 0, 0);
+            sender.commit(0, length);
+            produced++;
+        }
+    }
+
+    private void produceCoalesced(MotionCoalescer coalescer, int moves) {
+        for (int i = 0; i < moves; i++) {
+            coalescer.add((byte) 0, i % 7 - 3, 2, 0);
+            sender.signal();
+        }
+    }
+
+    private static void waitForSent(AtomicLong sent, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, sent.get());
+    }
+
+    private static void waitForIdle(MotionCoalescer coalescer) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.hasPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(coalescer.hasPending());
+    }
+}
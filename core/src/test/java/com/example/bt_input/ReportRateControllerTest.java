@@ -0,0 +1,182 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReportRateControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    // 触摸采样间隔（250Hz）
+    private static final long INPUT_INTERVAL = 4 * MS;
+
+    // 模拟链路：每秒最多发出 bandwidth 个报告，协议栈最多积压 queueLimit 个
+    // sendReport 的耗时随积压增长（每个积压报告 perQueued），积压满时阻塞到有空位，另加 0..jitter 的随机抖动
+    private static class SimulatedLink {
+        final long slotNanos;
+        final int queueLimit;
+        final long baseNanos;
+        final long perQueuedNanos;
+        final long jitterNanos;
+        final Random random = new Random(42);
+        // 已接受的报告全部发出的时间
+        long linkFreeNanos = 0;
+        // 最近一个报告到达主机的时间
+        long lastDeliveryNanos;
+
+        SimulatedLink(int bandwidth, int queueLimit, long jitterNanos) {
+            this.slotNanos = TimeUnit.SECONDS.toNanos(1) / bandwidth;
+            this.queueLimit = queueLimit;
+            this.baseNanos = MS / 2;
+            this.perQueuedNanos = MS / 2;
+            this.jitterNanos = jitterNanos;
+        }
+
+        // 在 nowNanos 调用 sendReport，返回调用结束的时间
+        long send(long nowNanos) {
+            long accept = Math.max(nowNanos, linkFreeNanos - queueLimit * slotNanos);
+            long queued = Math.max(0, linkFreeNanos - accept) / slotNanos;
+            linkFreeNanos = Math.max(linkFreeNanos, accept) + slotNanos;
+            lastDeliveryNanos = linkFreeNanos;
+            long jitter = jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0;
+            return accept + baseNanos + queued * perQueuedNanos + jitter;
+        }
+    }
+
+    private static class Result {
+        int reports;
+        int motion;
+        int inputs;
+        long[] latencies;
+
+        long percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+        }
+    }
+
+    // 按发送线程的逻辑模拟 [startMs, endMs)：触摸位移进入合并器，控制器允许时取出一个报告发送
+    // 延迟为最早一次未发送的位移到报告到达主机的时间；controller 为 null 时不限速
+    private static Result simulate(SimulatedLink link, ReportRateController controller,
+            long startMs, long endMs) {
+        MotionCoalescer coalescer = new MotionCoalescer(MouseReportFormat.STANDARD);
+        byte[] report = new byte[MouseReportFormat.STANDARD.reportLength];
+        long end = endMs * MS;
+        long[] latencies = new long[(int) ((endMs - startMs) * MS / INPUT_INTERVAL) + 1];
+        Result result = new Result();
+
+        long now = startMs * MS;
+        long nextInput = now;
+        long pendingSince = -1;
+        while (now < end) {
+            while (nextInput <= now) {
+                coalescer.add((byte) 0, 1, 0, 0);
+                result.inputs++;
+                if (pendingSince < 0) {
+                    pendingSince = nextInput;
+                }
+                nextInput += INPUT_INTERVAL;
+            }
+            long wait = controller != null ? controller.delayNanos(now) : 0;
+            if (wait > 0) {
+                now += wait;
+                continue;
+            }
+            if (!coalescer.hasPending()) {
+                now = nextInput;
+                continue;
+            }
+            coalescer.poll(report);
+            long sendEnd = link.send(now);
+            if (controller != null) {
+                controller.onSendComplete(now, sendEnd, true);
+            }
+            latencies[result.reports++] = link.lastDeliveryNanos - pendingSince;
+            result.motion += report[1];
+            pendingSince = -1;
+            now = sendEnd;
+        }
+        result.latencies = Arrays.copyOf(latencies, result.reports);
+        return result;
+    }
+
+    @Test
+    public void congestedLinkIsThrottledInsteadOfQueued() {
+        Result uncontrolled = simulate(new SimulatedLink(100, 40, MS), null, 0, 5000);
+        ReportRateController controller = new ReportRateController();
+        Result controlled = simulate(new SimulatedLink(100, 40, MS), controller, 0, 5000);
+
+        // 不限速时协议栈积压到 sendReport 的耗时与链路速率持平，每个位移都要等待整个积压
+        assertTrue(uncontrolled.percentile(50) > 150 * MS);
+        // 限速后积压保持在几个报告以内
+        assertTrue(controlled.percentile(50) < 100 * MS);
+        assertTrue(controlled.percentile(50) < uncontrolled.percentile(50) / 2);
+        assertTrue(controlled.percentile(90) < uncontrolled.percentile(50));
+        assertTrue(controller.getDecreaseCount() > 0);
+        assertTrue(controller.getRate() < 200);
+
+        // 位移在合并器中累加，不会丢失
+        assertTrue(controlled.motion >= controlled.inputs - 50);
+        assertTrue(controlled.reports < controlled.inputs / 2);
+    }
+
+    @Test
+    public void fastLinkIsNotThrottled() {
+        ReportRateController controller = new ReportRateController();
+        Result result = simulate(new SimulatedLink(1000, 40, MS), controller, 0, 2000);
+
+        // 每个触摸采样都单独发出
+        assertEquals(result.inputs, result.reports, 2);
+        assertEquals(result.inputs, result.motion, 2);
+        assertTrue(result.percentile(99) < 5 * MS);
+        assertFalse(controller.isThrottled());
+    }
+
+    @Test
+    public void rateRecoversAfterCongestionClears() {
+        ReportRateController controller = new ReportRateController();
+        simulate(new SimulatedLink(100, 40, 2 * MS), controller, 0, 3000);
+        assertTrue(controller.isThrottled());
+
+        double throttledRate = controller.getRate();
+        assertTrue(throttledRate < 200);
+
+        // 同一个控制器在链路恢复后继续使用，速率线性回升
+        Result recovered = simulate(new SimulatedLink(1000, 40, 2 * MS), controller, 3000, 6000);
+        assertTrue(controller.getRate() > throttledRate + 500);
+        assertTrue(recovered.percentile(50) < 10 * MS);
+    }
+
+    @Test
+    public void failuresReduceRateOncePerHold() {
+        ReportRateController controller = new ReportRateController(60, 1000, 3);
+        controller.onSendComplete(0, MS / 2, true);
+        controller.onSendComplete(MS, 2 * MS, false);
+        assertEquals(500, controller.getRate(), 0.001);
+        // 保持期内的失败不再减速
+        controller.onSendComplete(3 * MS, 4 * MS, false);
+        assertEquals(500, controller.getRate(), 0.001);
+        assertEquals(1, controller.getDecreaseCount());
+        assertTrue(controller.getFailureRate() > 0);
+        // 按当前速率间隔发送
+        assertEquals(2 * MS - MS, controller.delayNanos(4 * MS));
+
+        controller.onSendComplete(200 * MS, 201 * MS, false);
+        assertEquals(250, controller.getRate(), 0.001);
+
+        controller.reset();
+        assertEquals(1000, controller.getRate(), 0.001);
+        assertEquals(0, controller.delayNanos(0));
+        assertEquals(0, controller.getDecreaseCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidParameters() {
+        new ReportRateController(100, 50, 3);
+    }
+}
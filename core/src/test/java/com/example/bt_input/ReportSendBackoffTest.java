@@ -0,0 +1,56 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReportSendBackoffTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void isolatedFailuresDoNotBackOff() {
+        ReportSendBackoff backoff = new ReportSendBackoff(3, 2, 100);
+        assertEquals(0, backoff.onFailure());
+        assertEquals(0, backoff.onFailure());
+        backoff.onSuccess();
+        assertEquals(0, backoff.onFailure());
+        assertEquals(3, backoff.getConnectionFailures());
+        assertEquals(0, backoff.getBackoffCount());
+    }
+
+    @Test
+    public void delayGrowsExponentiallyUpToMaximum() {
+        ReportSendBackoff backoff = new ReportSendBackoff(1, 2, 20);
+        assertEquals(2 * MS, backoff.onFailure());
+        assertEquals(4 * MS, backoff.onFailure());
+        assertEquals(8 * MS, backoff.onFailure());
+        assertEquals(16 * MS, backoff.onFailure());
+        assertEquals(20 * MS, backoff.onFailure());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(20 * MS, backoff.onFailure());
+        }
+    }
+
+    @Test
+    public void successAndResetRestartTheSequence() {
+        ReportSendBackoff backoff = new ReportSendBackoff(1, 2, 100);
+        backoff.onFailure();
+        backoff.onFailure();
+        backoff.onSuccess();
+        assertEquals(0, backoff.getConsecutiveFailures());
+        assertEquals(2 * MS, backoff.onFailure());
+
+        backoff.reset();
+        assertEquals(0, backoff.getConnectionFailures());
+        assertEquals(0, backoff.getBackoffCount());
+        assertEquals(2 * MS, backoff.onFailure());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidParameters() {
+        new ReportSendBackoff(0, 2, 100);
+    }
+}
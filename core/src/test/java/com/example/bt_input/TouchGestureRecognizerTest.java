@@ -0,0 +1,382 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TouchGestureRecognizerTest {
+
+    // 记录按钮变化（"时间:按钮"）和位移，截止时间由测试按轨迹时间手动触发
+    private static class Recorder implements TouchGestureRecognizer.GestureOutput, TouchSampleListener {
+        final List<String> events = new ArrayList<>();
+        TouchGestureRecognizer recognizer;
+        long now;
+        long deadline = Long.MIN_VALUE;
+        int moves;
+        int downs;
+
+        @Override
+        public void onButtonsChanged(byte buttons) {
+            events.add(now + ":" + buttons);
+        }
+
+        @Override
+        public void scheduleDeadline(long deadlineMs, long delayMs) {
+            assertEquals(deadlineMs - now, delayMs);
+            deadline = deadlineMs;
+        }
+
+        // 推进到 timeMs，期间到期的定时器先触发
+        void advance(long timeMs) {
+            if (deadline != Long.MIN_VALUE && timeMs >= deadline) {
+                now = deadline;
+                long fired = deadline;
+                deadline = Long.MIN_VALUE;
+                recognizer.onDeadline(fired);
+            }
+            now = timeMs;
+        }
+
+        @Override
+        public void onTouchDown(long eventTimeMs, float x, float y) {
+            downs++;
+        }
+
+        @Override
+        public void onTouchMove(long eventTimeMs, float x, float y) {
+            moves++;
+        }
+
+        @Override
+        public void onTouchUp(long eventTimeMs, float x, float y) {
+        }
+
+        @Override
+        public void onTouchCancel(long eventTimeMs) {
+        }
+
+        @Override
+        public void onTouchBatchEnd() {
+        }
+    }
+
+    private final Recorder out = new Recorder();
+    private final TouchGestureRecognizer recognizer = new TouchGestureRecognizer(out, out);
+
+    {
+        out.recognizer = recognizer;
+    }
+
+    private void down(long t, float x, float y) {
+        out.advance(t);
+        recognizer.onTouchDown(t, x, y);
+    }
+
+    private void move(long t, float x, float y) {
+        out.advance(t);
+        recognizer.onTouchMove(t, x, y);
+    }
+
+    private void up(long t, float x, float y) {
+        out.advance(t);
+        recognizer.onTouchUp(t, x, y);
+    }
+
+    private void pointers(long t, int count) {
+        out.advance(t);
+        recognizer.onPointerCountChanged(t, count);
+    }
+
+    @Test
+    public void tapClicksLeftAndReleasesAfterHold() {
+        down(1000, 10, 10);
+        move(1040, 14, 12);
+        up(1080, 14, 12);
+        assertEquals(TouchGestureRecognizer.BUTTON_LEFT, recognizer.getButtons());
+        out.advance(2000);
+
+        assertEquals(List.of("1080:1", "1130:0"), out.events);
+        assertEquals(1, recognizer.getTapCount());
+    }
+
+    @Test
+    public void slowOrLongTouchIsNotATap() {
+        down(1000, 10, 10);
+        move(1050, 60, 10);
+        up(1100, 60, 10);
+        down(2000, 10, 10);
+        up(2300, 10, 10);
+        out.advance(5000);
+        assertTrue(out.events.isEmpty());
+    }
+
+    @Test
+    public void doubleTapProducesTwoClicks() {
+        down(1000, 10, 10);
+        up(1060, 10, 10);
+        // 第二次按下在保持时间内：先松开第一次点击
+        down(1100, 11, 10);
+        up(1160, 11, 10);
+        out.advance(2000);
+
+        assertEquals(List.of("1060:1", "1100:0", "1100:1", "1160:0"), out.events);
+        assertEquals(2, recognizer.getTapCount());
+    }
+
+    @Test
+    public void tapThenDragHoldsLeftButtonUntilLift() {
+        down(1000, 10, 10);
+        up(1060, 10, 10);
+        down(1200, 10, 10);
+        move(1250, 80, 40);
+        assertEquals(TouchGestureRecognizer.BUTTON_LEFT, recognizer.getButtons());
+        move(1600, 200, 90);
+        up(1700, 200, 90);
+        out.advance(3000);
+
+        assertEquals(List.of("1060:1", "1110:0", "1200:1", "1700:0"), out.events);
+        assertEquals(1, recognizer.getDragCount());
+    }
+
+    @Test
+    public void secondTouchAfterDoubleTapTimeoutDoesNotDrag() {
+        down(1000, 10, 10);
+        up(1060, 10, 10);
+        down(1400, 10, 10);
+        move(1450, 80, 40);
+        assertEquals(0, recognizer.getButtons());
+        up(1500, 80, 40);
+        assertEquals(List.of("1060:1", "1110:0"), out.events);
+    }
+
+    @Test
+    public void dragLockKeepsButtonUntilTapOrTimeout() {
+        recognizer.setDragLockEnabled(true);
+        recognizer.setDragLockTimeoutMs(500);
+
+        // 拖动、抬起、再按下继续拖动，最后点击一下结束
+        down(1000, 10, 10);
+        up(1050, 10, 10);
+        down(1150, 10, 10);
+        move(1300, 100, 10);
+        up(1350, 100, 10);
+        assertEquals(TouchGestureRecognizer.BUTTON_LEFT, recognizer.getButtons());
+        down(1600, 100, 10);
+        move(1700, 180, 10);
+        up(1750, 180, 10);
+        assertEquals(TouchGestureRecognizer.BUTTON_LEFT, recognizer.getButtons());
+        down(1900, 180, 10);
+        up(1950, 180, 10);
+        assertEquals(List.of("1050:1", "1100:0", "1150:1", "1950:0"), out.events);
+
+        // 锁定后不再触摸：超时松开
+        down(3000, 10, 10);
+        up(3050, 10, 10);
+        down(3100, 10, 10);
+        move(3200, 90, 10);
+        up(3300, 90, 10);
+        out.advance(4000);
+        assertEquals(List.of("1050:1", "1100:0", "1150:1", "1950:0", "3050:1", "3100:0", "3100:1", "3800:0"),
+                out.events);
+    }
+
+    @Test
+    public void twoAndThreeFingerTapsClickRightAndMiddle() {
+        down(1000, 10, 10);
+        pointers(1020, 2);
+        move(1040, 300, 300);
+        pointers(1080, 1);
+        up(1100, 302, 301);
+        out.advance(2000);
+
+        down(3000, 10, 10);
+        pointers(3010, 2);
+        pointers(3020, 3);
+        pointers(3090, 2);
+        pointers(3095, 1);
+        up(3100, 12, 10);
+        out.advance(4000);
+
+        assertEquals(List.of("1100:2", "1150:0", "3100:4", "3150:0"), out.events);
+    }
+
+    @Test
+    public void multiFingerTapDoesNotArmDrag() {
+        down(1000, 10, 10);
+        pointers(1020, 2);
+        up(1100, 10, 10);
+        down(1200, 10, 10);
+        move(1250, 90, 10);
+        up(1300, 90, 10);
+        assertEquals(List.of("1100:2", "1150:0"), out.events);
+    }
+
+    @Test
+    public void multiFingerMovementIsNotForwarded() {
+        down(1000, 10, 10);
+        move(1010, 12, 10);
+        pointers(1020, 2);
+        move(1030, 300, 300);
+        move(1040, 310, 300);
+        pointers(1050, 1);
+        move(1060, 320, 300);
+        move(1070, 321, 300);
+
+        // 手指数恢复后第一个采样作为新的按下，光标不会跳到另一根手指的位置
+        assertEquals(2, out.downs);
+        assertEquals(2, out.moves);
+    }
+
+    @Test
+    public void twoFingerMovementScrollsInsteadOfRightClick() {
+        List<String> scroll = new ArrayList<>();
+        recognizer.setScrollListener(new TouchSampleListener() {
+            @Override
+            public void onTouchDown(long eventTimeMs, float x, float y) {
+                scroll.add("down");
+            }
+
+            @Override
+            public void onTouchMove(long eventTimeMs, float x, float y) {
+                scroll.add("move");
+            }
+
+            @Override
+            public void onTouchUp(long eventTimeMs, float x, float y) {
+                scroll.add("up");
+            }
+
+            @Override
+            public void onTouchCancel(long eventTimeMs) {
+                scroll.add("cancel");
+            }
+
+            @Override
+            public void onTouchBatchEnd() {
+            }
+        });
+
+        down(1000, 10, 10);
+        pointers(1010, 2);
+        move(1020, 10, 40);
+        move(1030, 10, 80);
+        move(1040, 10, 120);
+        pointers(1050, 1);
+        up(1060, 10, 120);
+        out.advance(2000);
+
+        assertEquals(List.of("down", "move", "move", "up"), scroll);
+        assertTrue(out.events.isEmpty());
+        assertEquals(0, out.moves);
+    }
+
+    @Test
+    public void lateTimerIsOverriddenByNextEvent() {
+        down(1000, 10, 10);
+        up(1050, 10, 10);
+        // 定时器没有执行：下一个事件到达时先松开
+        out.deadline = Long.MIN_VALUE;
+        recognizer.onDeadline(999);
+        assertEquals(TouchGestureRecognizer.BUTTON_LEFT, recognizer.getButtons());
+        out.now = 1500;
+        recognizer.onTouchDown(1500, 10, 10);
+        assertEquals(List.of("1050:1", "1500:0"), out.events);
+    }
+
+    @Test
+    public void cancelReleasesHeldButton() {
+        down(1000, 10, 10);
+        up(1050, 10, 10);
+        down(1100, 10, 10);
+        move(1200, 90, 10);
+        out.now = 1250;
+        recognizer.onTouchCancel(1250);
+        assertEquals(0, recognizer.getButtons());
+        assertEquals(List.of("1050:1", "1100:0", "1100:1", "1250:0"), out.events);
+    }
+
+    @Test
+    public void recordedTraceReplaysToBalancedButtonStream() throws IOException {
+        TouchTrace trace = new TouchTrace();
+        TouchSampleListener recorder = trace.recorder(TouchTrace.SOURCE_TOUCHPAD);
+        // 单击、双指点击、点击后拖动
+        recorder.onTouchDown(0, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchUp(60, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchDown(500, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onPointerCountChanged(520, 2);
+        recorder.onTouchBatchEnd();
+        recorder.onPointerCountChanged(560, 1);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchUp(580, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchDown(1000, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchUp(1050, 10, 10);
+        recorder.onTouchBatchEnd();
+        recorder.onTouchDown(1150, 10, 10);
+        recorder.onTouchBatchEnd();
+        for (int i = 1; i <= 10; i++) {
+            recorder.onTouchMove(1150 + i * 10, 10 + i * 5, 10);
+            recorder.onTouchBatchEnd();
+        }
+        recorder.onTouchUp(1300, 60, 10);
+        recorder.onTouchBatchEnd();
+
+        // 手指数记录经过文件往返后保留
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trace.writeTo(bytes);
+        TouchTrace copy = TouchTrace.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(trace.size(), copy.size());
+        assertEquals(TouchTrace.KIND_POINTERS, copy.getKind(6));
+        assertEquals(2f, copy.getX(6), 0f);
+
+        TraceReplayer replayer = new TraceReplayer(MouseReportFormat.STANDARD);
+        replayer.setGesturesEnabled(true);
+        StringBuilder buttons = new StringBuilder();
+        long motionX = 0;
+        for (TraceReplayer.ReportRecord record : replayer.replayDeterministic(copy)) {
+            if (buttons.length() == 0 || buttons.charAt(buttons.length() - 1) != (char) ('0' + record.data[0])) {
+                buttons.append((char) ('0' + record.data[0]));
+            }
+            motionX += record.data[1];
+            // 拖动中的位移都带着左键
+            if (record.data[1] != 0) {
+                assertEquals(TouchGestureRecognizer.BUTTON_LEFT, record.data[0]);
+            }
+        }
+        assertEquals("10201010", buttons.toString());
+        assertEquals(50, motionX);
+    }
+
+    @Test
+    public void recordedSessionReplayIsRepeatableAndEndsReleased() throws IOException {
+        TouchTrace trace;
+        try (InputStream in = getClass().getResourceAsStream("/traces/mixed_session.bttrace")) {
+            assertNotNull(in);
+            trace = TouchTrace.readFrom(in);
+        }
+        TraceReplayer replayer = new TraceReplayer(MouseReportFormat.STANDARD);
+        replayer.setGesturesEnabled(true);
+        replayer.setDragLockEnabled(true);
+        List<TraceReplayer.ReportRecord> first = replayer.replayDeterministic(trace);
+        List<TraceReplayer.ReportRecord> second = replayer.replayDeterministic(trace);
+
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).timeNanos, second.get(i).timeNanos);
+            assertArrayEquals(first.get(i).data, second.get(i).data);
+        }
+        assertFalse(first.isEmpty());
+        assertEquals(0, first.get(first.size() - 1).data[0]);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TouchMotionProcessorTest {
+
+    private int totalX;
+    private int totalY;
+    private int outputs;
+
+    private TouchMotionProcessor newProcessor(float sensitivity) {
+        TouchMotionProcessor processor = new TouchMotionProcessor((deltaX, deltaY) -> {
+            totalX += deltaX;
+            totalY += deltaY;
+            outputs++;
+        });
+        processor.setSensitivity(sensitivity);
+        return processor;
+    }
+
+    @Test
+    public void slowDragIsNotTruncatedToZero() {
+        TouchMotionProcessor processor = newProcessor(1f);
+        processor.onTouchDown(0, 100f, 100f);
+        processor.onTouchBatchEnd();
+
+        // 每个事件只移动 0.25 像素
+        float x = 100f;
+        for (int i = 1; i <= 40; i++) {
+            x += 0.25f;
+            processor.onTouchMove(i * 8L, x, 100f - i * 0.1f);
+            processor.onTouchBatchEnd();
+        }
+
+        assertEquals(10, totalX);
+        assertEquals(-4, totalY);
+    }
+
+    @Test
+    public void historicalSamplesAreSummedIntoOneOutput() {
+        TouchMotionProcessor processor = newProcessor(2f);
+        processor.onTouchDown(0, 0f, 0f);
+        processor.onTouchBatchEnd();
+
+        processor.onTouchMove(4, 1.5f, 0f);
+        processor.onTouchMove(8, 3.0f, 1f);
+        processor.onTouchMove(12, 4.5f, 2f);
+        processor.onTouchBatchEnd();
+
+        assertEquals(1, outputs);
+        assertEquals(9, totalX);
+        assertEquals(4, totalY);
+    }
+
+    @Test
+    public void emittedMotionMatchesInputWithinOneCount() {
+        TouchMotionProcessor processor = newProcessor(3f);
+        processor.onTouchDown(0, 0f, 0f);
+        processor.onTouchBatchEnd();
+
+        float x = 0f;
+        float y = 0f;
+        for (int i = 1; i <= 5000; i++) {
+            x += (float) Math.sin(i * 0.01) * 0.37f;
+            y += (float) Math.cos(i * 0.013) * 0.21f;
+            processor.onTouchMove(i * 4L, x, y);
+            if (i % 3 == 0) {
+                processor.onTouchBatchEnd();
+            }
+        }
+        processor.onTouchBatchEnd();
+
+        assertTrue(Math.abs(x * 3f - totalX) < 1.01f);
+        assertTrue(Math.abs(y * 3f - totalY) < 1.01f);
+    }
+
+    @Test
+    public void scrollStripUsesSameRemainderMechanism() {
+        int[] steps = new int[1];
+        ScrollMotionProcessor processor = new ScrollMotionProcessor((s, pan) -> steps[0] += s);
+        processor.setSensitivity(1f);
+        processor.onTouchDown(0, 0f, 500f);
+        processor.onTouchBatchEnd();
+
+        // 向上缓慢滑动 95 像素，每次 0.5 像素
+        float y = 500f;
+        for (int i = 1; i <= 190; i++) {
+            y -= 0.5f;
+            processor.onTouchMove(i * 4L, 0f, y);
+            processor.onTouchBatchEnd();
+        }
+        assertEquals(9, steps[0]);
+    }
+
+    @Test
+    public void scrollEmitsFractionalDetentsWithResolutionMultiplier() {
+        int[] counts = new int[2];
+        ScrollMotionProcessor processor = new ScrollMotionProcessor((c, pan) -> {
+            counts[0] += c;
+            counts[1]++;
+        });
+        processor.setSensitivity(1f);
+        processor.setCountsPerDetent(8);
+        processor.onTouchDown(0, 0f, 500f);
+        processor.onTouchBatchEnd();
+
+        float y = 500f;
+        for (int i = 1; i <= 20; i++) {
+            y -= 2.5f;
+            processor.onTouchMove(i * 4L, 0f, y);
+            processor.onTouchBatchEnd();
+        }
+        // 50 像素 = 5 格 = 40 个 1/8 格计数，每个事件都有输出
+        assertEquals(40, counts[0]);
+        assertEquals(20, counts[1]);
+    }
+}
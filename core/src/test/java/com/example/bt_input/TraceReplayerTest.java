@@ -0,0 +1,160 @@
+package com.example.bt_input;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceReplayerTest {
+
+    // 使用 -DupdateGolden=true 重新生成黄金文件（在 core 模块目录下运行）
+    private static final boolean UPDATE_GOLDEN = Boolean.getBoolean("updateGolden");
+    private static final String TRACE = "/traces/mixed_session.bttrace";
+
+    private static TouchTrace loadTrace() throws IOException {
+        try (InputStream in = TraceReplayerTest.class.getResourceAsStream(TRACE)) {
+            assertNotNull("缺少轨迹资源 " + TRACE, in);
+            return TouchTrace.readFrom(in);
+        }
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = TraceReplayerTest.class.getResourceAsStream(name)) {
+            assertNotNull("缺少黄金文件 " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String render(List<TraceReplayer.ReportRecord> reports) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        TraceReplayer.writeReports(reports, builder);
+        return builder.toString();
+    }
+
+    private static void assertMatchesGolden(String name, String actual) throws IOException {
+        if (UPDATE_GOLDEN) {
+            File file = new File("src/test/resources" + name);
+            file.getParentFile().mkdirs();
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(actual.getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+        String expected = readResource(name);
+        if (!expected.equals(actual)) {
+            String[] expectedLines = expected.split("\n");
+            String[] actualLines = actual.split("\n");
+            for (int i = 0; i < Math.min(expectedLines.length, actualLines.length); i++) {
+                assertEquals(name + " 第 " + (i + 1) + " 行", expectedLines[i], actualLines[i]);
+            }
+            assertEquals(name + " 报告数量", expectedLines.length, actualLines.length);
+        }
+    }
+
+    @Test
+    public void binaryRoundTripPreservesEveryRecord() throws IOException {
+        TouchTrace trace = loadTrace();
+        assertTrue(trace.size() > 1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        TouchTrace copy = TouchTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(trace.size(), copy.size());
+        for (int i = 0; i < trace.size(); i++) {
+            assertEquals(trace.getSource(i), copy.getSource(i));
+            assertEquals(trace.getKind(i), copy.getKind(i));
+            assertEquals(trace.getTimeMs(i), copy.getTimeMs(i));
+            assertEquals(trace.getX(i), copy.getX(i), 0f);
+            assertEquals(trace.getY(i), copy.getY(i), 0f);
+        }
+        // 每个采样平均不超过 10 字节
+        assertTrue(out.size() < trace.size() * 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        TouchTrace.readFrom(new ByteArrayInputStream("not a trace".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void recorderCapturesBothSourcesInOrder() {
+        TouchTrace trace = new TouchTrace();
+        TouchSampleListener touchpad = trace.recorder(TouchTrace.SOURCE_TOUCHPAD);
+        TouchSampleListener scroll = trace.recorder(TouchTrace.SOURCE_SCROLL);
+        touchpad.onTouchDown(100, 1, 2);
+        touchpad.onTouchBatchEnd();
+        scroll.onTouchDown(99, 5, 6);
+        scroll.onTouchCancel(104);
+        scroll.onTouchBatchEnd();
+
+        assertEquals(5, trace.size());
+        assertEquals(TouchTrace.SOURCE_SCROLL, trace.getSource(2));
+        // 交错到达的事件不会让时间倒退
+        assertEquals(100, trace.getTimeMs(2));
+        assertEquals(TouchTrace.KIND_CANCEL, trace.getKind(3));
+        assertEquals(104, trace.getTimeMs(4));
+    }
+
+    @Test
+    public void deterministicReplayMatchesGoldenFiles() throws IOException {
+        TouchTrace trace = loadTrace();
+
+        TraceReplayer linear = new TraceReplayer(MouseReportFormat.STANDARD);
+        assertMatchesGolden("/golden/mixed_session_standard_linear.txt", render(linear.replayDeterministic(trace)));
+
+        TraceReplayer accelerated = new TraceReplayer(MouseReportFormat.HIGH_RESOLUTION_SMOOTH_SCROLL);
+        accelerated.setSensitivity(1.5f);
+        accelerated.setAccelerationCurve(AccelerationCurves.create(AccelerationCurves.TYPE_WINDOWS, null));
+        accelerated.setCountsPerDetent(8);
+        assertMatchesGolden("/golden/mixed_session_high_resolution_windows.txt",
+                render(accelerated.replayDeterministic(trace)));
+    }
+
+    @Test
+    public void deterministicReplayIsRepeatable() throws IOException {
+        TouchTrace trace = loadTrace();
+        TraceReplayer replayer = new TraceReplayer(MouseReportFormat.STANDARD);
+        assertEquals(render(replayer.replayDeterministic(trace)), render(replayer.replayDeterministic(trace)));
+    }
+
+    @Test
+    public void timedReplayConservesMotionUnderLoad() throws IOException {
+        TouchTrace trace = loadTrace();
+        TraceReplayer replayer = new TraceReplayer(MouseReportFormat.STANDARD);
+        List<TraceReplayer.ReportRecord> expected = replayer.replayDeterministic(trace);
+
+        // 不等待事件间隔且每次发送耗时 300us，迫使合并器工作
+        replayer.setSendCostMicros(300);
+        List<TraceReplayer.ReportRecord> actual = replayer.replayTimed(trace, 0);
+
+        assertArrayEquals(sumMotion(expected), sumMotion(actual));
+        assertTrue(actual.size() <= expected.size());
+        assertEquals(actual.size(), replayer.getMetrics().snapshot().sent);
+        assertTrue(replayer.getMetrics().binderSend.getValueAtPercentile(50) >= 300_000);
+    }
+
+    private static long[] sumMotion(List<TraceReplayer.ReportRecord> reports) {
+        long[] sums = new long[3];
+        for (TraceReplayer.ReportRecord record : reports) {
+            sums[0] += record.data[1];
+            sums[1] += record.data[2];
+            sums[2] += record.data[3];
+        }
+        return sums;
+    }
+}